@@ -0,0 +1,71 @@
+package com.athixwear.configuration;
+
+import java.util.regex.Pattern;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import com.athixwear.service.catalog.CatalogSnapshotService;
+import com.athixwear.service.catalog.StockOverlay;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Strong ETags for the public catalog reads, derived from the catalog version
+ * (bumped on every product, image and category write) and, for product
+ * responses, the stock stamp. Both are volatile reads (the stock overlay
+ * refreshes on its own thread), so a matching If-None-Match is answered with
+ * 304 here, before the controller or any repository runs. Product detail is sent
+ * gzipped to clients that accept it, so that tag carries a -gzip suffix there
+ * and the two encodings never share one.
+ */
+@Component
+public class CatalogETagInterceptor implements HandlerInterceptor {
+	
+	// versions restart at 1 with the process, so tags from an earlier run must not match
+	private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+	
+	private static final Pattern PRODUCT_DETAIL = Pattern.compile("/api/products/\\d+");
+	
+	private final CatalogSnapshotService catalogSnapshotService;
+	private final StockOverlay stockOverlay;
+	
+	public CatalogETagInterceptor(CatalogSnapshotService catalogSnapshotService, StockOverlay stockOverlay) {
+		this.catalogSnapshotService = catalogSnapshotService;
+		this.stockOverlay = stockOverlay;
+	}
+	
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+			return true;
+		}
+		
+		long version = catalogSnapshotService.currentVersion();
+		if (version < 0) {
+			// nothing loaded yet, so nothing to compare against
+			return true;
+		}
+		
+		StringBuilder etag = new StringBuilder("\"").append(EPOCH).append('-').append(version);
+		if (request.getRequestURI().startsWith("/api/products")) {
+			etag.append('-').append(Long.toHexString(stockOverlay.stamp()));
+		}
+		if (PRODUCT_DETAIL.matcher(request.getRequestURI()).matches()) {
+			// same test ProductController uses to pick the gzipped body
+			String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+			if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+				etag.append("-gzip");
+			}
+			response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		}
+		etag.append('"');
+		
+		// clients may keep the body but have to revalidate before every use
+		response.setHeader("Cache-Control", "no-cache");
+		return !new ServletWebRequest(request, response).checkNotModified(etag.toString());
+	}
+}
@@ -0,0 +1,49 @@
+package com.athixwear.configuration;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Orders, order items and stock reservations used to take AUTO_INCREMENT ids and now draw blocks
+ * from id_generators. Before anything is saved, each generator row is moved
+ * past the ids already in its table, so the first block handed out cannot
+ * collide with existing rows.
+ */
+@Component
+public class IdGeneratorSeeder implements SmartInitializingSingleton {
+	
+	// {generator row, table, id column, allocation size}; must match the @TableGenerator mappings
+	private static final String[][] GENERATORS = {
+			{ "orders", "orders", "order_id", "20" },
+			{ "order_items", "order_items", "order_item_id", "100" },
+			{ "stock_reservations", "stock_reservations", "reservation_id", "20" }
+	};
+	
+	private final JdbcTemplate jdbcTemplate;
+	
+	public IdGeneratorSeeder(JdbcTemplate jdbcTemplate) {
+		super();
+		this.jdbcTemplate = jdbcTemplate;
+	}
+	
+	// runs once every singleton (and so the schema update) is ready, before the web server takes requests
+	@Override
+	public void afterSingletonsInstantiated() {
+		jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS id_generators "
+				+ "(gen_name VARCHAR(255) NOT NULL PRIMARY KEY, next_val BIGINT)");
+		
+		for (String[] generator : GENERATORS) {
+			Long maxId = jdbcTemplate.queryForObject(
+					"SELECT COALESCE(MAX(" + generator[2] + "), 0) FROM " + generator[1], Long.class);
+			// the pooled optimizer hands out (next_val - allocationSize, next_val]
+			long floor = (maxId != null ? maxId : 0) + Long.parseLong(generator[3]);
+			int updated = jdbcTemplate.update(
+					"UPDATE id_generators SET next_val = GREATEST(COALESCE(next_val, 0), ?) WHERE gen_name = ?",
+					floor, generator[0]);
+			if (updated == 0) {
+				jdbcTemplate.update("INSERT INTO id_generators (gen_name, next_val) VALUES (?, ?)", generator[0], floor);
+			}
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package com.athixwear.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+@Configuration
+public class PersistenceConfig {
+	
+	// lets MySQL Connector/J send a JDBC batch in one round trip instead of one per statement
+	@Bean
+	public static BeanPostProcessor batchedStatementsPostProcessor() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessBeforeInitialization(Object bean, String beanName) {
+				if (bean instanceof HikariDataSource dataSource) {
+					dataSource.addDataSourceProperty("rewriteBatchedStatements", "true");
+				}
+				return bean;
+			}
+		};
+	}
+	
+	// group inserts and updates per table into JDBC batches (ids must not come from IDENTITY for inserts to batch)
+	@Bean
+	public HibernatePropertiesCustomizer hibernateTuningCustomizer(
+			@Value("${persistence.jdbc.batch-size:50}") int batchSize) {
+		return properties -> {
+			properties.put("hibernate.jdbc.batch_size", batchSize);
+			properties.put("hibernate.order_inserts", true);
+			properties.put("hibernate.order_updates", true);
+			// hand the connection back at the end of each transaction even with open-session-in-view,
+			// so a request that calls a remote service between two transactions does not hold one meanwhile
+			properties.put("hibernate.connection.handling_mode", "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+		};
+	}
+}
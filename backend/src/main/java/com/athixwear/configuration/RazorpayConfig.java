@@ -1,9 +1,13 @@
 package com.athixwear.configuration;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.athixwear.service.payment.PaymentGatewayClient;
+import com.athixwear.service.payment.RazorpayGatewayClient;
+import com.athixwear.service.payment.StubPaymentGatewayClient;
 import com.razorpay.RazorpayClient;
 
 @Configuration
@@ -20,5 +24,23 @@ public class RazorpayConfig {
 		
 		return new RazorpayClient(keyId, keySecret);
 	}
+	
+	@Bean
+	@ConditionalOnProperty(name = "payment.gateway.mode", havingValue = "razorpay", matchIfMissing = true)
+	public PaymentGatewayClient razorpayGatewayClient(RazorpayClient razorpayClient) {
+		return new RazorpayGatewayClient(razorpayClient);
+	}
+	
+	// payment.gateway.mode=stub: no network, for load-testing timeouts, retries and the breaker offline
+	@Bean
+	@ConditionalOnProperty(name = "payment.gateway.mode", havingValue = "stub")
+	public PaymentGatewayClient stubPaymentGatewayClient(
+			@Value("${payment.gateway.stub.latency-ms:50}") long latencyMillis,
+			@Value("${payment.gateway.stub.failure-rate:0.0}") double failureRate,
+			@Value("${payment.gateway.stub.hang-rate:0.0}") double hangRate,
+			@Value("${payment.gateway.stub.hang-ms:30000}") long hangMillis,
+			@Value("${payment.gateway.stub.paid-rate:0.7}") double paidRate) {
+		return new StubPaymentGatewayClient(latencyMillis, failureRate, hangRate, hangMillis, paidRate);
+	}
 
 }
@@ -0,0 +1,25 @@
+package com.athixwear.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+	
+	/**
+	 * One thread per scheduled job and a spare. Boot's default scheduler has a
+	 * single thread, so a long run (the nightly reconciliation, a rank refresh)
+	 * would stop the one-second hold expiry and webhook recovery until it ends.
+	 */
+	@Bean
+	public ThreadPoolTaskScheduler taskScheduler(@Value("${scheduling.pool-size:8}") int poolSize) {
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.setPoolSize(poolSize);
+		scheduler.setThreadNamePrefix("scheduled-");
+		return scheduler;
+	}
+}
@@ -33,7 +33,9 @@ public class SecurityConfig {
             				    "/api/auth/forgot-password",      
             				    "/api/auth/reset-password",      
             				    "/api/auth/verify",
-            				    "/api/products/**"
+            				    "/api/products/**",
+            				    // signed by Razorpay, checked in PaymentWebhookService
+            				    "/api/payments/webhook"
             		).permitAll()
             		 // Admin endpoints - require ADMIN role
                     .requestMatchers("/api/admin/**").hasRole("ADMIN")
@@ -0,0 +1,34 @@
+package com.athixwear.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+	
+	private final CatalogETagInterceptor catalogETagInterceptor;
+	private final long asyncTimeoutMillis;
+	
+	public WebConfig(CatalogETagInterceptor catalogETagInterceptor,
+			@Value("${web.async-timeout-ms:600000}") long asyncTimeoutMillis) {
+		this.catalogETagInterceptor = catalogETagInterceptor;
+		this.asyncTimeoutMillis = asyncTimeoutMillis;
+	}
+	
+	// streamed responses (the catalog export) outlive the container's default async timeout
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		configurer.setDefaultTimeout(asyncTimeoutMillis);
+	}
+	
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		// suggestions, trending and related products also move with cart and order activity, so they are left out
+		registry.addInterceptor(catalogETagInterceptor)
+				.addPathPatterns("/api/products", "/api/products/**", "/api/categories")
+				.excludePathPatterns("/api/products/suggest", "/api/products/trending", "/api/products/*/related");
+	}
+}
@@ -4,6 +4,8 @@ import com.athixwear.dto.CheckoutRequest;
 import com.athixwear.dto.CheckoutResponse;
 import com.athixwear.dto.OrderResponse;
 import com.athixwear.service.OrderService;
+import com.athixwear.service.idempotency.IdempotencyStore;
+import com.athixwear.service.idempotency.IdempotentCheckoutService;
 
 import jakarta.validation.Valid;
 
@@ -18,17 +20,28 @@ import java.util.Map;
 public class OrderController {
     
     private final OrderService orderService;
+    private final IdempotentCheckoutService idempotentCheckoutService;
     
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, IdempotentCheckoutService idempotentCheckoutService) {
         this.orderService = orderService;
+        this.idempotentCheckoutService = idempotentCheckoutService;
     }
     
+    // with an Idempotency-Key, retries of the same checkout return the first attempt's order
     @PostMapping("/checkout")
-    public ResponseEntity<?> checkout(@Valid @RequestBody CheckoutRequest request) {
+    public ResponseEntity<?> checkout(
+    		@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+    		@Valid @RequestBody CheckoutRequest request) {
     	
-    	CheckoutResponse response = orderService.createOrder(request);
+    	if (idempotencyKey == null) {
+    		CheckoutResponse response = orderService.createOrder(request);
+    		return ResponseEntity.ok(response);
+    	}
     	
-    	return ResponseEntity.ok(response);
+    	IdempotencyStore.Result<CheckoutResponse> result = idempotentCheckoutService.checkout(idempotencyKey, request);
+    	return ResponseEntity.ok()
+    			.header("Idempotent-Replayed", Boolean.toString(result.isReplayed()))
+    			.body(result.getValue());
     }
     
     @GetMapping
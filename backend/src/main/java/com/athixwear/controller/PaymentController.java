@@ -1,8 +1,11 @@
 package com.athixwear.controller;
 
+import java.util.Map;
+
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -11,6 +14,7 @@ import com.athixwear.dto.PaymentOrderResponse;
 import com.athixwear.dto.PaymentVerifyRequest;
 import com.athixwear.dto.PaymentVerifyResponse;
 import com.athixwear.service.PaymentService;
+import com.athixwear.service.payment.PaymentWebhookService;
 
 import jakarta.validation.Valid;
 
@@ -19,9 +23,11 @@ import jakarta.validation.Valid;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentWebhookService paymentWebhookService;
 
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService, PaymentWebhookService paymentWebhookService) {
         this.paymentService = paymentService;
+        this.paymentWebhookService = paymentWebhookService;
     }
 
     @PostMapping("/create-order")
@@ -34,4 +40,14 @@ public class PaymentController {
     public ResponseEntity<PaymentVerifyResponse> verifyPayment(@Valid @RequestBody PaymentVerifyRequest request) {
     	return ResponseEntity.ok(paymentService.verifyPayment(request));
     }
+    
+    // Razorpay server-to-server callback: stored and acknowledged at once, applied asynchronously
+    @PostMapping("/webhook")
+    public ResponseEntity<?> receiveWebhook(
+    		@RequestBody String body,
+    		@RequestHeader(value = "X-Razorpay-Signature", required = false) String signature,
+    		@RequestHeader(value = "X-Razorpay-Event-Id", required = false) String eventId) {
+    	boolean accepted = paymentWebhookService.receive(body, signature, eventId);
+    	return ResponseEntity.ok(Map.of("received", true, "duplicate", !accepted));
+    }
 }
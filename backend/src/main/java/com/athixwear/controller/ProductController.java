@@ -1,15 +1,20 @@
 package com.athixwear.controller;
 
 import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.athixwear.dto.ProductResponse;
 import com.athixwear.service.ProductService;
+import com.athixwear.service.catalog.ProductFilter;
+import com.athixwear.service.catalog.ProductJsonCache;
 import com.razorpay.RazorpayClient;
 
 @RestController
@@ -25,17 +30,80 @@ public class ProductController {
 		this.razorpayClient = razorpayClient;
 	}
 	
+	// bytes come pre-rendered from the product JSON cache, gzipped when the client accepts it
 	@GetMapping("/{productId}")
-	public ResponseEntity<?> getProductById(@PathVariable Integer productId) {
+	public ResponseEntity<byte[]> getProductById(
+			@PathVariable Integer productId,
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
 
-		return ResponseEntity.ok(productService.getProductById(productId));
+		ProductJsonCache.Rendered rendered = productService.getProductDetail(productId);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		
+		if (rendered.getGzipped() != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+			return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(rendered.getGzipped());
+		}
+		return response.body(rendered.getJson());
+	}
+	
+	// window=1h or 24h (default)
+	@GetMapping("/trending")
+	public ResponseEntity<?> getTrendingProducts(
+			@RequestParam(required = false) String window,
+			@RequestParam(required = false) Integer limit) {
+		
+		return ResponseEntity.ok(productService.getTrendingProducts(window, limit));
+	}
+	
+	@GetMapping("/{productId}/related")
+	public ResponseEntity<?> getRelatedProducts(
+			@PathVariable Integer productId,
+			@RequestParam(required = false) Integer limit) {
+		
+		return ResponseEntity.ok(productService.getRelatedProducts(productId, limit));
 	}
 	
+	@GetMapping("/search")
+	public ResponseEntity<?> searchProducts(
+			@RequestParam("q") String query,
+			@RequestParam(required = false) Integer limit) {
+		
+		return ResponseEntity.ok(productService.searchProducts(query, limit));
+	}
+	
+	// type-ahead completions for the search box, product and category names by sales
+	@GetMapping("/suggest")
+	public ResponseEntity<?> suggest(
+			@RequestParam String prefix,
+			@RequestParam(required = false) Integer limit) {
+		
+		return ResponseEntity.ok(productService.suggest(prefix, limit));
+	}
+	
+	// without paging parameters the full list is returned, as the storefront still expects;
+	// any facet parameter switches to the filtered listing with facet counts
 	@GetMapping
-	public ResponseEntity<List<ProductResponse>> getProducts(
-			@RequestParam(required = false) String category) {
+	public ResponseEntity<?> getProducts(
+			@RequestParam(required = false) String category,
+			@RequestParam(required = false) String sort,
+			@RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer limit,
+			@RequestParam(required = false) List<String> price,
+			@RequestParam(required = false) List<String> status,
+			@RequestParam(required = false) Boolean inStock,
+			@RequestParam(required = false) Boolean facets) {
+		
+		if (price != null || status != null || inStock != null || Boolean.TRUE.equals(facets)) {
+			ProductFilter filter = ProductFilter.fromParams(category, price, status, inStock);
+			return ResponseEntity.ok(productService.filterProducts(filter, sort, cursor, limit));
+		}
+		
+		if (sort == null && cursor == null && limit == null) {
+			return ResponseEntity.ok(productService.getProducts(category));
+		}
 	
-		return ResponseEntity.ok(productService.getProducts(category));
+		return ResponseEntity.ok(productService.getProductPage(category, sort, cursor, limit));
 	}
 	
 }
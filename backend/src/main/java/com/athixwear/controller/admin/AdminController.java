@@ -1,7 +1,11 @@
 package com.athixwear.controller.admin;
 
-import com.athixwear.dto.admin.AdminStatsResponse;
+import com.athixwear.dto.admin.AdminDashboardResult;
+import com.athixwear.dto.admin.TopProductsPage;
 import com.athixwear.service.admin.AdminService;
+import com.athixwear.service.analytics.ProductSalesRankingService;
+import com.athixwear.service.analytics.SalesRollupService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -17,24 +21,49 @@ import java.util.Map;
 public class AdminController {
     
     private final AdminService adminService;
+    private final SalesRollupService salesRollupService;
+    private final ProductSalesRankingService productSalesRankingService;
     
-    public AdminController(AdminService adminService) {
+    public AdminController(AdminService adminService, SalesRollupService salesRollupService,
+            ProductSalesRankingService productSalesRankingService) {
         this.adminService = adminService;
+        this.salesRollupService = salesRollupService;
+        this.productSalesRankingService = productSalesRankingService;
     }
     
     @GetMapping("/stats")
     public ResponseEntity<?> getDashboardStats() {
-        AdminStatsResponse stats = adminService.getDashboardStats();
+        AdminDashboardResult dashboard = adminService.getDashboardStats();
+
+        Map<String, Object> meta = new HashMap<>();
+        meta.put("partial", dashboard.isPartial());
+        meta.put("totalMs", dashboard.getTotalMs());
+        meta.put("sections", dashboard.getSections());
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
-        response.put("message", "Dashboard stats fetched successfully");
-        response.put("stats", stats);
+        response.put("message", dashboard.isPartial()
+                ? "Dashboard stats fetched; some sections are unavailable"
+                : "Dashboard stats fetched successfully");
+        response.put("stats", dashboard.getStats());
+        response.put("meta", meta);
         response.put("timestamp", System.currentTimeMillis());
 
         return ResponseEntity.ok(response);
     }
     
+    // recompute the dashboard's daily rollups from the orders
+    @PostMapping("/stats/rebuild")
+    public ResponseEntity<?> rebuildDashboardStats() {
+        if (!salesRollupService.rebuild()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("success", false, "message", "rebuild already running"));
+        }
+        // re-rank best sellers from the rebuilt rollups; if a refresh is already running the next one picks them up
+        productSalesRankingService.refresh();
+        return ResponseEntity.ok(Map.of("success", true, "message", "dashboard stats rebuilt"));
+    }
+    
     //  Recent orders for dashboard
     @GetMapping("/orders/recent")
     public ResponseEntity<?> getRecentOrders() {
@@ -52,11 +81,24 @@ public class AdminController {
         return ResponseEntity.ok(response);
     }
     
+    // window=7d, 30d or all (default); categoryId narrows to one category, ranked within it
     @GetMapping("/products/top")
-    public ResponseEntity<?> getTopProducts() {
+    public ResponseEntity<?> getTopProducts(
+            @RequestParam(required = false) String window,
+            @RequestParam(required = false) Integer categoryId,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        TopProductsPage topProducts = adminService.getTopProducts(window, categoryId, page, size);
+
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
-        response.put("products", adminService.getTopProducts());
+        response.put("products", topProducts.getProducts());
+        response.put("window", topProducts.getWindow());
+        response.put("categoryId", topProducts.getCategoryId());
+        response.put("page", topProducts.getPage());
+        response.put("size", topProducts.getSize());
+        response.put("totalProducts", topProducts.getTotalProducts());
+        response.put("refreshedAt", topProducts.getRefreshedAt());
         return ResponseEntity.ok(response);
     }
 }
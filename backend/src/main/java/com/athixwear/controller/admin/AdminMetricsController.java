@@ -0,0 +1,114 @@
+package com.athixwear.controller.admin;
+
+import com.athixwear.service.admin.ConnectionPoolMetrics;
+import com.athixwear.service.analytics.ProductSalesRankingService;
+import com.athixwear.service.analytics.SalesRollupService;
+import com.athixwear.service.catalog.ProductJsonCache;
+import com.athixwear.service.payment.PaymentReconciliationJob;
+import com.athixwear.service.payment.PaymentWebhookService;
+import com.athixwear.service.payment.PendingPaymentSweeper;
+import com.athixwear.service.payment.RazorpayGateway;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/metrics")
+@CrossOrigin(origins = "http://localhost:5173", allowCredentials = "true")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminMetricsController {
+
+    private final ProductJsonCache productJsonCache;
+    private final ConnectionPoolMetrics connectionPoolMetrics;
+    private final RazorpayGateway razorpayGateway;
+    private final PaymentWebhookService paymentWebhookService;
+    private final PendingPaymentSweeper pendingPaymentSweeper;
+    private final PaymentReconciliationJob paymentReconciliationJob;
+    private final SalesRollupService salesRollupService;
+    private final ProductSalesRankingService productSalesRankingService;
+
+    public AdminMetricsController(ProductJsonCache productJsonCache,
+            ConnectionPoolMetrics connectionPoolMetrics,
+            RazorpayGateway razorpayGateway,
+            PaymentWebhookService paymentWebhookService,
+            PendingPaymentSweeper pendingPaymentSweeper,
+            PaymentReconciliationJob paymentReconciliationJob,
+            SalesRollupService salesRollupService,
+            ProductSalesRankingService productSalesRankingService) {
+        this.productJsonCache = productJsonCache;
+        this.connectionPoolMetrics = connectionPoolMetrics;
+        this.razorpayGateway = razorpayGateway;
+        this.paymentWebhookService = paymentWebhookService;
+        this.pendingPaymentSweeper = pendingPaymentSweeper;
+        this.paymentReconciliationJob = paymentReconciliationJob;
+        this.salesRollupService = salesRollupService;
+        this.productSalesRankingService = productSalesRankingService;
+    }
+
+    @GetMapping("/product-cache")
+    public ResponseEntity<?> getProductCacheMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("metrics", productJsonCache.stats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/db-pool")
+    public ResponseEntity<?> getDbPoolMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("metrics", connectionPoolMetrics.stats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/payment-gateway")
+    public ResponseEntity<?> getPaymentGatewayMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("metrics", razorpayGateway.stats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/payment-webhooks")
+    public ResponseEntity<?> getPaymentWebhookMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("metrics", paymentWebhookService.stats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/pending-payment-sweeper")
+    public ResponseEntity<?> getPendingPaymentSweeperMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("metrics", pendingPaymentSweeper.stats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/payment-reconciliation")
+    public ResponseEntity<?> getPaymentReconciliationMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("metrics", paymentReconciliationJob.stats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/sales-rollups")
+    public ResponseEntity<?> getSalesRollupMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("metrics", salesRollupService.stats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/product-ranks")
+    public ResponseEntity<?> getProductRankMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("metrics", productSalesRankingService.stats());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,21 +1,30 @@
 package com.athixwear.controller.admin;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.athixwear.dto.CreateProductRequest;
 import com.athixwear.dto.UpdateProductRequest;
 import com.athixwear.service.admin.AdminProductService;
+import com.athixwear.service.admin.CatalogExportService;
+import com.athixwear.service.recommendation.RecommendationService;
 
 import jakarta.validation.Valid;
 
@@ -25,10 +34,39 @@ import jakarta.validation.Valid;
 public class AdminProductController {
 	
 	private final AdminProductService adminProductService;
+	private final CatalogExportService catalogExportService;
+	private final RecommendationService recommendationService;
 
-	public AdminProductController(AdminProductService adminProductService) {
+	public AdminProductController(AdminProductService adminProductService, CatalogExportService catalogExportService,
+			RecommendationService recommendationService) {
 		super();
 		this.adminProductService = adminProductService;
+		this.catalogExportService = catalogExportService;
+		this.recommendationService = recommendationService;
+	}
+	
+	// recount co-purchases from the full order history
+	@PostMapping("/related/rebuild")
+	public ResponseEntity<?> rebuildRelatedProducts() {
+		if (!recommendationService.rebuild()) {
+			return ResponseEntity.status(HttpStatus.CONFLICT)
+					.body(Map.of("success", false, "message", "rebuild already running"));
+		}
+		return ResponseEntity.ok(Map.of("success", true, "message", "related products rebuilt"));
+	}
+	
+	// marketplace feed, streamed straight from the database cursor
+	@GetMapping("/export")
+	public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(required = false) String format) {
+		CatalogExportService.Format exportFormat = CatalogExportService.Format.fromParam(format);
+		boolean csv = exportFormat == CatalogExportService.Format.CSV;
+		
+		return ResponseEntity.ok()
+				.contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+						: MediaType.parseMediaType("application/x-ndjson;charset=UTF-8"))
+				.header(HttpHeaders.CONTENT_DISPOSITION,
+						"attachment; filename=\"catalog." + (csv ? "csv" : "ndjson") + "\"")
+				.body(out -> catalogExportService.export(exportFormat, out));
 	}
 	
 	@PostMapping
@@ -44,6 +82,12 @@ public class AdminProductController {
         return ResponseEntity.ok(Map.of("success", true, "product", adminProductService.updateProduct(productId, request)));                      
     }
 	
+	@PostMapping("/{productId}/stock/shards")
+	public ResponseEntity<?> shardStock(@PathVariable Integer productId, @RequestParam int slots) {
+		adminProductService.shardStock(productId, slots);
+		return ResponseEntity.ok(Map.of("success", true, "slots", slots));
+	}
+	
 	@DeleteMapping("/{productId}")
 	public ResponseEntity<?> deleteProduct(@PathVariable Integer productId) {
 		adminProductService.deleteProduct(productId);
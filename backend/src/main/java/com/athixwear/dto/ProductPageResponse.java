@@ -0,0 +1,59 @@
+package com.athixwear.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public class ProductPageResponse {
+	
+	private List<ProductResponse> items;
+	private String nextCursor;
+	private boolean hasMore;
+	private String sort;
+	private int limit;
+	// only filled for filtered (faceted) queries
+	private Long total;
+	private Map<String, Map<String, Long>> facets;
+	
+	public List<ProductResponse> getItems() {
+		return items;
+	}
+	public void setItems(List<ProductResponse> items) {
+		this.items = items;
+	}
+	public String getNextCursor() {
+		return nextCursor;
+	}
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+	public boolean isHasMore() {
+		return hasMore;
+	}
+	public void setHasMore(boolean hasMore) {
+		this.hasMore = hasMore;
+	}
+	public String getSort() {
+		return sort;
+	}
+	public void setSort(String sort) {
+		this.sort = sort;
+	}
+	public int getLimit() {
+		return limit;
+	}
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+	public Long getTotal() {
+		return total;
+	}
+	public void setTotal(Long total) {
+		this.total = total;
+	}
+	public Map<String, Map<String, Long>> getFacets() {
+		return facets;
+	}
+	public void setFacets(Map<String, Map<String, Long>> facets) {
+		this.facets = facets;
+	}
+}
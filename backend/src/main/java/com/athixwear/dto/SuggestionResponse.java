@@ -0,0 +1,34 @@
+package com.athixwear.dto;
+
+public class SuggestionResponse {
+	
+	private String text;
+	// "product" or "category"
+	private String type;
+	private Integer productId;
+	
+	public SuggestionResponse(String text, String type, Integer productId) {
+		this.text = text;
+		this.type = type;
+		this.productId = productId;
+	}
+	
+	public String getText() {
+		return text;
+	}
+	public void setText(String text) {
+		this.text = text;
+	}
+	public String getType() {
+		return type;
+	}
+	public void setType(String type) {
+		this.type = type;
+	}
+	public Integer getProductId() {
+		return productId;
+	}
+	public void setProductId(Integer productId) {
+		this.productId = productId;
+	}
+}
@@ -0,0 +1,66 @@
+package com.athixwear.dto.admin;
+
+import java.util.Map;
+
+// dashboard stats plus how each of the queries behind them went
+public class AdminDashboardResult {
+
+	private AdminStatsResponse stats;
+	private Map<String, Section> sections;
+	private long totalMs;
+	// true when at least one section failed or timed out and shows its default value
+	private boolean partial;
+
+	public AdminStatsResponse getStats() {
+		return stats;
+	}
+
+	public void setStats(AdminStatsResponse stats) {
+		this.stats = stats;
+	}
+
+	public Map<String, Section> getSections() {
+		return sections;
+	}
+
+	public void setSections(Map<String, Section> sections) {
+		this.sections = sections;
+	}
+
+	public long getTotalMs() {
+		return totalMs;
+	}
+
+	public void setTotalMs(long totalMs) {
+		this.totalMs = totalMs;
+	}
+
+	public boolean isPartial() {
+		return partial;
+	}
+
+	public void setPartial(boolean partial) {
+		this.partial = partial;
+	}
+
+	public static class Section {
+		private String status;
+		private long waitMs;
+		private long queryMs;
+		private String error;
+
+		// OK, FAILED or TIMED_OUT
+		public String getStatus() { return status; }
+		public void setStatus(String status) { this.status = status; }
+
+		// time spent waiting for a query slot
+		public long getWaitMs() { return waitMs; }
+		public void setWaitMs(long waitMs) { this.waitMs = waitMs; }
+
+		public long getQueryMs() { return queryMs; }
+		public void setQueryMs(long queryMs) { this.queryMs = queryMs; }
+
+		public String getError() { return error; }
+		public void setError(String error) { this.error = error; }
+	}
+}
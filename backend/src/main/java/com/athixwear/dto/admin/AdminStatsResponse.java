@@ -178,11 +178,15 @@ public class AdminStatsResponse {
 	   	}
 	 
 	  public static class TopProduct {
+	        private Integer rank;
 	        private Integer productId;
 	        private String productName;
 	        private Integer soldCount;
 	        private BigDecimal revenue;
 	        
+	        public Integer getRank() { return rank; }
+	        public void setRank(Integer rank) { this.rank = rank; }
+	        
 	        public Integer getProductId() { return productId; }
 	        public void setProductId(Integer productId) { this.productId = productId; }
 	        
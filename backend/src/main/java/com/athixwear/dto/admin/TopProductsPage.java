@@ -0,0 +1,72 @@
+package com.athixwear.dto.admin;
+
+import java.util.List;
+
+// one page of the best sellers of a window, optionally within one category
+public class TopProductsPage {
+
+	private List<AdminStatsResponse.TopProduct> products;
+	private String window;
+	private Integer categoryId;
+	private int page;
+	private int size;
+	private int totalProducts;
+	// when the ranking was computed; null while nothing has been ranked yet
+	private String refreshedAt;
+
+	public List<AdminStatsResponse.TopProduct> getProducts() {
+		return products;
+	}
+
+	public void setProducts(List<AdminStatsResponse.TopProduct> products) {
+		this.products = products;
+	}
+
+	public String getWindow() {
+		return window;
+	}
+
+	public void setWindow(String window) {
+		this.window = window;
+	}
+
+	public Integer getCategoryId() {
+		return categoryId;
+	}
+
+	public void setCategoryId(Integer categoryId) {
+		this.categoryId = categoryId;
+	}
+
+	public int getPage() {
+		return page;
+	}
+
+	public void setPage(int page) {
+		this.page = page;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	public int getTotalProducts() {
+		return totalProducts;
+	}
+
+	public void setTotalProducts(int totalProducts) {
+		this.totalProducts = totalProducts;
+	}
+
+	public String getRefreshedAt() {
+		return refreshedAt;
+	}
+
+	public void setRefreshedAt(String refreshedAt) {
+		this.refreshedAt = refreshedAt;
+	}
+}
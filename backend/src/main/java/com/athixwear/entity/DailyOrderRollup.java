@@ -0,0 +1,82 @@
+package com.athixwear.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// orders placed on one day in one (order status, payment status), split over a few slots; readers sum the slots
+@Entity
+@Table(name = "daily_order_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_order_rollup",
+                columnNames = {"sales_date", "order_status", "payment_status", "slot_no"})
+})
+public class DailyOrderRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "rollup_id")
+    private Long rollupId;
+
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "order_status", nullable = false, length = 20)
+    private OrderStatus orderStatus;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_status", nullable = false, length = 20)
+    private PaymentStatus paymentStatus;
+
+    @Column(name = "slot_no", nullable = false)
+    private int slotNo;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal amount = BigDecimal.ZERO;
+
+	public Long getRollupId() {
+		return rollupId;
+	}
+	public void setRollupId(Long rollupId) {
+		this.rollupId = rollupId;
+	}
+	public LocalDate getSalesDate() {
+		return salesDate;
+	}
+	public void setSalesDate(LocalDate salesDate) {
+		this.salesDate = salesDate;
+	}
+	public OrderStatus getOrderStatus() {
+		return orderStatus;
+	}
+	public void setOrderStatus(OrderStatus orderStatus) {
+		this.orderStatus = orderStatus;
+	}
+	public PaymentStatus getPaymentStatus() {
+		return paymentStatus;
+	}
+	public void setPaymentStatus(PaymentStatus paymentStatus) {
+		this.paymentStatus = paymentStatus;
+	}
+	public int getSlotNo() {
+		return slotNo;
+	}
+	public void setSlotNo(int slotNo) {
+		this.slotNo = slotNo;
+	}
+	public long getOrderCount() {
+		return orderCount;
+	}
+	public void setOrderCount(long orderCount) {
+		this.orderCount = orderCount;
+	}
+	public BigDecimal getAmount() {
+		return amount;
+	}
+	public void setAmount(BigDecimal amount) {
+		this.amount = amount;
+	}
+}
@@ -0,0 +1,71 @@
+package com.athixwear.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// units and revenue of one product over the orders placed on one day, split over a few slots like DailyOrderRollup
+@Entity
+@Table(name = "daily_product_sales", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_product_sales", columnNames = {"sales_date", "product_id", "slot_no"})
+})
+public class DailyProductSales {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "sales_id")
+    private Long salesId;
+
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(name = "slot_no", nullable = false)
+    private int slotNo;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+	public Long getSalesId() {
+		return salesId;
+	}
+	public void setSalesId(Long salesId) {
+		this.salesId = salesId;
+	}
+	public LocalDate getSalesDate() {
+		return salesDate;
+	}
+	public void setSalesDate(LocalDate salesDate) {
+		this.salesDate = salesDate;
+	}
+	public Product getProduct() {
+		return product;
+	}
+	public void setProduct(Product product) {
+		this.product = product;
+	}
+	public int getSlotNo() {
+		return slotNo;
+	}
+	public void setSlotNo(int slotNo) {
+		this.slotNo = slotNo;
+	}
+	public long getUnits() {
+		return units;
+	}
+	public void setUnits(long units) {
+		this.units = units;
+	}
+	public BigDecimal getRevenue() {
+		return revenue;
+	}
+	public void setRevenue(BigDecimal revenue) {
+		this.revenue = revenue;
+	}
+}
@@ -7,11 +7,22 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // webhooks find orders by the gateway's order id
+        @Index(name = "idx_orders_razorpay_order_id", columnList = "razorpay_order_id"),
+        // the pending-payment sweeper scans unpaid online orders oldest first; cash-on-delivery orders stay
+        // payment PENDING for good, so method and order status lead the key to keep them out of the range
+        @Index(name = "idx_orders_pending_payment_sweep", columnList = "payment_method, payment_status, order_status, order_date"),
+        // date-range reads; InnoDB appends order_id, so (order_date, order_id) keyset pages come straight off it
+        @Index(name = "idx_orders_order_date", columnList = "order_date")
+})
 public class Order {
     
+    // ids come in blocks from id_generators so saving an order does not force an immediate insert
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_ids")
+    @TableGenerator(name = "order_ids", table = "id_generators", pkColumnName = "gen_name",
+            valueColumnName = "next_val", pkColumnValue = "orders", allocationSize = 20)
     @Column(name = "order_id")
     private Integer orderId;
     
@@ -10,13 +10,17 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 
 @Entity
 @Table(name = "order_items")
 public class OrderItem {
 	
+	// ids come in blocks from id_generators so a checkout's lines can be inserted as one JDBC batch
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "order_item_ids")
+	@TableGenerator(name = "order_item_ids", table = "id_generators", pkColumnName = "gen_name",
+			valueColumnName = "next_val", pkColumnValue = "order_items", allocationSize = 100)
 	@Column(name = "order_item_id")
 	private Integer orderItemId;
 	
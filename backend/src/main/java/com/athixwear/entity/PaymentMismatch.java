@@ -0,0 +1,119 @@
+package com.athixwear.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// an order whose payment state disagrees with the gateway, found by the nightly reconciliation of its order day;
+// a captured payment for a gateway order no order here carries has no order and no local side
+@Entity
+@Table(name = "payment_mismatches", indexes = {
+        @Index(name = "idx_payment_mismatches_business_date", columnList = "business_date")
+})
+public class PaymentMismatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "mismatch_id")
+    private Long mismatchId;
+
+    @Column(name = "business_date", nullable = false)
+    private LocalDate businessDate;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id")
+    private Order order;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private PaymentMismatchType type;
+
+    @Column(name = "razorpay_order_id", nullable = false)
+    private String razorpayOrderId;
+
+    @Column(name = "razorpay_payment_id")
+    private String razorpayPaymentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "local_payment_status")
+    private PaymentStatus localPaymentStatus;
+
+    @Column(name = "gateway_status", length = 30)
+    private String gatewayStatus;
+
+    @Column(name = "local_amount_paise")
+    private Long localAmountPaise;
+
+    @Column(name = "gateway_amount_paise")
+    private Long gatewayAmountPaise;
+
+    @Column(name = "detected_at", nullable = false)
+    private LocalDateTime detectedAt = LocalDateTime.now();
+
+	public Long getMismatchId() {
+		return mismatchId;
+	}
+	public void setMismatchId(Long mismatchId) {
+		this.mismatchId = mismatchId;
+	}
+	public LocalDate getBusinessDate() {
+		return businessDate;
+	}
+	public void setBusinessDate(LocalDate businessDate) {
+		this.businessDate = businessDate;
+	}
+	public Order getOrder() {
+		return order;
+	}
+	public void setOrder(Order order) {
+		this.order = order;
+	}
+	public PaymentMismatchType getType() {
+		return type;
+	}
+	public void setType(PaymentMismatchType type) {
+		this.type = type;
+	}
+	public String getRazorpayOrderId() {
+		return razorpayOrderId;
+	}
+	public void setRazorpayOrderId(String razorpayOrderId) {
+		this.razorpayOrderId = razorpayOrderId;
+	}
+	public String getRazorpayPaymentId() {
+		return razorpayPaymentId;
+	}
+	public void setRazorpayPaymentId(String razorpayPaymentId) {
+		this.razorpayPaymentId = razorpayPaymentId;
+	}
+	public PaymentStatus getLocalPaymentStatus() {
+		return localPaymentStatus;
+	}
+	public void setLocalPaymentStatus(PaymentStatus localPaymentStatus) {
+		this.localPaymentStatus = localPaymentStatus;
+	}
+	public String getGatewayStatus() {
+		return gatewayStatus;
+	}
+	public void setGatewayStatus(String gatewayStatus) {
+		this.gatewayStatus = gatewayStatus;
+	}
+	public Long getLocalAmountPaise() {
+		return localAmountPaise;
+	}
+	public void setLocalAmountPaise(Long localAmountPaise) {
+		this.localAmountPaise = localAmountPaise;
+	}
+	public Long getGatewayAmountPaise() {
+		return gatewayAmountPaise;
+	}
+	public void setGatewayAmountPaise(Long gatewayAmountPaise) {
+		this.gatewayAmountPaise = gatewayAmountPaise;
+	}
+	public LocalDateTime getDetectedAt() {
+		return detectedAt;
+	}
+	public void setDetectedAt(LocalDateTime detectedAt) {
+		this.detectedAt = detectedAt;
+	}
+}
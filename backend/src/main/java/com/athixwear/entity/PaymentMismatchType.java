@@ -0,0 +1,12 @@
+package com.athixwear.entity;
+
+public enum PaymentMismatchType {
+	// captured by the gateway, not PAID here
+	PAID_AT_GATEWAY_ONLY,
+	// PAID here, no captured payment at the gateway
+	PAID_LOCALLY_ONLY,
+	// paid on both sides, for different amounts
+	AMOUNT_MISMATCH,
+	// captured for a gateway order no order here carries: its id was overwritten, or a retried checkout made a second one
+	UNKNOWN_GATEWAY_ORDER
+}
@@ -0,0 +1,91 @@
+package com.athixwear.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// a gateway webhook exactly as received; event_id is unique so a redelivered event is stored once
+@Entity
+@Table(name = "payment_webhook_events", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_webhook_event_id", columnNames = "event_id")
+}, indexes = {
+        // recovery of events that never reached a worker
+        @Index(name = "idx_webhook_status_received", columnList = "status, received_at")
+})
+public class PaymentWebhookEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "webhook_event_id")
+    private Long webhookEventId;
+
+    @Column(name = "event_id", nullable = false, length = 100)
+    private String eventId;
+
+    @Column(name = "event_type", length = 100)
+    private String eventType;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private WebhookEventStatus status = WebhookEventStatus.RECEIVED;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt = LocalDateTime.now();
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    @Column(length = 500)
+    private String error;
+
+	public Long getWebhookEventId() {
+		return webhookEventId;
+	}
+	public void setWebhookEventId(Long webhookEventId) {
+		this.webhookEventId = webhookEventId;
+	}
+	public String getEventId() {
+		return eventId;
+	}
+	public void setEventId(String eventId) {
+		this.eventId = eventId;
+	}
+	public String getEventType() {
+		return eventType;
+	}
+	public void setEventType(String eventType) {
+		this.eventType = eventType;
+	}
+	public String getPayload() {
+		return payload;
+	}
+	public void setPayload(String payload) {
+		this.payload = payload;
+	}
+	public WebhookEventStatus getStatus() {
+		return status;
+	}
+	public void setStatus(WebhookEventStatus status) {
+		this.status = status;
+	}
+	public LocalDateTime getReceivedAt() {
+		return receivedAt;
+	}
+	public void setReceivedAt(LocalDateTime receivedAt) {
+		this.receivedAt = receivedAt;
+	}
+	public LocalDateTime getProcessedAt() {
+		return processedAt;
+	}
+	public void setProcessedAt(LocalDateTime processedAt) {
+		this.processedAt = processedAt;
+	}
+	public String getError() {
+		return error;
+	}
+	public void setError(String error) {
+		this.error = error;
+	}
+}
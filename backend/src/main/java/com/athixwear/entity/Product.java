@@ -4,11 +4,18 @@ import jakarta.persistence.*;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // keyset pagination: (sort key, product_id) for each sort, globally and per category
+        @Index(name = "idx_products_price_id", columnList = "price, product_id"),
+        @Index(name = "idx_products_name_id", columnList = "name, product_id"),
+        @Index(name = "idx_products_category_price_id", columnList = "category_id, price, product_id"),
+        @Index(name = "idx_products_category_name_id", columnList = "category_id, name, product_id")
+})
 public class Product {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "product_id")
     private int productId;
 
     @ManyToOne
@@ -20,6 +27,10 @@ public class Product {
     private BigDecimal price;
     private int stock;
     
+    // stock lives in product_stock_slots and this row's stock stays 0
+    @Column(name = "stock_sharded", nullable = false)
+    private boolean stockSharded;
+    
     @Enumerated(EnumType.STRING)
     private Status status;
     
@@ -59,6 +70,12 @@ public class Product {
 	public void setStock(int stock) {
 		this.stock = stock;
 	}
+	public boolean isStockSharded() {
+		return stockSharded;
+	}
+	public void setStockSharded(boolean stockSharded) {
+		this.stockSharded = stockSharded;
+	}
 	public Status getStatus() {
 		return status;
 	}
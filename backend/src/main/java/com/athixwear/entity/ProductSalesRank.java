@@ -0,0 +1,102 @@
+package com.athixwear.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// one product's place in the best sellers of a window, overall and within its category, as of the last refresh
+@Entity
+@Table(name = "product_sales_ranks", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_product_sales_rank", columnNames = {"sales_window", "rank_no"})
+}, indexes = {
+        // a page of a category is a range of category_rank_no, read straight off this index
+        @Index(name = "idx_product_sales_ranks_category", columnList = "sales_window, category_id, category_rank_no")
+})
+public class ProductSalesRank {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "rank_id")
+    private Long rankId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "sales_window", nullable = false, length = 20)
+    private SalesWindow salesWindow;
+
+    @Column(name = "rank_no", nullable = false)
+    private int rankNo;
+
+    @Column(name = "category_id")
+    private Integer categoryId;
+
+    @Column(name = "category_rank_no", nullable = false)
+    private int categoryRankNo;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(name = "refreshed_at", nullable = false)
+    private LocalDateTime refreshedAt;
+
+	public Long getRankId() {
+		return rankId;
+	}
+	public void setRankId(Long rankId) {
+		this.rankId = rankId;
+	}
+	public SalesWindow getSalesWindow() {
+		return salesWindow;
+	}
+	public void setSalesWindow(SalesWindow salesWindow) {
+		this.salesWindow = salesWindow;
+	}
+	public int getRankNo() {
+		return rankNo;
+	}
+	public void setRankNo(int rankNo) {
+		this.rankNo = rankNo;
+	}
+	public Integer getCategoryId() {
+		return categoryId;
+	}
+	public void setCategoryId(Integer categoryId) {
+		this.categoryId = categoryId;
+	}
+	public int getCategoryRankNo() {
+		return categoryRankNo;
+	}
+	public void setCategoryRankNo(int categoryRankNo) {
+		this.categoryRankNo = categoryRankNo;
+	}
+	public Product getProduct() {
+		return product;
+	}
+	public void setProduct(Product product) {
+		this.product = product;
+	}
+	public long getUnits() {
+		return units;
+	}
+	public void setUnits(long units) {
+		this.units = units;
+	}
+	public BigDecimal getRevenue() {
+		return revenue;
+	}
+	public void setRevenue(BigDecimal revenue) {
+		this.revenue = revenue;
+	}
+	public LocalDateTime getRefreshedAt() {
+		return refreshedAt;
+	}
+	public void setRefreshedAt(LocalDateTime refreshedAt) {
+		this.refreshedAt = refreshedAt;
+	}
+}
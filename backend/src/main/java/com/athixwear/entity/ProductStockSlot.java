@@ -0,0 +1,49 @@
+package com.athixwear.entity;
+
+import jakarta.persistence.*;
+
+// one share of a sharded product's stock; the product's total is the sum of its slots
+@Entity
+@Table(name = "product_stock_slots", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_stock_slot_product_slot", columnNames = {"product_id", "slot_no"})
+})
+public class ProductStockSlot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int slotId;
+
+    @ManyToOne
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(name = "slot_no", nullable = false)
+    private int slotNo;
+
+    private int stock;
+
+	public int getSlotId() {
+		return slotId;
+	}
+	public void setSlotId(int slotId) {
+		this.slotId = slotId;
+	}
+	public Product getProduct() {
+		return product;
+	}
+	public void setProduct(Product product) {
+		this.product = product;
+	}
+	public int getSlotNo() {
+		return slotNo;
+	}
+	public void setSlotNo(int slotNo) {
+		this.slotNo = slotNo;
+	}
+	public int getStock() {
+		return stock;
+	}
+	public void setStock(int stock) {
+		this.stock = stock;
+	}
+}
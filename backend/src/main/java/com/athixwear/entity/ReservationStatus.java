@@ -0,0 +1,7 @@
+package com.athixwear.entity;
+
+public enum ReservationStatus {
+	HELD,
+	CONVERTED,
+	RELEASED
+}
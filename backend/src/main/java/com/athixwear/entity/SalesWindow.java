@@ -0,0 +1,41 @@
+package com.athixwear.entity;
+
+import java.time.LocalDate;
+
+import com.athixwear.exception.BadRequestException;
+
+public enum SalesWindow {
+	
+	LAST_7_DAYS("7d", 7),
+	LAST_30_DAYS("30d", 30),
+	ALL("all", 0);
+	
+	private final String param;
+	private final int days;
+	
+	SalesWindow(String param, int days) {
+		this.param = param;
+		this.days = days;
+	}
+	
+	public String getParam() {
+		return param;
+	}
+	
+	// first sales day in the window when today is the last one
+	public LocalDate startingFrom(LocalDate today) {
+		return days == 0 ? LocalDate.EPOCH : today.minusDays(days - 1);
+	}
+	
+	public static SalesWindow fromParam(String param) {
+		if (param == null || param.isBlank()) {
+			return ALL;
+		}
+		for (SalesWindow window : values()) {
+			if (window.param.equalsIgnoreCase(param)) {
+				return window;
+			}
+		}
+		throw new BadRequestException("Unsupported sales window: " + param);
+	}
+}
@@ -0,0 +1,65 @@
+package com.athixwear.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// stock taken by an online-payment order, held until the payment is verified or the hold expires
+@Entity
+@Table(name = "stock_reservations", indexes = {
+        // the reaper only ever reads HELD rows by expiry
+        @Index(name = "idx_reservations_status_expires", columnList = "status, expires_at")
+})
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "stock_reservation_ids")
+    @TableGenerator(name = "stock_reservation_ids", table = "id_generators", pkColumnName = "gen_name",
+            valueColumnName = "next_val", pkColumnValue = "stock_reservations", allocationSize = 20)
+    @Column(name = "reservation_id")
+    private Long reservationId;
+
+    @OneToOne
+    @JoinColumn(name = "order_id", nullable = false, unique = true)
+    private Order order;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ReservationStatus status = ReservationStatus.HELD;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+	public Long getReservationId() {
+		return reservationId;
+	}
+	public void setReservationId(Long reservationId) {
+		this.reservationId = reservationId;
+	}
+	public Order getOrder() {
+		return order;
+	}
+	public void setOrder(Order order) {
+		this.order = order;
+	}
+	public ReservationStatus getStatus() {
+		return status;
+	}
+	public void setStatus(ReservationStatus status) {
+		this.status = status;
+	}
+	public LocalDateTime getExpiresAt() {
+		return expiresAt;
+	}
+	public void setExpiresAt(LocalDateTime expiresAt) {
+		this.expiresAt = expiresAt;
+	}
+	public LocalDateTime getCreatedAt() {
+		return createdAt;
+	}
+	public void setCreatedAt(LocalDateTime createdAt) {
+		this.createdAt = createdAt;
+	}
+}
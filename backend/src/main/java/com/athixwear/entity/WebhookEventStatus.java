@@ -0,0 +1,8 @@
+package com.athixwear.entity;
+
+public enum WebhookEventStatus {
+	RECEIVED,
+	PROCESSED,
+	IGNORED,
+	FAILED
+}
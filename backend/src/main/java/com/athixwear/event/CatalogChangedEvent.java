@@ -0,0 +1,31 @@
+package com.athixwear.event;
+
+/**
+ * Published after a product, category or product image write.
+ * A null productId means the change is not limited to one product
+ * (category rename/delete) and the whole catalog should be reloaded.
+ */
+public class CatalogChangedEvent {
+	
+	private final Integer productId;
+	
+	private CatalogChangedEvent(Integer productId) {
+		this.productId = productId;
+	}
+	
+	public static CatalogChangedEvent product(int productId) {
+		return new CatalogChangedEvent(productId);
+	}
+	
+	public static CatalogChangedEvent all() {
+		return new CatalogChangedEvent(null);
+	}
+	
+	public Integer getProductId() {
+		return productId;
+	}
+	
+	public boolean isFullReload() {
+		return productId == null;
+	}
+}
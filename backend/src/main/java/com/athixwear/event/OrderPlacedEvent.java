@@ -0,0 +1,30 @@
+package com.athixwear.event;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Published by checkout once the order and its lines have been written.
+ * Listeners that feed in-memory statistics should handle it after commit
+ * so a rolled-back checkout never counts.
+ */
+public class OrderPlacedEvent {
+	
+	private final int orderId;
+	// productId -> quantity ordered
+	private final Map<Integer, Integer> quantities;
+	
+	public OrderPlacedEvent(int orderId, Map<Integer, Integer> quantities) {
+		this.orderId = orderId;
+		this.quantities = Collections.unmodifiableMap(new LinkedHashMap<>(quantities));
+	}
+	
+	public int getOrderId() {
+		return orderId;
+	}
+	
+	public Map<Integer, Integer> getQuantities() {
+		return quantities;
+	}
+}
@@ -0,0 +1,18 @@
+package com.athixwear.exception;
+
+import java.util.List;
+
+public class InsufficientStockException extends RuntimeException {
+
+    private final List<Integer> productIds;
+
+    public InsufficientStockException(String message, List<Integer> productIds) {
+        super(message);
+        this.productIds = List.copyOf(productIds);
+    }
+
+    // the products whose stock could not cover the requested quantity
+    public List<Integer> getProductIds() {
+        return productIds;
+    }
+}
@@ -0,0 +1,16 @@
+package com.athixwear.exception;
+
+// the gateway is not called at all: breaker open or bulkhead full
+public class PaymentGatewayUnavailableException extends PaymentGatewayException {
+
+    private final long retryAfterSeconds;
+
+    public PaymentGatewayUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -5,6 +5,7 @@ import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.athixwear.entity.Cart;
@@ -21,6 +22,10 @@ public interface CartItemRepository extends JpaRepository<CartItem, Integer> {
 	// Find all items in cart
 	List<CartItem> findByCart(Cart cart);
 	
+	// Same, with products and categories loaded in the same query (checkout reads every line's product)
+	@Query("SELECT ci FROM CartItem ci JOIN FETCH ci.product p LEFT JOIN FETCH p.category WHERE ci.cart = :cart")
+	List<CartItem> findByCartWithProducts(@Param("cart") Cart cart);
+	
 	// Find specific item by cart and product
 	Optional<CartItem> findByCartAndProduct(Cart cart, Product product);
 	
@@ -0,0 +1,32 @@
+package com.athixwear.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.athixwear.entity.DailyOrderRollup;
+import com.athixwear.entity.PaymentStatus;
+
+// reads of the daily order rollups; writes are JDBC upserts in SalesRollupService
+@Repository
+public interface DailyOrderRollupRepository extends JpaRepository<DailyOrderRollup, Long> {
+	
+	// [orderStatus, order count], the rollup form of OrderRepository.getOrderStatistics
+	@Query("SELECT r.orderStatus, SUM(r.orderCount) FROM DailyOrderRollup r GROUP BY r.orderStatus")
+	List<Object[]> sumOrdersByStatus();
+	
+	@Query("SELECT COALESCE(SUM(r.amount), 0) FROM DailyOrderRollup r WHERE r.paymentStatus = :paymentStatus")
+	BigDecimal sumAmount(@Param("paymentStatus") PaymentStatus paymentStatus);
+	
+	// [year, month, amount] from a date on, for months that still have orders in the payment status
+	@Query("SELECT YEAR(r.salesDate), MONTH(r.salesDate), COALESCE(SUM(r.amount), 0) FROM DailyOrderRollup r " +
+			"WHERE r.paymentStatus = :paymentStatus AND r.salesDate >= :from " +
+			"GROUP BY YEAR(r.salesDate), MONTH(r.salesDate) HAVING SUM(r.orderCount) > 0 " +
+			"ORDER BY YEAR(r.salesDate), MONTH(r.salesDate)")
+	List<Object[]> sumAmountByMonth(@Param("paymentStatus") PaymentStatus paymentStatus, @Param("from") LocalDate from);
+}
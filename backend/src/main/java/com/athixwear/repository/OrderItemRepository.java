@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -36,4 +37,15 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
     
     // Find order items by multiple order IDs
     List<OrderItem> findByOrderOrderIdIn(List<Integer> orderIds);
+    
+    // (orderId, productId) for one range of orders, used to rebuild co-purchase statistics in parallel
+    @Query("SELECT oi.order.orderId, oi.product.productId FROM OrderItem oi " +
+           "WHERE oi.order.orderId BETWEEN :fromId AND :toId")
+    List<Object[]> findOrderProductPairs(@Param("fromId") Integer fromId, @Param("toId") Integer toId);
+
+    // [productId, total quantity, stockSharded] over a set of orders, for giving their stock back in one pass
+    @Query("SELECT oi.product.productId, SUM(oi.quantity), oi.product.stockSharded FROM OrderItem oi " +
+           "WHERE oi.order.orderId IN :orderIds " +
+           "GROUP BY oi.product.productId, oi.product.stockSharded")
+    List<Object[]> sumQuantitiesByProduct(@Param("orderIds") Collection<Integer> orderIds);
 }
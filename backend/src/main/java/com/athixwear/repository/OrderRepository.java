@@ -3,13 +3,18 @@ package com.athixwear.repository;
 import com.athixwear.entity.Order;
 import com.athixwear.entity.OrderStatus;
 import com.athixwear.entity.PaymentStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +27,11 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
  // Find order by ID and user ID (for security)
     Optional<Order> findByOrderIdAndUserUserId(Integer orderId, Integer userId);
 
+    // same, locked for a payment state change so it cannot interleave with the sweeper or a webhook
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.orderId = :orderId AND o.user.userId = :userId")
+    Optional<Order> lockByOrderIdAndUserId(@Param("orderId") Integer orderId, @Param("userId") Integer userId);
+
     // Find orders within date range
     List<Order> findByOrderDateBetween(LocalDateTime startDate, LocalDateTime endDate);
     
@@ -56,10 +66,59 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
     
     // Find order by Razorpay order ID
     Optional<Order> findByRazorpayOrderId(String razorpayOrderId);
+
+    // locked in id order, so batches sharing orders always lock them in the same order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.razorpayOrderId IN :razorpayOrderIds ORDER BY o.orderId")
+    List<Order> lockByRazorpayOrderIdIn(@Param("razorpayOrderIds") Collection<String> razorpayOrderIds);
+
+    // same, by order id
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.orderId IN :orderIds ORDER BY o.orderId")
+    List<Order> lockByOrderIdIn(@Param("orderIds") Collection<Integer> orderIds);
     
     // Find orders by status
     List<Order> findByOrderStatus(OrderStatus status);
     
     // Find orders by payment status
     List<Order> findByPaymentStatus(PaymentStatus status);
+    
+    // [min, max] order id, both null when there are no orders
+    @Query("SELECT MIN(o.orderId), MAX(o.orderId) FROM Order o")
+    List<Object[]> findOrderIdRange();
+
+    // Unpaid online orders placed before the cutoff, oldest first, over the
+    // (payment_method, payment_status, order_status, order_date) index, so only candidates are scanned and locked.
+    // Locked, skipping rows a payment verification or webhook holds right now (both lock the order
+    // before changing it); those are picked up by a later run if they are still unpaid.
+    @Query(value = "SELECT o.order_id FROM orders o " +
+            "WHERE o.payment_status = 'PENDING' AND o.order_date < :cutoff " +
+            "AND o.order_status = 'PENDING' AND o.payment_method = 'RAZORPAY' " +
+            "ORDER BY o.order_date LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Integer> lockExpiredPendingPayments(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.orderStatus = :orderStatus, o.paymentStatus = :paymentStatus WHERE o.orderId IN :orderIds")
+    int updateStatuses(@Param("orderIds") Collection<Integer> orderIds,
+            @Param("orderStatus") OrderStatus orderStatus, @Param("paymentStatus") PaymentStatus paymentStatus);
+
+    // [orderId, razorpayOrderId, paymentStatus, totalAmount, orderDate] of online orders placed before :to,
+    // the page after (afterDate, afterId) in (orderDate, orderId) order
+    @Query("SELECT o.orderId, o.razorpayOrderId, o.paymentStatus, o.totalAmount, o.orderDate FROM Order o " +
+            "WHERE o.razorpayOrderId IS NOT NULL AND o.orderDate < :to " +
+            "AND (o.orderDate > :afterDate OR (o.orderDate = :afterDate AND o.orderId > :afterId)) " +
+            "ORDER BY o.orderDate, o.orderId")
+    List<Object[]> findGatewayOrdersAfter(@Param("afterDate") LocalDateTime afterDate, @Param("afterId") Integer afterId,
+            @Param("to") LocalDateTime to, Pageable pageable);
+
+    // which of these gateway order ids some order carries
+    @Query("SELECT o.razorpayOrderId FROM Order o WHERE o.razorpayOrderId IN :razorpayOrderIds")
+    List<String> findRazorpayOrderIdsIn(@Param("razorpayOrderIds") Collection<String> razorpayOrderIds);
+
+    // [day, order count, total amount] of a set of orders, by the day they were placed
+    @Query(value = "SELECT DATE(o.order_date), COUNT(*), COALESCE(SUM(o.total_amount), 0) FROM orders o " +
+            "WHERE o.order_id IN (:orderIds) GROUP BY DATE(o.order_date)",
+            nativeQuery = true)
+    List<Object[]> sumAmountsByOrderDay(@Param("orderIds") Collection<Integer> orderIds);
 }
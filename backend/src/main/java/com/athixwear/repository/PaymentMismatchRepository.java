@@ -0,0 +1,20 @@
+package com.athixwear.repository;
+
+import java.time.LocalDate;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.athixwear.entity.PaymentMismatch;
+
+@Repository
+public interface PaymentMismatchRepository extends JpaRepository<PaymentMismatch, Long> {
+	
+	// clears an earlier run for the same day, so reconciling a day twice does not flag its orders twice
+	@Modifying
+	@Query("DELETE FROM PaymentMismatch m WHERE m.businessDate = :businessDate")
+	int deleteByBusinessDate(@Param("businessDate") LocalDate businessDate);
+}
@@ -0,0 +1,34 @@
+package com.athixwear.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.athixwear.entity.PaymentWebhookEvent;
+import com.athixwear.entity.WebhookEventStatus;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface PaymentWebhookEventRepository extends JpaRepository<PaymentWebhookEvent, Long> {
+	
+	// events still in a status, locked so two workers never apply the same one
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT e FROM PaymentWebhookEvent e WHERE e.webhookEventId IN :ids AND e.status = :status " +
+			"ORDER BY e.webhookEventId")
+	List<PaymentWebhookEvent> lockByIdsAndStatus(@Param("ids") Collection<Long> ids,
+			@Param("status") WebhookEventStatus status);
+	
+	// oldest events left in a status since before a cut-off, over the (status, received_at) index
+	@Query("SELECT e.webhookEventId FROM PaymentWebhookEvent e " +
+			"WHERE e.status = :status AND e.receivedAt < :before ORDER BY e.receivedAt")
+	List<Long> findIdsByStatusBefore(@Param("status") WebhookEventStatus status,
+			@Param("before") LocalDateTime before, Pageable pageable);
+}
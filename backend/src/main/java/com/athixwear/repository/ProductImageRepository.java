@@ -1,8 +1,11 @@
 package com.athixwear.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.athixwear.entity.ProductImage;
@@ -11,5 +14,12 @@ import com.athixwear.entity.ProductImage;
 public interface ProductImageRepository extends JpaRepository<ProductImage, Integer>{
 	
 	List<ProductImage> findByProduct_ProductId(Integer productId);
+	
+	// [productId, imageUrl] rows for a batch of products, oldest image first
+	@Query("SELECT i.product.productId, i.imageUrl FROM ProductImage i " +
+			"WHERE i.product.productId IN :productIds ORDER BY i.imageId")
+	List<Object[]> findImageUrlsByProductIds(@Param("productIds") Collection<Integer> productIds);
+	
+	@Query("SELECT i.product.productId, i.imageUrl FROM ProductImage i ORDER BY i.imageId")
+	List<Object[]> findAllImageUrls();
 }
-
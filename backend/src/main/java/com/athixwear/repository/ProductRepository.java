@@ -1,14 +1,21 @@
 package com.athixwear.repository;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.athixwear.entity.Category;
 import com.athixwear.entity.Product;
 
+import jakarta.persistence.QueryHint;
+
 
 
 @Repository
@@ -16,5 +23,66 @@ public interface ProductRepository extends JpaRepository<Product, Integer>{
 	
 	List<Product> findByCategory(Category category);
 	  long count();
+	
+	// catalog listing: products and their category in one query
+	@Query("SELECT p FROM Product p LEFT JOIN FETCH p.category ORDER BY p.productId")
+	List<Product> findAllWithCategory();
+	
+	@Query("SELECT p FROM Product p LEFT JOIN FETCH p.category c WHERE c = :category ORDER BY p.productId")
+	List<Product> findByCategoryWithCategory(@Param("category") Category category);
+	
+	// [productId, stock] for every product; a sharded product's stock is the sum of its slots
+	@Query("SELECT p.productId, p.stock + COALESCE(SUM(s.stock), 0) " +
+			"FROM Product p LEFT JOIN ProductStockSlot s ON s.product = p " +
+			"GROUP BY p.productId, p.stock")
+	List<Object[]> findAllStockLevels();
+	
+	// keyset pagination - first page, ordering comes from the pageable's sort
+	@Query("SELECT p FROM Product p LEFT JOIN FETCH p.category c " +
+			"WHERE (:categoryId IS NULL OR c.categoryId = :categoryId)")
+	List<Product> findPageStart(@Param("categoryId") Integer categoryId, Pageable pageable);
+	
+	// keyset pagination - pages after a cursor, seek on (sort key, productId)
+	@Query("SELECT p FROM Product p LEFT JOIN FETCH p.category c " +
+			"WHERE (:categoryId IS NULL OR c.categoryId = :categoryId) " +
+			"AND p.productId < :lastId " +
+			"ORDER BY p.productId DESC")
+	List<Product> findNewestAfter(@Param("categoryId") Integer categoryId,
+			@Param("lastId") int lastId, Pageable pageable);
+	
+	@Query("SELECT p FROM Product p LEFT JOIN FETCH p.category c " +
+			"WHERE (:categoryId IS NULL OR c.categoryId = :categoryId) " +
+			"AND (p.price > :lastPrice OR (p.price = :lastPrice AND p.productId > :lastId)) " +
+			"ORDER BY p.price ASC, p.productId ASC")
+	List<Product> findPriceAscAfter(@Param("categoryId") Integer categoryId,
+			@Param("lastPrice") BigDecimal lastPrice, @Param("lastId") int lastId, Pageable pageable);
+	
+	@Query("SELECT p FROM Product p LEFT JOIN FETCH p.category c " +
+			"WHERE (:categoryId IS NULL OR c.categoryId = :categoryId) " +
+			"AND (p.price < :lastPrice OR (p.price = :lastPrice AND p.productId < :lastId)) " +
+			"ORDER BY p.price DESC, p.productId DESC")
+	List<Product> findPriceDescAfter(@Param("categoryId") Integer categoryId,
+			@Param("lastPrice") BigDecimal lastPrice, @Param("lastId") int lastId, Pageable pageable);
+	
+	@Query("SELECT p FROM Product p LEFT JOIN FETCH p.category c " +
+			"WHERE (:categoryId IS NULL OR c.categoryId = :categoryId) " +
+			"AND (p.name > :lastName OR (p.name = :lastName AND p.productId > :lastId)) " +
+			"ORDER BY p.name ASC, p.productId ASC")
+	List<Product> findNameAfter(@Param("categoryId") Integer categoryId,
+			@Param("lastName") String lastName, @Param("lastId") int lastId, Pageable pageable);
+	
+	// one row per product image (or one for a product without images), grouped by product;
+	// stock counts a sharded product's slots, as findAllStockLevels does.
+	// A fetch size of Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of buffering
+	// the whole result; the stream must be consumed and closed inside a transaction.
+	@QueryHints({
+		@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE),
+		@QueryHint(name = "org.hibernate.readOnly", value = "true")
+	})
+	@Query("SELECT p.productId, p.name, p.description, p.price, " +
+			"p.stock + COALESCE((SELECT SUM(s.stock) FROM ProductStockSlot s WHERE s.product = p), 0), " +
+			"p.status, c.categoryName, i.imageUrl " +
+			"FROM Product p LEFT JOIN p.category c LEFT JOIN ProductImage i ON i.product = p " +
+			"ORDER BY p.productId, i.imageId")
+	Stream<Object[]> streamCatalogExport();
 }
-
@@ -0,0 +1,46 @@
+package com.athixwear.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.athixwear.entity.ProductSalesRank;
+import com.athixwear.entity.SalesWindow;
+
+// reads of the best-seller ranks; ProductSalesRankingService replaces them window by window
+@Repository
+public interface ProductSalesRankRepository extends JpaRepository<ProductSalesRank, Long> {
+	
+	// [rank, productId, name, units, revenue, refreshedAt] for ranks fromRank..toRank; ranks have no gaps,
+	// so a page is an index range and costs the same wherever it starts
+	@Query("SELECT r.rankNo, p.productId, p.name, r.units, r.revenue, r.refreshedAt " +
+			"FROM ProductSalesRank r JOIN r.product p " +
+			"WHERE r.salesWindow = :window AND r.rankNo BETWEEN :fromRank AND :toRank " +
+			"ORDER BY r.rankNo")
+	List<Object[]> findRanks(@Param("window") SalesWindow window,
+			@Param("fromRank") int fromRank, @Param("toRank") int toRank);
+	
+	// same columns, ranked within one category
+	@Query("SELECT r.categoryRankNo, p.productId, p.name, r.units, r.revenue, r.refreshedAt " +
+			"FROM ProductSalesRank r JOIN r.product p " +
+			"WHERE r.salesWindow = :window AND r.categoryId = :categoryId " +
+			"AND r.categoryRankNo BETWEEN :fromRank AND :toRank " +
+			"ORDER BY r.categoryRankNo")
+	List<Object[]> findCategoryRanks(@Param("window") SalesWindow window, @Param("categoryId") Integer categoryId,
+			@Param("fromRank") int fromRank, @Param("toRank") int toRank);
+	
+	// [productId, units] of every product ranked in a window
+	@Query("SELECT r.product.productId, r.units FROM ProductSalesRank r WHERE r.salesWindow = :window")
+	List<Object[]> findUnitsByProduct(@Param("window") SalesWindow window);
+	
+	// the number of ranked products is the last rank
+	@Query("SELECT COALESCE(MAX(r.rankNo), 0) FROM ProductSalesRank r WHERE r.salesWindow = :window")
+	int countRanks(@Param("window") SalesWindow window);
+	
+	@Query("SELECT COALESCE(MAX(r.categoryRankNo), 0) FROM ProductSalesRank r " +
+			"WHERE r.salesWindow = :window AND r.categoryId = :categoryId")
+	int countCategoryRanks(@Param("window") SalesWindow window, @Param("categoryId") Integer categoryId);
+}
@@ -0,0 +1,47 @@
+package com.athixwear.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.athixwear.entity.ReservationStatus;
+import com.athixwear.entity.StockReservation;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+	
+	Optional<StockReservation> findByOrderOrderId(Integer orderId);
+	
+	// [reservationId, expiresAt] of every hold in a status, served by the (status, expires_at) index
+	@Query("SELECT r.reservationId, r.expiresAt FROM StockReservation r WHERE r.status = :status ORDER BY r.expiresAt")
+	List<Object[]> findSchedule(@Param("status") ReservationStatus status);
+	
+	// [reservationId, orderId] of the holds among ids still in a status and past expiry; not locked,
+	// the caller locks their orders first and checks again
+	@Query("SELECT r.reservationId, r.order.orderId FROM StockReservation r " +
+			"WHERE r.reservationId IN :ids AND r.status = :status AND r.expiresAt <= :now")
+	List<Object[]> findExpired(@Param("ids") Collection<Long> ids,
+			@Param("status") ReservationStatus status, @Param("now") LocalDateTime now);
+	
+	// conditional state change; returns 0 when the hold is no longer in the expected state
+	@Modifying
+	@Query("UPDATE StockReservation r SET r.status = :to WHERE r.order.orderId = :orderId AND r.status = :from")
+	int transition(@Param("orderId") Integer orderId,
+			@Param("from") ReservationStatus from, @Param("to") ReservationStatus to);
+	
+	// [reservationId, orderId, status] of the holds of a set of orders
+	@Query("SELECT r.reservationId, r.order.orderId, r.status FROM StockReservation r WHERE r.order.orderId IN :orderIds")
+	List<Object[]> findStatusByOrderIds(@Param("orderIds") Collection<Integer> orderIds);
+	
+	@Modifying
+	@Query("UPDATE StockReservation r SET r.status = :to WHERE r.reservationId IN :ids AND r.status = :from")
+	int transitionAll(@Param("ids") Collection<Long> ids,
+			@Param("from") ReservationStatus from, @Param("to") ReservationStatus to);
+}
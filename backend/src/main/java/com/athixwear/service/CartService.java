@@ -20,6 +20,8 @@ import com.athixwear.repository.CartItemRepository;
 import com.athixwear.repository.CartRepository;
 import com.athixwear.repository.ProductImageRepository;
 import com.athixwear.repository.ProductRepository;
+import com.athixwear.service.inventory.InventoryService;
+import com.athixwear.service.trending.TrendingService;
 
 @Service
 public class CartService {
@@ -31,15 +33,20 @@ public class CartService {
     private final ProductRepository productRepository;
     private final UserService userService;
     private final ProductImageRepository productImageRepository;
+    private final TrendingService trendingService;
+    private final InventoryService inventoryService;
 
     public CartService(CartRepository cartRepository, CartItemRepository cartItemRepository,
             ProductRepository productRepository, UserService userService,
-            ProductImageRepository productImageRepository) {
+            ProductImageRepository productImageRepository, TrendingService trendingService,
+            InventoryService inventoryService) {
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
         this.productRepository = productRepository;
         this.userService = userService;
         this.productImageRepository = productImageRepository;
+        this.trendingService = trendingService;
+        this.inventoryService = inventoryService;
     }
 
     // Get current authenticated user
@@ -72,7 +79,7 @@ public class CartService {
         int currentQuantity = existingItem.map(CartItem::getQuantity).orElse(0);
         int requestedQuantity = request.getQuantity() != null ? request.getQuantity() : 1;
         
-        if (currentQuantity + requestedQuantity > product.getStock()) {
+        if (currentQuantity + requestedQuantity > inventoryService.availableStock(product)) {
             throw new InvalidCredentialsException("Requested quantity exceeds available stock");
         }
         
@@ -90,6 +97,9 @@ public class CartService {
             newItem.setQuantity(request.getQuantity());
             cartItemRepository.save(newItem);
         }
+        
+        // in-memory only, no extra write on the cart path
+        trendingService.recordAddToCart(product.getProductId(), requestedQuantity);
     }
     
     // get all cart items for user
@@ -142,7 +152,7 @@ public class CartService {
             return;
         }
 
-        if (quantity > item.getProduct().getStock()) {
+        if (quantity > inventoryService.availableStock(item.getProduct())) {
             throw new InvalidCredentialsException(
                     "Requested quantity exceeds available stock");
         }
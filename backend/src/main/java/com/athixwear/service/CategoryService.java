@@ -4,11 +4,13 @@ import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import com.athixwear.dto.CategoryRequest;
 import com.athixwear.dto.CategoryResponse;
 import com.athixwear.entity.Category;
+import com.athixwear.event.CatalogChangedEvent;
 import com.athixwear.exception.DuplicateResourceException;
 import com.athixwear.exception.ResourceNotFoundException;
 import com.athixwear.repository.CategoryRepository;
@@ -17,10 +19,12 @@ import com.athixwear.repository.CategoryRepository;
 public class CategoryService {
 	
 	private final CategoryRepository categoryRepository;
+	private final ApplicationEventPublisher eventPublisher;
 
-	public CategoryService(CategoryRepository categoryRepository) {
+	public CategoryService(CategoryRepository categoryRepository, ApplicationEventPublisher eventPublisher) {
 		super();
 		this.categoryRepository = categoryRepository;
+		this.eventPublisher = eventPublisher;
 	}
 	
 	private CategoryResponse mapToResponse(Category category) {
@@ -43,6 +47,7 @@ public class CategoryService {
 		category.setDescription(request.getDescription());
 		
 		Category savedCategory = categoryRepository.save(category);
+		eventPublisher.publishEvent(CatalogChangedEvent.all());
         return mapToResponse(savedCategory);
 	}
 	
@@ -85,6 +90,7 @@ public class CategoryService {
     	category.setDescription(request.getDescription());
     	
     	Category updateCategory = categoryRepository.save(category);
+    	eventPublisher.publishEvent(CatalogChangedEvent.all());
     	return mapToResponse(updateCategory);
     }
     
@@ -94,6 +100,7 @@ public class CategoryService {
     			.orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + id));
     	
     	categoryRepository.delete(category);
+    	eventPublisher.publishEvent(CatalogChangedEvent.all());
     }
     
     // Search Categories by keyword
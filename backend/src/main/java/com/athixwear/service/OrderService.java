@@ -2,15 +2,25 @@ package com.athixwear.service;
 
 import com.athixwear.dto.*;
 import com.athixwear.entity.*;
+import com.athixwear.event.OrderPlacedEvent;
 import com.athixwear.exception.InvalidCredentialsException;
 import com.athixwear.exception.ResourceNotFoundException;
 import com.athixwear.repository.*;
+import com.athixwear.service.analytics.SalesRollupService;
+import com.athixwear.service.inventory.InventoryService;
+import com.athixwear.service.inventory.ReservationService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,8 +35,11 @@ public class OrderService {
     private final OrderItemRepository orderItemRepository;
     private final AddressRepository addressRepository;
     private final CartItemRepository cartItemRepository;
-    private final ProductRepository productRepository;
     private final ProductImageRepository productImageRepository;
+    private final InventoryService inventoryService;
+    private final ReservationService reservationService;
+    private final SalesRollupService salesRollupService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public OrderService(
             CartService cartService,
@@ -35,8 +48,11 @@ public class OrderService {
             OrderItemRepository orderItemRepository,
             AddressRepository addressRepository,
             CartItemRepository cartItemRepository,
-            ProductRepository productRepository,
-            ProductImageRepository productImageRepository
+            ProductImageRepository productImageRepository,
+            InventoryService inventoryService,
+            ReservationService reservationService,
+            SalesRollupService salesRollupService,
+            ApplicationEventPublisher eventPublisher
     ) {
         this.cartService = cartService;
         this.userService = userService;
@@ -44,8 +60,11 @@ public class OrderService {
         this.orderItemRepository = orderItemRepository;
         this.addressRepository = addressRepository;
         this.cartItemRepository = cartItemRepository;
-        this.productRepository = productRepository;
         this.productImageRepository = productImageRepository;
+        this.inventoryService = inventoryService;
+        this.reservationService = reservationService;
+        this.salesRollupService = salesRollupService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -54,7 +73,7 @@ public class OrderService {
         User user = userService.getCurrentUser();
 
         Cart cart = cartService.getOrCreateCart(user);
-        List<CartItem> cartItems = cartItemRepository.findByCart(cart);
+        List<CartItem> cartItems = cartItemRepository.findByCartWithProducts(cart);
 
         if (cartItems.isEmpty()) {
             throw new InvalidCredentialsException("Cart is empty");
@@ -95,11 +114,14 @@ public class OrderService {
         Order savedOrder = orderRepository.save(order);
 
         // Create order items & update stock
+        List<OrderItem> orderItems = new ArrayList<>(cartItems.size());
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        Set<Integer> shardedProductIds = new HashSet<>();
         for (CartItem cartItem : cartItems) {
 
             Product product = cartItem.getProduct();
 
-            if (cartItem.getQuantity() > product.getStock()) {
+            if (cartItem.getQuantity() > inventoryService.availableStock(product)) {
                 throw new InvalidCredentialsException(
                         "Insufficient stock for product: " + product.getName()
                 );
@@ -115,15 +137,34 @@ public class OrderService {
                             .multiply(BigDecimal.valueOf(cartItem.getQuantity()))
             );
 
-            orderItemRepository.save(orderItem);
+            orderItems.add(orderItem);
 
-            // Update product stock
-            product.setStock(product.getStock() - cartItem.getQuantity());
-            productRepository.save(product);
+            quantities.merge(product.getProductId(), cartItem.getQuantity(), Integer::sum);
+            if (product.isStockSharded()) {
+                shardedProductIds.add(product.getProductId());
+            }
         }
 
-        // Clear cart after successful order
-        cartService.clearCart();
+        // Order and items are inserted as JDBC batches when the transaction flushes
+        orderItemRepository.saveAll(orderItems);
+
+        // Clear cart after successful order: one delete for all lines
+        cartItemRepository.deleteAllInBatch(cartItems);
+
+        // Update product stock: one conditional update per product, all in one batch.
+        // Done last so the row locks it takes are held only until the commit right after.
+        inventoryService.deduct(quantities, shardedProductIds);
+
+        // Online payments only hold the stock until the payment is verified or the hold expires
+        if ("RAZORPAY".equalsIgnoreCase(savedOrder.getPaymentMethod())) {
+            reservationService.hold(savedOrder);
+        }
+
+        // Dashboard rollups move in the same transaction, after the stock locks are taken
+        salesRollupService.orderPlaced(savedOrder, orderItems);
+
+        // picked up after commit by in-memory statistics (co-purchases, trending)
+        eventPublisher.publishEvent(new OrderPlacedEvent(savedOrder.getOrderId(), quantities));
 
         CheckoutResponse response = new CheckoutResponse();
         response.setOrderId(savedOrder.getOrderId());
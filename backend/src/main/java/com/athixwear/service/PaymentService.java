@@ -1,16 +1,12 @@
 package com.athixwear.service;
 
 import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-
-import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.athixwear.dto.PaymentOrderRequest;
 import com.athixwear.dto.PaymentOrderResponse;
@@ -21,67 +17,93 @@ import com.athixwear.entity.OrderStatus;
 import com.athixwear.entity.PaymentStatus;
 import com.athixwear.entity.User;
 import com.athixwear.exception.InvalidCredentialsException;
-import com.athixwear.exception.PaymentGatewayException;
 import com.athixwear.exception.ResourceNotFoundException;
 import com.athixwear.repository.OrderRepository;
-import com.razorpay.RazorpayClient;
+import com.athixwear.service.payment.OrderPaymentTransitions;
+import com.athixwear.service.payment.HmacSha256Verifier;
+import com.athixwear.service.payment.RazorpayGateway;
 
 @Service
 public class PaymentService {
 
     private final OrderRepository orderRepository;
-    private final RazorpayClient razorpayClient;
+    private final RazorpayGateway razorpayGateway;
     private final UserService userService;
-
-    public PaymentService(OrderRepository orderRepository, RazorpayClient razorpayClient, UserService userService) {
+    private final OrderPaymentTransitions paymentTransitions;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readOnlyTransaction;
+    private final HmacSha256Verifier signatureVerifier;
+
+    public PaymentService(OrderRepository orderRepository, RazorpayGateway razorpayGateway, UserService userService,
+            OrderPaymentTransitions paymentTransitions, PlatformTransactionManager transactionManager,
+            @Value("${razorpay.key-secret}") String razorpayKeySecret) {
         this.orderRepository = orderRepository;
-        this.razorpayClient = razorpayClient;
+        this.razorpayGateway = razorpayGateway;
         this.userService = userService;
+        this.paymentTransitions = paymentTransitions;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.signatureVerifier = new HmacSha256Verifier(razorpayKeySecret);
     }
 
     @Value("${razorpay.key-id}")
     private String razorpayKeyId;
 
-    @Value("${razorpay.key-secret}")
-    private String razorpayKeySecret;
-
-    @Transactional
+    // Three phases so no pooled connection is held while the gateway is called:
+    // read and validate, call Razorpay, then record the gateway order id
     public PaymentOrderResponse createPaymentOrder(PaymentOrderRequest request) {
-        User user = userService.getCurrentUser();
+        PaymentOrderResponse response = readOnlyTransaction.execute(status -> {
+            User user = userService.getCurrentUser();
+
+            Order order = orderRepository.findByOrderIdAndUserUserId(request.getOrderId(), user.getUserId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+            validatePayable(order);
+
+            PaymentOrderResponse pending = new PaymentOrderResponse();
+            pending.setKeyId(razorpayKeyId);
+            pending.setInternalOrderId(order.getOrderId());
+            pending.setAmount(order.getTotalAmount()
+                    .multiply(BigDecimal.valueOf(100))
+                    .longValueExact());
+            pending.setCurrency("INR");
+            // the gateway order from an earlier attempt, if any
+            pending.setRazorpayOrderId(order.getRazorpayOrderId());
+            return pending;
+        });
+
+        String razorpayOrderId = razorpayGateway.createOrder(
+                response.getAmount(), response.getCurrency(), "order_" + response.getInternalOrderId());
+
+        String current = transaction.execute(status -> {
+            // the order may have changed while the gateway was called; locked so concurrent attempts settle one by one
+            User user = userService.getCurrentUser();
+            Order order = orderRepository.lockByOrderIdAndUserId(response.getInternalOrderId(), user.getUserId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+            validatePayable(order);
+
+            // another attempt stored its gateway order meanwhile and the customer may already be paying it:
+            // keep that one, and leave the order just created unused
+            if (order.getRazorpayOrderId() != null
+                    && !order.getRazorpayOrderId().equals(response.getRazorpayOrderId())) {
+                return order.getRazorpayOrderId();
+            }
+            order.setRazorpayOrderId(razorpayOrderId);
+            orderRepository.save(order);
+            return razorpayOrderId;
+        });
 
-        Order order = orderRepository.findByOrderIdAndUserUserId(request.getOrderId(), user.getUserId())
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        response.setRazorpayOrderId(current);
+        return response;
+    }
 
+    private void validatePayable(Order order) {
         if (order.getPaymentStatus() == PaymentStatus.PAID) {
             throw new InvalidCredentialsException("Order already paid");
         }
 
-        long amountInPaise = order.getTotalAmount()
-                .multiply(BigDecimal.valueOf(100))
-                .longValueExact();
-
-        JSONObject options = new JSONObject();
-        options.put("amount", amountInPaise);
-        options.put("currency", "INR");
-        options.put("receipt", "order_" + order.getOrderId());
-        options.put("payment_capture", 1);
-
-        try {
-            com.razorpay.Order razorpayOrder = razorpayClient.orders.create(options);
-            String razorpayOrderId = razorpayOrder.get("id");
-
-            order.setRazorpayOrderId(razorpayOrderId);
-            orderRepository.save(order);
-
-            PaymentOrderResponse response = new PaymentOrderResponse();
-            response.setKeyId(razorpayKeyId);
-            response.setInternalOrderId(order.getOrderId());
-            response.setRazorpayOrderId(razorpayOrderId);
-            response.setAmount(amountInPaise);
-            response.setCurrency("INR");
-            return response;
-        } catch (Exception e) {
-            throw new PaymentGatewayException("Failed to create Razorpay order", e);
+        if (order.getOrderStatus() == OrderStatus.CANCELLED) {
+            throw new InvalidCredentialsException("Order has been cancelled");
         }
     }
 
@@ -89,7 +111,8 @@ public class PaymentService {
     public PaymentVerifyResponse verifyPayment(PaymentVerifyRequest request) {
         User user = userService.getCurrentUser();
 
-        Order order = orderRepository.findByOrderIdAndUserUserId(request.getInternalOrderId(), user.getUserId())
+        // locked until commit, so the sweeper and webhooks see this verification's outcome, not a stale copy
+        Order order = orderRepository.lockByOrderIdAndUserId(request.getInternalOrderId(), user.getUserId())
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
         if (order.getPaymentStatus() == PaymentStatus.PAID) {
@@ -106,54 +129,23 @@ public class PaymentService {
             throw new InvalidCredentialsException("Invalid Razorpay order id");
         }
 
-        String payload = request.getRazorpayOrderId() + "|" + request.getRazorpayPaymentId();
-        String expectedSignature = generateHmacSha256(payload, razorpayKeySecret);
-
-        if (!constantTimeEquals(expectedSignature, request.getRazorpaySignature())) {
-            order.setPaymentStatus(PaymentStatus.FAILED);
-            orderRepository.save(order);
+        if (!signatureVerifier.verify(request.getRazorpayOrderId(), '|', request.getRazorpayPaymentId(),
+                request.getRazorpaySignature())) {
+            paymentTransitions.markFailed(order);
             throw new InvalidCredentialsException("Payment signature verification failed");
         }
 
-        order.setRazorpayPaymentId(request.getRazorpayPaymentId());
-        order.setRazorpaySignature(request.getRazorpaySignature());
-        order.setPaymentStatus(PaymentStatus.PAID);
-        order.setOrderStatus(OrderStatus.CONFIRMED);
-        orderRepository.save(order);
+        boolean stockSecured = paymentTransitions.markPaid(
+                order, request.getRazorpayPaymentId(), request.getRazorpaySignature());
 
         PaymentVerifyResponse response = new PaymentVerifyResponse();
         response.setVerified(true);
-        response.setMessage("Payment verified successfully");
+        response.setMessage(stockSecured
+                ? "Payment verified successfully"
+                : "Payment received but the items are no longer in stock; the order was cancelled and will be refunded");
         response.setOrderId(order.getOrderId());
         response.setPaymentStatus(order.getPaymentStatus());
         response.setOrderStatus(order.getOrderStatus());
         return response;
     }
-
-    private String generateHmacSha256(String data, String secret) {
-        try {
-            Mac mac = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKeySpec = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-            mac.init(secretKeySpec);
-            byte[] hash = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            return toHex(hash);
-        } catch (Exception e) {
-            throw new PaymentGatewayException("Failed to compute signature", e);
-        }
-    }
-
-    private String toHex(byte[] data) {
-        StringBuilder builder = new StringBuilder(data.length * 2);
-        for (byte b : data) {
-            builder.append(String.format("%02x", b));
-        }
-        return builder.toString();
-    }
-
-    private boolean constantTimeEquals(String a, String b) {
-        if (a == null || b == null) {
-            return false;
-        }
-        return MessageDigest.isEqual(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
-    }
 }
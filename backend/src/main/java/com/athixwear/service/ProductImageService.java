@@ -3,11 +3,13 @@ package com.athixwear.service;
 import java.util.Iterator;
 import java.util.List;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.athixwear.entity.Product;
 import com.athixwear.entity.ProductImage;
+import com.athixwear.event.CatalogChangedEvent;
 import com.athixwear.exception.ResourceNotFoundException;
 import com.athixwear.repository.ProductImageRepository;
 import com.athixwear.repository.ProductRepository;
@@ -19,15 +21,18 @@ public class ProductImageService {
 	private final ImageUploadService uploadService;
 	private final ProductImageRepository imageRepository;
 	private final ProductRepository productRepository;
+	private final ApplicationEventPublisher eventPublisher;
 	
 	public ProductImageService(
 			ImageUploadService uploadService, 
 			ProductImageRepository imageRepository,
-			ProductRepository productRepository) {
+			ProductRepository productRepository,
+			ApplicationEventPublisher eventPublisher) {
 		super();
 		this.uploadService = uploadService;
 		this.imageRepository = imageRepository;
 		this.productRepository = productRepository;
+		this.eventPublisher = eventPublisher;
 	}
 	
 	public void uploadProductImages(
@@ -47,6 +52,8 @@ public class ProductImageService {
 			
 			imageRepository.save(image);
 		}
+		
+		eventPublisher.publishEvent(CatalogChangedEvent.product(product.getProductId()));
 	}
 
 }
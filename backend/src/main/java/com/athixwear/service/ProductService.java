@@ -2,79 +2,333 @@ package com.athixwear.service;
 
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.athixwear.dto.ProductPageResponse;
 import com.athixwear.dto.ProductResponse;
-import com.athixwear.entity.Category;
+import com.athixwear.dto.SuggestionResponse;
 import com.athixwear.entity.Product;
-import com.athixwear.entity.ProductImage;
 import com.athixwear.exception.ResourceNotFoundException;
 import com.athixwear.repository.CategoryRepository;
 import com.athixwear.repository.ProductImageRepository;
 import com.athixwear.repository.ProductRepository;
+import com.athixwear.service.catalog.CatalogFacetIndex;
+import com.athixwear.service.catalog.CatalogFacetService;
+import com.athixwear.service.catalog.CatalogProduct;
+import com.athixwear.service.catalog.CatalogSnapshot;
+import com.athixwear.service.catalog.CatalogSnapshotService;
+import com.athixwear.service.catalog.ProductCursor;
+import com.athixwear.service.catalog.ProductFilter;
+import com.athixwear.service.catalog.ProductJsonCache;
+import com.athixwear.service.catalog.ProductSearchService;
+import com.athixwear.service.catalog.ProductSort;
+import com.athixwear.service.catalog.ProductSuggestIndex;
+import com.athixwear.service.catalog.ProductSuggestService;
+import com.athixwear.service.catalog.StockOverlay;
+import com.athixwear.service.recommendation.RecommendationService;
+import com.athixwear.service.trending.TrendingService;
+import com.athixwear.service.trending.TrendingWindow;
 
 @Service
 public class ProductService {
 	
+	private static final int DEFAULT_PAGE_SIZE = 24;
+	private static final int MAX_PAGE_SIZE = 100;
+	private static final int DEFAULT_SEARCH_LIMIT = 20;
+	private static final int DEFAULT_SUGGEST_LIMIT = 8;
+	private static final int DEFAULT_RELATED_LIMIT = 8;
+	private static final int DEFAULT_TRENDING_LIMIT = 12;
+	
 	private final ProductRepository productRepository;
 	private final ProductImageRepository productImageRepository;
 	private final CategoryRepository categoryRepository;
+	private final CatalogSnapshotService catalogSnapshotService;
+	private final StockOverlay stockOverlay;
+	private final ProductSearchService productSearchService;
+	private final CatalogFacetService catalogFacetService;
+	private final ProductSuggestService productSuggestService;
+	private final ProductJsonCache productJsonCache;
+	private final RecommendationService recommendationService;
+	private final TrendingService trendingService;
 	
 	public ProductService(
 			ProductRepository productRepository, 
 			ProductImageRepository productImageRepository,
-			CategoryRepository categoryRepository
+			CategoryRepository categoryRepository,
+			CatalogSnapshotService catalogSnapshotService,
+			StockOverlay stockOverlay,
+			ProductSearchService productSearchService,
+			CatalogFacetService catalogFacetService,
+			ProductSuggestService productSuggestService,
+			ProductJsonCache productJsonCache,
+			RecommendationService recommendationService,
+			TrendingService trendingService
 	) {
 		super();
 		this.productRepository = productRepository;
 		this.productImageRepository = productImageRepository;
 		this.categoryRepository = categoryRepository;
+		this.catalogSnapshotService = catalogSnapshotService;
+		this.stockOverlay = stockOverlay;
+		this.productSearchService = productSearchService;
+		this.catalogFacetService = catalogFacetService;
+		this.productSuggestService = productSuggestService;
+		this.productJsonCache = productJsonCache;
+		this.recommendationService = recommendationService;
+		this.trendingService = trendingService;
 	}
 	
+	// served from the in-memory catalog snapshot, only stock comes from the overlay
 	public ProductResponse getProductById(Integer productId) {
-		Product product = productRepository.findById(productId)
-				.orElseThrow(() -> new ResourceNotFoundException("Product not found with id"));
-		return mapToResponse(product);
+		CatalogProduct product = catalogSnapshotService.current().get(productId);
+		if (product == null) {
+			throw new ResourceNotFoundException("Product not found with id");
+		}
+		return toResponse(product);
+	}
+	
+	// same body as getProductById, already serialized
+	public ProductJsonCache.Rendered getProductDetail(Integer productId) {
+		CatalogProduct product = catalogSnapshotService.current().get(productId);
+		if (product == null) {
+			throw new ResourceNotFoundException("Product not found with id");
+		}
+		return productJsonCache.get(product);
 	}
 	
 	public List<ProductResponse> getProducts(String categoryName) {
 		
-		List<Product> products;
+		CatalogSnapshot snapshot = catalogSnapshotService.current();
+		List<CatalogProduct> products;
 		
 	    if (categoryName != null && !categoryName.isEmpty()) {
 
-	        Category category = categoryRepository.findByCategoryName(categoryName)
-	                .orElseThrow(() -> new ResourceNotFoundException("Category not found"));
+	        if (!snapshot.hasCategory(categoryName)) {
+	        	throw new ResourceNotFoundException("Category not found");
+	        }
 
-	        products = productRepository.findByCategory(category);
+	        products = snapshot.getProductsInCategory(categoryName);
 	    } else {
-	    	products = productRepository.findAll();
+	    	products = snapshot.getProducts();
 	    }
 	    
 	    return products.stream()
-	    		.map(this::mapToResponse)
+	    		.map(this::toResponse)
 	    		.toList();
 	}
-
 	
-	private ProductResponse mapToResponse(Product product) {
+	public List<ProductResponse> searchProducts(String query, Integer limitParam) {
+		
+		if (query == null || query.isBlank()) {
+			return List.of();
+		}
+		int limit = limitParam == null ? DEFAULT_SEARCH_LIMIT : Math.max(1, Math.min(limitParam, MAX_PAGE_SIZE));
+		
+		// the index is filled from the snapshot, so make sure that has been loaded
+		CatalogSnapshot snapshot = catalogSnapshotService.current();
+		
+		List<ProductResponse> results = new ArrayList<>();
+		for (Integer productId : productSearchService.search(query, limit)) {
+			CatalogProduct product = snapshot.get(productId);
+			if (product != null) {
+				results.add(toResponse(product));
+			}
+		}
+		return results;
+	}
+	
+	// "frequently bought together", precomputed; products no longer in the catalog are skipped
+	public List<ProductResponse> getRelatedProducts(Integer productId, Integer limitParam) {
+		
+		CatalogSnapshot snapshot = catalogSnapshotService.current();
+		if (snapshot.get(productId) == null) {
+			throw new ResourceNotFoundException("Product not found with id");
+		}
+		int limit = limitParam == null ? DEFAULT_RELATED_LIMIT : Math.max(1, Math.min(limitParam, MAX_PAGE_SIZE));
+		
+		List<ProductResponse> results = new ArrayList<>();
+		for (int relatedId : recommendationService.related(productId)) {
+			if (results.size() == limit) {
+				break;
+			}
+			CatalogProduct related = snapshot.get(relatedId);
+			if (related != null) {
+				results.add(toResponse(related));
+			}
+		}
+		return results;
+	}
+	
+	public List<ProductResponse> getTrendingProducts(String windowParam, Integer limitParam) {
+		
+		TrendingWindow window = TrendingWindow.fromParam(windowParam);
+		int limit = limitParam == null ? DEFAULT_TRENDING_LIMIT : Math.max(1, Math.min(limitParam, MAX_PAGE_SIZE));
+		CatalogSnapshot snapshot = catalogSnapshotService.current();
+		
+		List<ProductResponse> results = new ArrayList<>();
+		for (Integer productId : trendingService.trending(window)) {
+			if (results.size() == limit) {
+				break;
+			}
+			CatalogProduct product = snapshot.get(productId);
+			if (product != null) {
+				results.add(toResponse(product));
+			}
+		}
+		return results;
+	}
+	
+	public List<SuggestionResponse> suggest(String prefix, Integer limitParam) {
+		
+		if (prefix == null || prefix.isBlank()) {
+			return List.of();
+		}
+		int limit = limitParam == null ? DEFAULT_SUGGEST_LIMIT : Math.max(1, limitParam);
+		
+		// the trie is filled from the snapshot, so make sure that has been loaded
+		catalogSnapshotService.current();
+		
+		List<SuggestionResponse> results = new ArrayList<>();
+		for (ProductSuggestIndex.Entry entry : productSuggestService.suggest(prefix, limit)) {
+			results.add(new SuggestionResponse(
+					entry.getText(), entry.getType().name().toLowerCase(), entry.getProductId()));
+		}
+		return results;
+	}
+	
+	private ProductResponse toResponse(CatalogProduct product) {
+		return product.toResponse(stockOverlay.stockOf(product));
+	}
+	
+	@Transactional(readOnly = true)
+	public ProductPageResponse getProductPage(String categoryName, String sortParam, String cursorParam, Integer limitParam) {
+		
+		ProductSort sort = ProductSort.fromParam(sortParam);
+		int limit = limitParam == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limitParam, MAX_PAGE_SIZE));
+		
+		Integer categoryId = null;
+		if (categoryName != null && !categoryName.isEmpty()) {
+			categoryId = categoryRepository.findByCategoryName(categoryName)
+					.orElseThrow(() -> new ResourceNotFoundException("Category not found"))
+					.getCategoryId();
+		}
+		
+		// one extra row tells us whether another page exists
+		List<Product> products = cursorParam == null || cursorParam.isBlank()
+				? productRepository.findPageStart(categoryId, PageRequest.of(0, limit + 1, sort.toSort()))
+				: findPageAfter(categoryId, ProductCursor.decode(cursorParam, sort), limit + 1);
+		
+		boolean hasMore = products.size() > limit;
+		if (hasMore) {
+			products = products.subList(0, limit);
+		}
+		
+		ProductPageResponse page = new ProductPageResponse();
+		page.setItems(mapToResponses(products));
+		page.setHasMore(hasMore);
+		page.setSort(sort.getParam());
+		page.setLimit(limit);
+		
+		if (hasMore) {
+			Product last = products.get(products.size() - 1);
+			page.setNextCursor(ProductCursor
+					.after(sort, last.getProductId(), last.getPrice(), last.getName())
+					.encode());
+		}
+		return page;
+	}
+	
+	// filtered listing with facet counts, evaluated on the snapshot's bitset indexes
+	public ProductPageResponse filterProducts(ProductFilter filter, String sortParam, String cursorParam, Integer limitParam) {
 		
-		List<String> images = productImageRepository
-				.findByProduct_ProductId(product.getProductId())
-				.stream()
-				.map(ProductImage::getImageUrl)
+		ProductSort sort = ProductSort.fromParam(sortParam);
+		int limit = limitParam == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limitParam, MAX_PAGE_SIZE));
+		ProductCursor cursor = cursorParam == null || cursorParam.isBlank()
+				? null
+				: ProductCursor.decode(cursorParam, sort);
+		
+		CatalogSnapshot snapshot = catalogSnapshotService.current();
+		if (filter.getCategoryName() != null && !snapshot.hasCategory(filter.getCategoryName())) {
+			throw new ResourceNotFoundException("Category not found");
+		}
+		
+		CatalogFacetIndex.Result result = catalogFacetService.query(filter, sort, cursor, limit);
+		
+		ProductPageResponse page = new ProductPageResponse();
+		page.setItems(result.getProducts().stream().map(this::toResponse).toList());
+		page.setHasMore(result.isHasMore());
+		page.setSort(sort.getParam());
+		page.setLimit(limit);
+		page.setTotal(result.getTotal());
+		page.setFacets(result.getFacets());
+		
+		if (result.isHasMore()) {
+			CatalogProduct last = result.getProducts().get(result.getProducts().size() - 1);
+			page.setNextCursor(CatalogFacetIndex.cursorAfter(sort, last).encode());
+		}
+		return page;
+	}
+	
+	private List<Product> findPageAfter(Integer categoryId, ProductCursor cursor, int size) {
+		
+		Pageable pageable = PageRequest.of(0, size);
+		
+		return switch (cursor.getSort()) {
+			case NEWEST -> productRepository.findNewestAfter(
+					categoryId, cursor.getLastId(), pageable);
+			case PRICE_ASC -> productRepository.findPriceAscAfter(
+					categoryId, cursor.getLastPrice(), cursor.getLastId(), pageable);
+			case PRICE_DESC -> productRepository.findPriceDescAfter(
+					categoryId, cursor.getLastPrice(), cursor.getLastId(), pageable);
+			case NAME -> productRepository.findNameAfter(
+					categoryId, cursor.getLastName(), cursor.getLastId(), pageable);
+		};
+	}
+	
+	// one image lookup for the whole batch instead of one per product
+	private List<ProductResponse> mapToResponses(List<Product> products) {
+		
+		if (products.isEmpty()) {
+			return List.of();
+		}
+		
+		List<Integer> productIds = products.stream()
+				.map(Product::getProductId)
 				.toList();
 		
+		Map<Integer, List<String>> imagesByProduct = new HashMap<>();
+		for (Object[] row : productImageRepository.findImageUrlsByProductIds(productIds)) {
+			imagesByProduct
+					.computeIfAbsent((Integer) row[0], id -> new ArrayList<>())
+					.add((String) row[1]);
+		}
+		
+		return products.stream()
+				.map(product -> mapToResponse(
+						product,
+						imagesByProduct.getOrDefault(product.getProductId(), List.of())))
+				.toList();
+	}
+
+	
+	private ProductResponse mapToResponse(Product product, List<String> images) {
+		
 		ProductResponse response = new ProductResponse();
 		response.setProductId(product.getProductId());
 		response.setName(product.getName());
 		response.setDescription(product.getDescription());
 		response.setPrice(product.getPrice());
-		response.setStock(product.getStock());
+		// the overlay also covers sharded products, whose row stock is always 0
+		response.setStock(stockOverlay.currentLevels().getOrDefault(product.getProductId(), product.getStock()));
 		response.setCategory(product.getCategory().getCategoryName());
 		response.setImages(images);
 		
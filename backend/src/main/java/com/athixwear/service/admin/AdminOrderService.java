@@ -18,17 +18,21 @@ import com.athixwear.exception.BadRequestException;
 import com.athixwear.exception.ResourceNotFoundException;
 import com.athixwear.repository.OrderRepository;
 import com.athixwear.repository.ProductImageRepository;
+import com.athixwear.service.analytics.SalesRollupService;
 
 @Service
 public class AdminOrderService {
 
 	private final OrderRepository orderRepository;
 	private final ProductImageRepository productImageRepository;
+	private final SalesRollupService salesRollupService;
 	
-	public AdminOrderService(OrderRepository orderRepository, ProductImageRepository productImageRepository) {
+	public AdminOrderService(OrderRepository orderRepository, ProductImageRepository productImageRepository,
+			SalesRollupService salesRollupService) {
 		super();
 		this.orderRepository = orderRepository;
 		this.productImageRepository = productImageRepository;
+		this.salesRollupService = salesRollupService;
 	}
 	
 	public List<AdminOrderResponse> getAllOrders() {
@@ -50,8 +54,10 @@ public class AdminOrderService {
 	            throw new BadRequestException("Invalid order status: " + status);
 	        }
 
+	      OrderStatus previousStatus = order.getOrderStatus();
 	      order.setOrderStatus(newStatus);
 	      Order saved = orderRepository.save(order);
+	      salesRollupService.statusChanged(saved, previousStatus, saved.getPaymentStatus());
 	      return mapToResponse(saved);
 	}
 	
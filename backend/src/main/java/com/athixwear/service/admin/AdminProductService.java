@@ -2,7 +2,9 @@ package com.athixwear.service.admin;
 
 import java.util.List;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.athixwear.dto.CreateProductRequest;
 import com.athixwear.dto.ProductResponse;
@@ -10,10 +12,12 @@ import com.athixwear.dto.UpdateProductRequest;
 import com.athixwear.entity.Category;
 import com.athixwear.entity.Product;
 import com.athixwear.entity.ProductImage;
+import com.athixwear.event.CatalogChangedEvent;
 import com.athixwear.exception.ResourceNotFoundException;
 import com.athixwear.repository.CategoryRepository;
 import com.athixwear.repository.ProductImageRepository;
 import com.athixwear.repository.ProductRepository;
+import com.athixwear.service.inventory.InventoryService;
 
 @Service
 public class AdminProductService {
@@ -21,15 +25,21 @@ public class AdminProductService {
 	private final ProductRepository productRepository;
 	private final ProductImageRepository productImageRepository;
 	private final CategoryRepository categoryRepository;
+	private final ApplicationEventPublisher eventPublisher;
+	private final InventoryService inventoryService;
 
 	public AdminProductService(ProductRepository productRepository,
-			ProductImageRepository productImageRepository, CategoryRepository categoryRepository) {
+			ProductImageRepository productImageRepository, CategoryRepository categoryRepository,
+			ApplicationEventPublisher eventPublisher, InventoryService inventoryService) {
 		super();
 		this.productRepository = productRepository;
 		this.productImageRepository = productImageRepository;
 		this.categoryRepository = categoryRepository;
+		this.eventPublisher = eventPublisher;
+		this.inventoryService = inventoryService;
 	}
 
+	@Transactional
 	public ProductResponse createProduct(CreateProductRequest request) {
         Category category = categoryRepository.findById(request.getCategoryId())
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found"));
@@ -42,9 +52,11 @@ public class AdminProductService {
 		product.setCategory(category);
 		
 		Product savedProduct = productRepository.save(product);
+		eventPublisher.publishEvent(CatalogChangedEvent.product(savedProduct.getProductId()));
 		return mapToResponse(savedProduct);
 	}
 	
+	@Transactional
 	public ProductResponse updateProduct(Integer productId, UpdateProductRequest request) {
 		Product product = productRepository.findById(productId)
 				.orElseThrow(() -> new ResourceNotFoundException("Product not found"));
@@ -52,7 +64,14 @@ public class AdminProductService {
 		if (request.getName() != null) product.setName(request.getName());
 		if (request.getDescription() != null) product.setDescription(request.getDescription());
 		if (request.getPrice() != null) product.setPrice(request.getPrice());
-		if (request.getStock() != null) product.setStock(request.getStock());
+		if (request.getStock() != null) {
+			// a sharded product keeps its stock in slots, the row itself stays at 0
+			if (product.isStockSharded()) {
+				inventoryService.setShardedStock(productId, request.getStock());
+			} else {
+				product.setStock(request.getStock());
+			}
+		}
 		if (request.getCategoryId() != null) {
 			Category category = categoryRepository.findById(request.getCategoryId())
 					.orElseThrow(() -> new ResourceNotFoundException("Categroy not found"));
@@ -60,14 +79,25 @@ public class AdminProductService {
 		}
 		
 		Product savedProduct= productRepository.save(product);
+		eventPublisher.publishEvent(CatalogChangedEvent.product(savedProduct.getProductId()));
 		return mapToResponse(savedProduct);
 	}
 	
+	// hot products during a drop: spread stock over slotCount rows, 1 folds it back
+	public void shardStock(Integer productId, int slotCount) {
+		inventoryService.shard(productId, slotCount);
+	}
+	
+	@Transactional
 	public void deleteProduct(Integer productId) {
 		Product product = productRepository.findById(productId)
 				.orElseThrow(() -> new ResourceNotFoundException("Product not found"));
 		
+		if (product.isStockSharded()) {
+			inventoryService.dropSlots(productId);
+		}
 		productRepository.delete(product);
+		eventPublisher.publishEvent(CatalogChangedEvent.product(productId));
 	}
 	
 	private ProductResponse mapToResponse(Product product) {
@@ -2,58 +2,138 @@ package com.athixwear.service.admin;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
 import java.time.format.DateTimeFormatter;
+import java.time.format.TextStyle;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.athixwear.dto.admin.AdminDashboardResult;
 import com.athixwear.dto.admin.AdminStatsResponse;
+import com.athixwear.dto.admin.TopProductsPage;
 import com.athixwear.entity.Order;
 import com.athixwear.entity.OrderStatus;
+import com.athixwear.entity.PaymentStatus;
 import com.athixwear.entity.Role;
+import com.athixwear.entity.SalesWindow;
 import com.athixwear.entity.User;
-import com.athixwear.repository.OrderItemRepository;
+import com.athixwear.exception.BadRequestException;
+import com.athixwear.repository.DailyOrderRollupRepository;
 import com.athixwear.repository.OrderRepository;
 import com.athixwear.repository.ProductRepository;
+import com.athixwear.repository.ProductSalesRankRepository;
 import com.athixwear.repository.UserRepository;
 
+import jakarta.annotation.PreDestroy;
+
 @Service
 public class AdminService {
 
     private static final int DASHBOARD_LIMIT = 10;
+    private static final int MAX_TOP_PRODUCTS_PAGE_SIZE = 100;
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE;
 
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
-    private final OrderItemRepository orderItemRepository;
+    private final DailyOrderRollupRepository dailyOrderRollupRepository;
+    private final ProductSalesRankRepository productSalesRankRepository;
+    private final TransactionTemplate dashboardTransaction;
+    private final long sectionTimeoutMillis;
+    private final long slotWaitMillis;
+    // shared by all dashboard requests, so together they never hold more than this many pooled connections
+    private final Semaphore dashboardQuerySlots;
+    private final ExecutorService dashboardExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     public AdminService(OrderRepository orderRepository, UserRepository userRepository,
-            ProductRepository productRepository, OrderItemRepository orderItemRepository) {
+            ProductRepository productRepository, DailyOrderRollupRepository dailyOrderRollupRepository,
+            ProductSalesRankRepository productSalesRankRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${admin.dashboard.section-timeout-ms:3000}") long sectionTimeoutMillis,
+            @Value("${admin.dashboard.slot-wait-ms:2000}") long slotWaitMillis,
+            @Value("${admin.dashboard.max-concurrent-queries:4}") int maxConcurrentQueries) {
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
         this.productRepository = productRepository;
-        this.orderItemRepository = orderItemRepository;
+        this.dailyOrderRollupRepository = dailyOrderRollupRepository;
+        this.productSalesRankRepository = productSalesRankRepository;
+        this.dashboardTransaction = new TransactionTemplate(transactionManager);
+        this.dashboardTransaction.setReadOnly(true);
+        // makes the driver give up on a query the dashboard has stopped waiting for
+        this.dashboardTransaction.setTimeout((int) Math.max(1, (sectionTimeoutMillis + 999) / 1000));
+        this.sectionTimeoutMillis = sectionTimeoutMillis;
+        this.slotWaitMillis = slotWaitMillis;
+        this.dashboardQuerySlots = new Semaphore(maxConcurrentQueries, true);
     }
 
-    public AdminStatsResponse getDashboardStats() {
+    /**
+     * The dashboard's eight queries are independent, so they run at the same
+     * time on virtual threads, each in its own read-only transaction, and the
+     * dashboard takes as long as the slowest one instead of all of them added
+     * up. A shared semaphore caps how many pooled connections dashboards can
+     * hold at once. Each section's timeout starts when its query gets a slot,
+     * matching the transaction timeout that ends the query, so sections queued
+     * behind other dashboards are not charged for the wait; the wait for a
+     * slot is bounded separately. A section that fails, finds no slot or
+     * misses its deadline keeps its default value and is reported in the
+     * result's section breakdown.
+     * Order counts and revenue come from the daily rollups kept by
+     * SalesRollupService and top products from the ranks built on them,
+     * rather than from the orders themselves.
+     */
+    public AdminDashboardResult getDashboardStats() {
+        long started = System.nanoTime();
+
+        DashboardSection<Long> customers = submit("customers", () -> userRepository.countByRole(Role.CUSTOMER));
+        DashboardSection<Long> products = submit("products", productRepository::count);
+        DashboardSection<List<Object[]>> orderStatistics = submit("orderStatistics", dailyOrderRollupRepository::sumOrdersByStatus);
+        DashboardSection<BigDecimal> revenue = submit("revenue", () -> dailyOrderRollupRepository.sumAmount(PaymentStatus.PAID));
+        DashboardSection<List<AdminStatsResponse.MonthlyRevenue>> monthlyRevenue =
+                submit("monthlyRevenue", this::getMonthlyRevenueData);
+        DashboardSection<List<AdminStatsResponse.RecentOrder>> recentOrders =
+                submit("recentOrders", this::getRecentOrders);
+        DashboardSection<List<AdminStatsResponse.TopProduct>> topProducts =
+                submit("topProducts", this::getTopProducts);
+        DashboardSection<List<AdminStatsResponse.RecentCustomer>> recentCustomers =
+                submit("recentCustomers", this::getRecentCustomers);
+
+        Map<String, AdminDashboardResult.Section> sections = new LinkedHashMap<>();
         AdminStatsResponse response = new AdminStatsResponse();
 
-        Long customerCount = userRepository.countByRole(Role.CUSTOMER);
+        Long customerCount = customers.await(sections);
         response.setTotalCustomers(customerCount != null ? customerCount : 0L);
 
-        Long productCount = productRepository.count();
+        Long productCount = products.await(sections);
         response.setTotalProducts(productCount != null ? productCount : 0L);
 
-        List<Object[]> orderStats = orderRepository.getOrderStatistics();
+        List<Object[]> orderStats = orderStatistics.await(sections);
         response.setPendingOrders(0L);
         response.setProcessingOrders(0L);
         response.setDeliveredOrders(0L);
         response.setCancelledOrders(0L);
 
-        for (Object[] stat : orderStats) {
+        for (Object[] stat : orderStats != null ? orderStats : List.<Object[]>of()) {
             OrderStatus status = (OrderStatus) stat[0];
             Long count = (Long) stat[1];
 
@@ -73,7 +153,7 @@ public class AdminService {
                         + response.getDeliveredOrders()
                         + response.getCancelledOrders());
 
-        BigDecimal totalRevenue = orderRepository.getTotalRevenue();
+        BigDecimal totalRevenue = revenue.await(sections);
         response.setTotalRevenue(totalRevenue != null ? totalRevenue : BigDecimal.ZERO);
 
         if (response.getTotalOrders() > 0) {
@@ -93,19 +173,29 @@ public class AdminService {
             response.setConversionRate(0.0);
         }
 
-        response.setMonthlyRevenue(getMonthlyRevenueData());
-        response.setRecentOrders(getRecentOrders());
-        response.setTopProducts(getTopProducts());
-        response.setRecentCustomers(getRecentCustomers());
+        response.setMonthlyRevenue(orEmpty(monthlyRevenue.await(sections)));
+        response.setRecentOrders(orEmpty(recentOrders.await(sections)));
+        response.setTopProducts(orEmpty(topProducts.await(sections)));
+        response.setRecentCustomers(orEmpty(recentCustomers.await(sections)));
+
+        AdminDashboardResult result = new AdminDashboardResult();
+        result.setStats(response);
+        result.setSections(sections);
+        result.setPartial(sections.values().stream().anyMatch(section -> !"OK".equals(section.getStatus())));
+        result.setTotalMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return result;
+    }
 
-        return response;
+    @PreDestroy
+    public void shutdown() {
+        dashboardExecutor.shutdownNow();
     }
 
     public List<AdminStatsResponse.MonthlyRevenue> getMonthlyRevenueData() {
-        return orderRepository.getMonthlyRevenueLastSixMonths().stream()
+        return dailyOrderRollupRepository.sumAmountByMonth(PaymentStatus.PAID, LocalDate.now().minusMonths(6)).stream()
                 .map(row -> {
-                    String month = String.valueOf(row[0]);
-                    BigDecimal revenue = toBigDecimal(row[1]);
+                    String month = Month.of(((Number) row[1]).intValue()).getDisplayName(TextStyle.SHORT, Locale.ENGLISH);
+                    BigDecimal revenue = toBigDecimal(row[2]);
                     return createMonthlyRevenue(month, revenue);
                 })
                 .toList();
@@ -127,16 +217,54 @@ public class AdminService {
     }
 
     public List<AdminStatsResponse.TopProduct> getTopProducts() {
-        return orderItemRepository.findTopSellingProductsWithRevenue().stream()
-                .limit(DASHBOARD_LIMIT)
+        return getTopProducts(null, null, 0, DASHBOARD_LIMIT).getProducts();
+    }
+
+    /**
+     * A page of best sellers from the ranks ProductSalesRankingService keeps
+     * per window, overall or within one category. Ranks are consecutive, so
+     * the page is read as a range of them and costs the same at any depth.
+     * The page and the total are read in one transaction, so both come from
+     * the same refresh of the ranks.
+     */
+    @Transactional(readOnly = true)
+    public TopProductsPage getTopProducts(String windowParam, Integer categoryId, Integer pageParam, Integer sizeParam) {
+        SalesWindow window = SalesWindow.fromParam(windowParam);
+        int page = pageParam == null ? 0 : pageParam;
+        if (page < 0) {
+            throw new BadRequestException("Page must not be negative");
+        }
+        int size = sizeParam == null ? DASHBOARD_LIMIT : Math.max(1, Math.min(sizeParam, MAX_TOP_PRODUCTS_PAGE_SIZE));
+        int fromRank = (int) Math.min(Integer.MAX_VALUE, (long) page * size + 1);
+        int toRank = (int) Math.min(Integer.MAX_VALUE, (long) fromRank + size - 1);
+
+        List<Object[]> rows = categoryId == null
+                ? productSalesRankRepository.findRanks(window, fromRank, toRank)
+                : productSalesRankRepository.findCategoryRanks(window, categoryId, fromRank, toRank);
+
+        TopProductsPage result = new TopProductsPage();
+        result.setProducts(rows.stream()
                 .map(row -> {
-                    Integer productId = ((Number) row[0]).intValue();
-                    String productName = String.valueOf(row[1]);
-                    Integer soldCount = ((Number) row[2]).intValue();
-                    BigDecimal revenue = toBigDecimal(row[3]);
-                    return createTopProduct(productId, productName, soldCount, revenue);
+                    AdminStatsResponse.TopProduct product = createTopProduct(
+                            (Integer) row[1],
+                            String.valueOf(row[2]),
+                            ((Number) row[3]).intValue(),
+                            toBigDecimal(row[4]));
+                    product.setRank((Integer) row[0]);
+                    return product;
                 })
-                .toList();
+                .toList());
+        result.setWindow(window.getParam());
+        result.setCategoryId(categoryId);
+        result.setPage(page);
+        result.setSize(size);
+        result.setTotalProducts(categoryId == null
+                ? productSalesRankRepository.countRanks(window)
+                : productSalesRankRepository.countCategoryRanks(window, categoryId));
+        if (!rows.isEmpty()) {
+            result.setRefreshedAt(((LocalDateTime) rows.get(0)[5]).toString());
+        }
+        return result;
     }
 
     public List<AdminStatsResponse.RecentCustomer> getRecentCustomers() {
@@ -161,6 +289,40 @@ public class AdminService {
                 .toList();
     }
 
+    private <T> DashboardSection<T> submit(String name, Supplier<T> query) {
+        DashboardSection<T> section = new DashboardSection<>(name, slotWaitMillis + sectionTimeoutMillis);
+        section.future = dashboardExecutor.submit(() -> {
+            long queued = System.nanoTime();
+            boolean acquired = false;
+            try {
+                acquired = dashboardQuerySlots.tryAcquire(slotWaitMillis, TimeUnit.MILLISECONDS);
+            } finally {
+                // the section's own timeout starts once the wait for a slot is over
+                section.waitNanos = System.nanoTime() - queued;
+                section.deadline = queued + section.waitNanos + TimeUnit.MILLISECONDS.toNanos(sectionTimeoutMillis);
+                section.started.countDown();
+            }
+            if (!acquired) {
+                throw new TimeoutException("No free query slot");
+            }
+            try {
+                long start = System.nanoTime();
+                try {
+                    return dashboardTransaction.execute(status -> query.get());
+                } finally {
+                    section.queryNanos = System.nanoTime() - start;
+                }
+            } finally {
+                dashboardQuerySlots.release();
+            }
+        });
+        return section;
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list != null ? list : List.of();
+    }
+
     private BigDecimal toBigDecimal(Object value) {
         if (value == null) {
             return BigDecimal.ZERO;
@@ -223,4 +385,60 @@ public class AdminService {
         recentCustomer.setOrderCount(orders);
         return recentCustomer;
     }
+
+    // one dashboard query in flight; await() records how it went
+    private static final class DashboardSection<T> {
+        private final String name;
+        // the longest the query can take to get a slot and run
+        private final long limitMillis;
+        // counted down once the query has a slot or has given up on one; deadline is set by then
+        private final CountDownLatch started = new CountDownLatch(1);
+        private Future<T> future;
+        private volatile long deadline;
+        private volatile long waitNanos;
+        private volatile long queryNanos;
+
+        private DashboardSection(String name, long limitMillis) {
+            this.name = name;
+            this.limitMillis = limitMillis;
+        }
+
+        // the result, or null when the query failed, found no slot or was not done by its own deadline
+        private T await(Map<String, AdminDashboardResult.Section> sections) {
+            AdminDashboardResult.Section section = new AdminDashboardResult.Section();
+            sections.put(name, section);
+            try {
+                if (!started.await(limitMillis, TimeUnit.MILLISECONDS)) {
+                    throw new TimeoutException();
+                }
+                T value = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                section.setStatus("OK");
+                return value;
+            } catch (TimeoutException e) {
+                // frees the query slot if it is still queued; a running query is ended by the transaction timeout
+                future.cancel(true);
+                section.setStatus("TIMED_OUT");
+                return null;
+            } catch (ExecutionException e) {
+                // the slot wait ran out
+                if (e.getCause() instanceof TimeoutException) {
+                    section.setStatus("TIMED_OUT");
+                    section.setError(e.getCause().getMessage());
+                    return null;
+                }
+                section.setStatus("FAILED");
+                section.setError(e.getCause().getClass().getSimpleName());
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                section.setStatus("FAILED");
+                section.setError("Interrupted");
+                return null;
+            } finally {
+                section.setWaitMs(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+                section.setQueryMs(TimeUnit.NANOSECONDS.toMillis(queryNanos));
+            }
+        }
+    }
 }
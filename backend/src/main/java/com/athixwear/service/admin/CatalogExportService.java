@@ -0,0 +1,186 @@
+package com.athixwear.service.admin;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.athixwear.entity.Status;
+import com.athixwear.exception.BadRequestException;
+import com.athixwear.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Full-catalog feed for marketplaces, written product by product from a
+ * forward-only database cursor. Only the product being assembled is held in
+ * memory, whatever the catalog size; the writer is flushed every
+ * {@link #FLUSH_EVERY} products so the client receives the feed in chunks.
+ */
+@Service
+public class CatalogExportService {
+	
+	public enum Format {
+		NDJSON, CSV;
+		
+		public static Format fromParam(String param) {
+			if (param == null || param.isBlank()) {
+				return NDJSON;
+			}
+			for (Format format : values()) {
+				if (format.name().equalsIgnoreCase(param)) {
+					return format;
+				}
+			}
+			throw new BadRequestException("Unsupported export format: " + param);
+		}
+	}
+	
+	private static final int FLUSH_EVERY = 500;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final String CSV_HEADER = "productId,name,description,price,stock,status,category,images";
+	
+	private final ProductRepository productRepository;
+	private final TransactionTemplate readOnlyTransaction;
+	private final ObjectMapper objectMapper;
+	
+	public CatalogExportService(ProductRepository productRepository,
+			PlatformTransactionManager transactionManager,
+			ObjectMapper objectMapper) {
+		super();
+		this.productRepository = productRepository;
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setReadOnly(true);
+		this.objectMapper = objectMapper;
+	}
+	
+	// runs outside the request thread, so it opens its own transaction for the cursor
+	public void export(Format format, OutputStream out) {
+		readOnlyTransaction.executeWithoutResult(status -> {
+			try (Stream<Object[]> rows = productRepository.streamCatalogExport()) {
+				Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+				if (format == Format.CSV) {
+					writer.write(CSV_HEADER);
+					writer.write('\n');
+				}
+				
+				int written = 0;
+				ExportRow current = null;
+				Iterator<Object[]> iterator = rows.iterator();
+				while (iterator.hasNext()) {
+					Object[] row = iterator.next();
+					int productId = (Integer) row[0];
+					
+					if (current == null || current.productId != productId) {
+						if (current != null) {
+							write(format, current, writer);
+							if (++written % FLUSH_EVERY == 0) {
+								writer.flush();
+							}
+						}
+						current = new ExportRow(row);
+					}
+					if (row[7] != null) {
+						current.images.add((String) row[7]);
+					}
+				}
+				if (current != null) {
+					write(format, current, writer);
+				}
+				writer.flush();
+			} catch (IOException e) {
+				// most likely the client went away; the transaction is rolled back and the cursor closed
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+	
+	private void write(Format format, ExportRow row, Writer writer) throws IOException {
+		if (format == Format.CSV) {
+			writer.write(Integer.toString(row.productId));
+			writer.write(',');
+			writeCsv(writer, row.name);
+			writer.write(',');
+			writeCsv(writer, row.description);
+			writer.write(',');
+			writer.write(row.price != null ? row.price.toPlainString() : "");
+			writer.write(',');
+			writer.write(Integer.toString(row.stock));
+			writer.write(',');
+			writer.write(row.status != null ? row.status.name() : "");
+			writer.write(',');
+			writeCsv(writer, row.category);
+			writer.write(',');
+			writeCsv(writer, String.join("|", row.images));
+			writer.write('\n');
+			return;
+		}
+		
+		Map<String, Object> json = new LinkedHashMap<>();
+		json.put("productId", row.productId);
+		json.put("name", row.name);
+		json.put("description", row.description);
+		json.put("price", row.price);
+		json.put("stock", row.stock);
+		json.put("status", row.status);
+		json.put("category", row.category);
+		json.put("images", row.images);
+		try {
+			writer.write(objectMapper.writeValueAsString(json));
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not export product " + row.productId, e);
+		}
+		writer.write('\n');
+	}
+	
+	// RFC 4180: quote when needed, double any embedded quotes
+	private static void writeCsv(Writer writer, String value) throws IOException {
+		if (value == null) {
+			return;
+		}
+		boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+				|| value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+		if (!quote) {
+			writer.write(value);
+			return;
+		}
+		writer.write('"');
+		writer.write(value.replace("\"", "\"\""));
+		writer.write('"');
+	}
+	
+	private static final class ExportRow {
+		private final int productId;
+		private final String name;
+		private final String description;
+		private final BigDecimal price;
+		private final int stock;
+		private final Status status;
+		private final String category;
+		private final List<String> images = new ArrayList<>(4);
+		
+		private ExportRow(Object[] row) {
+			this.productId = (Integer) row[0];
+			this.name = (String) row[1];
+			this.description = (String) row[2];
+			this.price = (BigDecimal) row[3];
+			this.stock = ((Number) row[4]).intValue();
+			this.status = (Status) row[5];
+			this.category = (String) row[6];
+		}
+	}
+}
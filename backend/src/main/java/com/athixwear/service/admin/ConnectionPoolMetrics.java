@@ -0,0 +1,55 @@
+package com.athixwear.service.admin;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * Occupancy of the Hikari connection pool. Sampled while payment requests
+ * are in flight, active connections should track the short transactions
+ * around a gateway call, not the call itself.
+ */
+@Component
+public class ConnectionPoolMetrics {
+	
+	private final DataSource dataSource;
+	
+	public ConnectionPoolMetrics(DataSource dataSource) {
+		super();
+		this.dataSource = dataSource;
+	}
+	
+	public Map<String, Object> stats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		HikariDataSource hikari = hikari();
+		HikariPoolMXBean pool = hikari != null ? hikari.getHikariPoolMXBean() : null;
+		if (pool == null) {
+			// not Hikari, or the pool has not started yet
+			stats.put("available", false);
+			return stats;
+		}
+		stats.put("available", true);
+		stats.put("active", pool.getActiveConnections());
+		stats.put("idle", pool.getIdleConnections());
+		stats.put("total", pool.getTotalConnections());
+		stats.put("threadsAwaitingConnection", pool.getThreadsAwaitingConnection());
+		stats.put("maximumPoolSize", hikari.getMaximumPoolSize());
+		stats.put("connectionTimeoutMs", hikari.getConnectionTimeout());
+		return stats;
+	}
+	
+	private HikariDataSource hikari() {
+		try {
+			return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+		} catch (SQLException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package com.athixwear.service.analytics;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.athixwear.entity.SalesWindow;
+
+/**
+ * Best sellers per {@link SalesWindow}, materialized in product_sales_ranks
+ * so a page of them is a range read on (window, rank) or (window, category,
+ * category rank) however many products have sold.
+ * <p>
+ * A refresh ranks each window from the daily_product_sales rollup with one
+ * SELECT using ROW_NUMBER, overall and per category (ties in units get
+ * consecutive ranks, lower product_id first), and replaces the
+ * window's rows in one transaction so readers see either the old ranking or
+ * the new one. The ranking is read with a plain (non-locking) SELECT rather
+ * than INSERT ... SELECT, which would hold shared locks on the rollup rows
+ * and stall checkouts writing to them. Ranks trail sales by up to the
+ * refresh interval.
+ */
+@Service
+public class ProductSalesRankingService {
+
+	private static final String RANK_SQL = "SELECT ROW_NUMBER() OVER (ORDER BY t.units DESC, t.product_id), "
+			+ "t.category_id, ROW_NUMBER() OVER (PARTITION BY t.category_id ORDER BY t.units DESC, t.product_id), "
+			+ "t.product_id, t.units, t.revenue "
+			+ "FROM (SELECT s.product_id, p.category_id, SUM(s.units) AS units, SUM(s.revenue) AS revenue "
+			+ "FROM daily_product_sales s JOIN products p ON p.product_id = s.product_id "
+			+ "WHERE s.sales_date >= ? GROUP BY s.product_id, p.category_id HAVING SUM(s.units) > 0) t";
+	private static final String INSERT_SQL = "INSERT INTO product_sales_ranks "
+			+ "(sales_window, rank_no, category_id, category_rank_no, product_id, units, revenue, refreshed_at) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transaction;
+
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+	private final Map<SalesWindow, Map<String, Object>> lastRefresh = new EnumMap<>(SalesWindow.class);
+
+	public ProductSalesRankingService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+		super();
+		this.jdbcTemplate = jdbcTemplate;
+		this.transaction = new TransactionTemplate(transactionManager);
+	}
+
+	@Scheduled(fixedDelayString = "${analytics.product-ranks.refresh-ms:300000}", initialDelay = 30_000)
+	public void refreshOnSchedule() {
+		refresh();
+	}
+
+	/**
+	 * Re-ranks every window. Returns false without doing anything when a
+	 * refresh is already running.
+	 */
+	public boolean refresh() {
+		if (!refreshing.compareAndSet(false, true)) {
+			return false;
+		}
+		try {
+			LocalDate today = LocalDate.now();
+			for (SalesWindow window : SalesWindow.values()) {
+				long started = System.currentTimeMillis();
+				LocalDateTime refreshedAt = LocalDateTime.now();
+				Timestamp refreshedAtValue = Timestamp.valueOf(refreshedAt);
+				Integer ranked = transaction.execute(status -> {
+					List<Object[]> rows = jdbcTemplate.query(RANK_SQL,
+							(rs, rowNum) -> new Object[] { window.name(), rs.getInt(1), rs.getObject(2), rs.getInt(3),
+									rs.getInt(4), rs.getLong(5), rs.getBigDecimal(6), refreshedAtValue },
+							Date.valueOf(window.startingFrom(today)));
+					jdbcTemplate.update("DELETE FROM product_sales_ranks WHERE sales_window = ?", window.name());
+					if (!rows.isEmpty()) {
+						jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+					}
+					return rows.size();
+				});
+
+				Map<String, Object> summary = new LinkedHashMap<>();
+				summary.put("refreshedAt", refreshedAt.toString());
+				summary.put("products", ranked);
+				summary.put("durationMs", System.currentTimeMillis() - started);
+				synchronized (lastRefresh) {
+					lastRefresh.put(window, summary);
+				}
+			}
+			return true;
+		} finally {
+			refreshing.set(false);
+		}
+	}
+
+	public Map<String, Object> stats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("refreshing", refreshing.get());
+		synchronized (lastRefresh) {
+			lastRefresh.forEach((window, summary) -> stats.put(window.getParam(), summary));
+		}
+		return stats;
+	}
+}
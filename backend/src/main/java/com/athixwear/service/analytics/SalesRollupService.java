@@ -0,0 +1,292 @@
+package com.athixwear.service.analytics;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.athixwear.entity.Order;
+import com.athixwear.entity.OrderItem;
+import com.athixwear.entity.OrderStatus;
+import com.athixwear.entity.PaymentStatus;
+import com.athixwear.repository.OrderRepository;
+
+/**
+ * Daily sales rollups, so the dashboard reads a few hundred pre-aggregated
+ * rows instead of scanning all orders. daily_order_rollups counts orders and
+ * their amount per day and (order status, payment status); daily_product_sales
+ * counts units and revenue per day and product. The day is the order's
+ * order_date, so a later status change moves the order between rows of the
+ * day it was placed.
+ * <p>
+ * Every state change updates the rollups in the same transaction, as
+ * additive upserts. Each transaction writes to one random slot of the rows
+ * it touches, so concurrent checkouts on the same day do not queue on one
+ * row lock; a slot can go negative when an order leaves a status through
+ * another slot, and only the sums over slots mean anything. Rows are written
+ * in key order so two transactions never lock them in opposite orders.
+ * <p>
+ * {@link #rebuild()} recomputes them from orders, one day per transaction on
+ * a worker pool, and runs on startup while the tables are still empty.
+ */
+@Service
+public class SalesRollupService {
+
+	private static final String UPSERT_ORDERS_SQL = "INSERT INTO daily_order_rollups "
+			+ "(sales_date, order_status, payment_status, slot_no, order_count, amount) VALUES (?, ?, ?, ?, ?, ?) "
+			+ "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), amount = amount + VALUES(amount)";
+	private static final String UPSERT_PRODUCTS_SQL = "INSERT INTO daily_product_sales "
+			+ "(sales_date, product_id, slot_no, units, revenue) VALUES (?, ?, ?, ?, ?) "
+			+ "ON DUPLICATE KEY UPDATE units = units + VALUES(units), revenue = revenue + VALUES(revenue)";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final OrderRepository orderRepository;
+	private final TransactionTemplate transaction;
+	private final int slots;
+	private final int workers;
+
+	private final AtomicBoolean rebuilding = new AtomicBoolean();
+	private volatile Map<String, Object> lastRebuild = Map.of();
+
+	public SalesRollupService(JdbcTemplate jdbcTemplate,
+			OrderRepository orderRepository,
+			PlatformTransactionManager transactionManager,
+			@Value("${analytics.rollup.slots:8}") int slots,
+			@Value("${analytics.rollup.rebuild-workers:4}") int workers) {
+		super();
+		this.jdbcTemplate = jdbcTemplate;
+		this.orderRepository = orderRepository;
+		this.transaction = new TransactionTemplate(transactionManager);
+		this.slots = slots;
+		this.workers = workers;
+	}
+
+	// a new order and its lines; call after the stock has been taken, so locks follow the checkout's order
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void orderPlaced(Order order, List<OrderItem> items) {
+		Delta delta = new Delta();
+		LocalDate day = order.getOrderDate().toLocalDate();
+		delta.addOrders(day, order.getOrderStatus(), order.getPaymentStatus(), 1, order.getTotalAmount());
+		for (OrderItem item : items) {
+			delta.addProduct(day, item.getProduct().getProductId(), item.getQuantity(), item.getTotalPrice());
+		}
+		apply(delta);
+	}
+
+	// one order whose statuses were just changed in memory; a no-op when neither changed
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void statusChanged(Order order, OrderStatus previousOrderStatus, PaymentStatus previousPaymentStatus) {
+		Delta delta = new Delta();
+		delta.moveOrder(order, previousOrderStatus, previousPaymentStatus);
+		apply(delta);
+	}
+
+	// orders moved between the same two statuses by one set-based UPDATE
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void statusesChanged(Collection<Integer> orderIds, OrderStatus fromOrderStatus, PaymentStatus fromPaymentStatus,
+			OrderStatus toOrderStatus, PaymentStatus toPaymentStatus) {
+		Delta delta = new Delta();
+		for (Object[] row : orderRepository.sumAmountsByOrderDay(orderIds)) {
+			LocalDate day = ((Date) row[0]).toLocalDate();
+			long count = ((Number) row[1]).longValue();
+			BigDecimal amount = (BigDecimal) row[2];
+			delta.addOrders(day, fromOrderStatus, fromPaymentStatus, -count, amount.negate());
+			delta.addOrders(day, toOrderStatus, toPaymentStatus, count, amount);
+		}
+		apply(delta);
+	}
+
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void apply(Delta delta) {
+		int slot = ThreadLocalRandom.current().nextInt(slots);
+
+		List<Object[]> orderRows = new ArrayList<>();
+		delta.orders.forEach((day, byStatus) -> byStatus.forEach((orderStatus, byPayment) ->
+				byPayment.forEach((paymentStatus, totals) -> {
+					if (!totals.isZero()) {
+						orderRows.add(new Object[] { Date.valueOf(day), orderStatus.name(), paymentStatus.name(), slot,
+								totals.count, totals.amount });
+					}
+				})));
+		List<Object[]> productRows = new ArrayList<>();
+		delta.products.forEach((day, byProduct) -> byProduct.forEach((productId, totals) -> {
+			if (!totals.isZero()) {
+				productRows.add(new Object[] { Date.valueOf(day), productId, slot, totals.count, totals.amount });
+			}
+		}));
+
+		if (!orderRows.isEmpty()) {
+			jdbcTemplate.batchUpdate(UPSERT_ORDERS_SQL, orderRows);
+		}
+		if (!productRows.isEmpty()) {
+			jdbcTemplate.batchUpdate(UPSERT_PRODUCTS_SQL, productRows);
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuildIfEmpty() {
+		boolean empty = jdbcTemplate.queryForList("SELECT 1 FROM daily_order_rollups LIMIT 1").isEmpty();
+		if (empty) {
+			// off the startup thread: the first rebuild reads the whole order history
+			Thread thread = new Thread(this::rebuild, "sales-rollup-rebuild");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Recomputes the rollups of every day from the first order to today.
+	 * Returns false when a rebuild is already running.
+	 */
+	public boolean rebuild() {
+		if (!rebuilding.compareAndSet(false, true)) {
+			return false;
+		}
+		long started = System.currentTimeMillis();
+		try {
+			Date first = jdbcTemplate.queryForObject("SELECT MIN(order_date) FROM orders", Date.class);
+			List<LocalDate> days = new ArrayList<>();
+			if (first != null) {
+				for (LocalDate day = first.toLocalDate(); !day.isAfter(LocalDate.now()); day = day.plusDays(1)) {
+					days.add(day);
+				}
+			}
+
+			ExecutorService pool = Executors.newFixedThreadPool(workers);
+			try {
+				List<Future<?>> parts = new ArrayList<>(days.size());
+				for (LocalDate day : days) {
+					parts.add(pool.submit(() -> transaction.executeWithoutResult(status -> rebuildDay(day))));
+				}
+				for (Future<?> part : parts) {
+					part.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Sales rollup rebuild interrupted", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Sales rollup rebuild failed", e.getCause());
+			} finally {
+				pool.shutdownNow();
+			}
+
+			Map<String, Object> summary = new LinkedHashMap<>();
+			summary.put("days", days.size());
+			summary.put("durationMs", System.currentTimeMillis() - started);
+			lastRebuild = summary;
+			return true;
+		} finally {
+			rebuilding.set(false);
+		}
+	}
+
+	public Map<String, Object> stats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("rebuilding", rebuilding.get());
+		stats.put("slots", slots);
+		stats.put("lastRebuild", lastRebuild);
+		return stats;
+	}
+
+	private void rebuildDay(LocalDate day) {
+		Date from = Date.valueOf(day);
+		Date to = Date.valueOf(day.plusDays(1));
+
+		// Lock the day's rows (and, under REPEATABLE READ, the gap where new slots would go) before reading orders.
+		// A checkout that committed earlier is in both the rows replaced and the orders read; one still open
+		// waits here and adds its delta on top of the rebuilt rows.
+		jdbcTemplate.queryForList("SELECT slot_no FROM daily_order_rollups WHERE sales_date = ? FOR UPDATE", from);
+		jdbcTemplate.queryForList("SELECT slot_no FROM daily_product_sales WHERE sales_date = ? FOR UPDATE", from);
+
+		List<Object[]> orderRows = jdbcTemplate.query(
+				"SELECT order_status, payment_status, COUNT(*), COALESCE(SUM(total_amount), 0) FROM orders "
+						+ "WHERE order_date >= ? AND order_date < ? GROUP BY order_status, payment_status",
+				(rs, rowNum) -> new Object[] { from, rs.getString(1), rs.getString(2), 0, rs.getLong(3),
+						rs.getBigDecimal(4) },
+				from, to);
+		List<Object[]> productRows = jdbcTemplate.query(
+				"SELECT oi.product_id, SUM(oi.quantity), COALESCE(SUM(oi.total_price), 0) FROM order_items oi "
+						+ "JOIN orders o ON o.order_id = oi.order_id "
+						+ "WHERE o.order_date >= ? AND o.order_date < ? GROUP BY oi.product_id ORDER BY oi.product_id",
+				(rs, rowNum) -> new Object[] { from, rs.getInt(1), 0, rs.getLong(2), rs.getBigDecimal(3) },
+				from, to);
+
+		jdbcTemplate.update("DELETE FROM daily_order_rollups WHERE sales_date = ?", from);
+		jdbcTemplate.update("DELETE FROM daily_product_sales WHERE sales_date = ?", from);
+		if (!orderRows.isEmpty()) {
+			jdbcTemplate.batchUpdate(UPSERT_ORDERS_SQL, orderRows);
+		}
+		if (!productRows.isEmpty()) {
+			jdbcTemplate.batchUpdate(UPSERT_PRODUCTS_SQL, productRows);
+		}
+	}
+
+	/**
+	 * Changes to apply to the rollups in one go, kept sorted by row key.
+	 * Opposite changes to the same row cancel out and are not written.
+	 */
+	public static final class Delta {
+		private final TreeMap<LocalDate, EnumMap<OrderStatus, EnumMap<PaymentStatus, Totals>>> orders = new TreeMap<>();
+		private final TreeMap<LocalDate, TreeMap<Integer, Totals>> products = new TreeMap<>();
+
+		// an order that was in the previous statuses and is now in its current ones
+		public void moveOrder(Order order, OrderStatus previousOrderStatus, PaymentStatus previousPaymentStatus) {
+			if (order.getOrderStatus() == previousOrderStatus && order.getPaymentStatus() == previousPaymentStatus) {
+				return;
+			}
+			LocalDate day = order.getOrderDate().toLocalDate();
+			addOrders(day, previousOrderStatus, previousPaymentStatus, -1, order.getTotalAmount().negate());
+			addOrders(day, order.getOrderStatus(), order.getPaymentStatus(), 1, order.getTotalAmount());
+		}
+
+		public void addOrders(LocalDate day, OrderStatus orderStatus, PaymentStatus paymentStatus,
+				long count, BigDecimal amount) {
+			orders.computeIfAbsent(day, d -> new EnumMap<>(OrderStatus.class))
+					.computeIfAbsent(orderStatus, s -> new EnumMap<>(PaymentStatus.class))
+					.computeIfAbsent(paymentStatus, s -> new Totals())
+					.add(count, amount);
+		}
+
+		public void addProduct(LocalDate day, Integer productId, long units, BigDecimal revenue) {
+			products.computeIfAbsent(day, d -> new TreeMap<>())
+					.computeIfAbsent(productId, id -> new Totals())
+					.add(units, revenue);
+		}
+	}
+
+	private static final class Totals {
+		private long count;
+		private BigDecimal amount = BigDecimal.ZERO;
+
+		private void add(long count, BigDecimal amount) {
+			this.count += count;
+			this.amount = this.amount.add(amount);
+		}
+
+		private boolean isZero() {
+			return count == 0 && amount.signum() == 0;
+		}
+	}
+}
@@ -0,0 +1,396 @@
+package com.athixwear.service.catalog;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import com.athixwear.entity.Status;
+
+/**
+ * Bitset per facet value over one catalog snapshot. Bit i stands for the i-th
+ * product of the snapshot, so the ordinals are dense and a java.util.BitSet is
+ * already compact (one bit per product per value). Filtering is a handful of
+ * word-wise ANDs and facet counts are cardinalities of those intersections.
+ * Immutable; a new index is built for every new snapshot. When the snapshot
+ * differs in one product only, the sort orders are carried over from the
+ * previous index with that product moved, rather than sorted again.
+ * <p>
+ * Names sort case- and accent-insensitively, the way the MySQL collation
+ * orders p.name in ProductRepository.findNameAfter, so both listings hand
+ * out cursors that land in the same place in either.
+ */
+public final class CatalogFacetIndex {
+	
+	public static final String CATEGORY = "category";
+	public static final String PRICE = "price";
+	public static final String STATUS = "status";
+	public static final String IN_STOCK = "inStock";
+	
+	private final List<CatalogProduct> products;
+	private final BitSet all;
+	private final Map<String, BitSet> byCategory = new LinkedHashMap<>();
+	private final Map<PriceBucket, BitSet> byPrice = new EnumMap<>(PriceBucket.class);
+	private final Map<Status, BitSet> byStatus = new EnumMap<>(Status.class);
+	private final Map<ProductSort, int[]> sortedOrdinals = new EnumMap<>(ProductSort.class);
+	// nameKey of each product, by ordinal
+	private final String[] nameKeys;
+	
+	private CatalogFacetIndex(CatalogSnapshot snapshot, String[] nameKeys, Map<ProductSort, int[]> orders) {
+		this.products = snapshot.getProducts();
+		this.nameKeys = nameKeys;
+		this.all = new BitSet(products.size());
+		all.set(0, products.size());
+		
+		for (int ordinal = 0; ordinal < products.size(); ordinal++) {
+			CatalogProduct product = products.get(ordinal);
+			
+			if (product.getCategoryName() != null) {
+				byCategory.computeIfAbsent(product.getCategoryName(), name -> new BitSet()).set(ordinal);
+			}
+			
+			PriceBucket bucket = PriceBucket.of(product.getPrice());
+			if (bucket != null) {
+				byPrice.computeIfAbsent(bucket, b -> new BitSet()).set(ordinal);
+			}
+			
+			byStatus.computeIfAbsent(statusOf(product), s -> new BitSet()).set(ordinal);
+		}
+		
+		if (orders != null) {
+			sortedOrdinals.putAll(orders);
+			return;
+		}
+		for (ProductSort sort : ProductSort.values()) {
+			sortedOrdinals.put(sort, IntStream.range(0, products.size())
+					.boxed()
+					.sorted((a, b) -> compare(sort, a, b))
+					.mapToInt(Integer::intValue)
+					.toArray());
+		}
+	}
+	
+	public static CatalogFacetIndex build(CatalogSnapshot snapshot) {
+		List<CatalogProduct> products = snapshot.getProducts();
+		String[] nameKeys = new String[products.size()];
+		for (int ordinal = 0; ordinal < products.size(); ordinal++) {
+			nameKeys[ordinal] = nameKey(nameOf(products.get(ordinal)));
+		}
+		return new CatalogFacetIndex(snapshot, nameKeys, null);
+	}
+	
+	/**
+	 * The index of {@code snapshot}, which differs from this index's snapshot
+	 * in product {@code productId} only (changed, added or removed). Every
+	 * other product keeps its relative place in each sort order, so the orders
+	 * are copied over in one pass each with that product taken out and put
+	 * back where it now belongs.
+	 */
+	public CatalogFacetIndex withProductChanged(CatalogSnapshot snapshot, int productId) {
+		List<CatalogProduct> next = snapshot.getProducts();
+		
+		// both lists are in id order, so the products kept are matched up in one merge
+		int[] remap = new int[products.size()];
+		int kept = 0;
+		int j = 0;
+		for (int ordinal = 0; ordinal < products.size(); ordinal++) {
+			int id = products.get(ordinal).getProductId();
+			while (j < next.size() && next.get(j).getProductId() < id) {
+				j++;
+			}
+			boolean same = id != productId && j < next.size() && next.get(j) == products.get(ordinal);
+			remap[ordinal] = same ? j : -1;
+			if (same) {
+				kept++;
+			}
+		}
+		int changed = ordinalOf(next, productId);
+		if (kept + (changed >= 0 ? 1 : 0) != next.size()) {
+			// more than that one product differs
+			return build(snapshot);
+		}
+		
+		String[] keys = new String[next.size()];
+		for (int ordinal = 0; ordinal < remap.length; ordinal++) {
+			if (remap[ordinal] >= 0) {
+				keys[remap[ordinal]] = nameKeys[ordinal];
+			}
+		}
+		if (changed >= 0) {
+			keys[changed] = nameKey(nameOf(next.get(changed)));
+		}
+		
+		Map<ProductSort, int[]> orders = new EnumMap<>(ProductSort.class);
+		for (ProductSort sort : ProductSort.values()) {
+			int[] order = new int[next.size()];
+			int size = 0;
+			boolean placed = changed < 0;
+			for (int previous : sortedOrdinals.get(sort)) {
+				int ordinal = remap[previous];
+				if (ordinal < 0) {
+					continue;
+				}
+				if (!placed && compare(sort, next, keys, changed, ordinal) < 0) {
+					order[size++] = changed;
+					placed = true;
+				}
+				order[size++] = ordinal;
+			}
+			if (!placed) {
+				order[size] = changed;
+			}
+			orders.put(sort, order);
+		}
+		return new CatalogFacetIndex(snapshot, keys, orders);
+	}
+	
+	public BitSet inStock(Map<Integer, Integer> stockLevels) {
+		BitSet inStock = new BitSet(products.size());
+		for (int ordinal = 0; ordinal < products.size(); ordinal++) {
+			CatalogProduct product = products.get(ordinal);
+			Integer stock = stockLevels.get(product.getProductId());
+			if ((stock != null ? stock : product.getStock()) > 0) {
+				inStock.set(ordinal);
+			}
+		}
+		return inStock;
+	}
+	
+	public Result query(ProductFilter filter, BitSet inStock, ProductSort sort, ProductCursor cursor, int limit) {
+		
+		BitSet category = null;
+		if (filter.getCategoryName() != null) {
+			category = new BitSet();
+			for (Map.Entry<String, BitSet> entry : byCategory.entrySet()) {
+				if (entry.getKey().equalsIgnoreCase(filter.getCategoryName())) {
+					category.or(entry.getValue());
+				}
+			}
+		}
+		BitSet price = filter.getPriceBuckets().isEmpty() ? null : union(byPrice, filter.getPriceBuckets());
+		BitSet status = filter.getStatuses().isEmpty() ? null : union(byStatus, filter.getStatuses());
+		BitSet stock = filter.isInStockOnly() ? inStock : null;
+		
+		BitSet matches = intersect(category, price, status, stock);
+		
+		// every facet is counted against the other facets' selections, so picking
+		// one category still shows how many products the sibling categories hold
+		Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+		
+		BitSet base = intersect(price, status, stock);
+		Map<String, Long> categoryCounts = new LinkedHashMap<>();
+		byCategory.forEach((name, bits) -> categoryCounts.put(name, countBoth(base, bits)));
+		facets.put(CATEGORY, categoryCounts);
+		
+		BitSet priceBase = intersect(category, status, stock);
+		Map<String, Long> priceCounts = new LinkedHashMap<>();
+		for (PriceBucket bucket : PriceBucket.values()) {
+			priceCounts.put(bucket.getLabel(), countBoth(priceBase, byPrice.get(bucket)));
+		}
+		facets.put(PRICE, priceCounts);
+		
+		BitSet statusBase = intersect(category, price, stock);
+		Map<String, Long> statusCounts = new LinkedHashMap<>();
+		for (Status value : Status.values()) {
+			statusCounts.put(value.name(), countBoth(statusBase, byStatus.get(value)));
+		}
+		facets.put(STATUS, statusCounts);
+		
+		BitSet stockBase = intersect(category, price, status);
+		long inStockCount = countBoth(stockBase, inStock);
+		Map<String, Long> stockCounts = new LinkedHashMap<>();
+		stockCounts.put("true", inStockCount);
+		stockCounts.put("false", stockBase.cardinality() - inStockCount);
+		facets.put(IN_STOCK, stockCounts);
+		
+		int[] order = sortedOrdinals.get(sort);
+		List<CatalogProduct> page = new ArrayList<>(Math.min(limit + 1, matches.cardinality()));
+		for (int i = cursor == null ? 0 : firstAfter(order, cursor); i < order.length && page.size() <= limit; i++) {
+			if (matches.get(order[i])) {
+				page.add(products.get(order[i]));
+			}
+		}
+		
+		boolean hasMore = page.size() > limit;
+		if (hasMore) {
+			page = page.subList(0, limit);
+		}
+		return new Result(page, hasMore, matches.cardinality(), facets);
+	}
+	
+	public static ProductCursor cursorAfter(ProductSort sort, CatalogProduct product) {
+		return ProductCursor.after(sort, product.getProductId(), priceOf(product), nameOf(product));
+	}
+	
+	// binary search for the first position that sorts after the cursor
+	private int firstAfter(int[] order, ProductCursor cursor) {
+		String cursorNameKey = cursor.getLastName() != null ? nameKey(cursor.getLastName()) : null;
+		int low = 0;
+		int high = order.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (compareToCursor(order[mid], cursor, cursorNameKey) > 0) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+	
+	private int compareToCursor(int ordinal, ProductCursor cursor, String cursorNameKey) {
+		CatalogProduct product = products.get(ordinal);
+		int id = Integer.compare(product.getProductId(), cursor.getLastId());
+		return switch (cursor.getSort()) {
+			case NEWEST -> -id;
+			case PRICE_ASC -> {
+				int price = priceOf(product).compareTo(cursor.getLastPrice());
+				yield price != 0 ? price : id;
+			}
+			case PRICE_DESC -> {
+				int price = priceOf(product).compareTo(cursor.getLastPrice());
+				yield price != 0 ? -price : -id;
+			}
+			case NAME -> {
+				int name = nameKeys[ordinal].compareTo(cursorNameKey);
+				yield name != 0 ? name : id;
+			}
+		};
+	}
+	
+	private int compare(ProductSort sort, int a, int b) {
+		return compare(sort, products, nameKeys, a, b);
+	}
+	
+	// the order of two ordinals under a sort; productId breaks ties so no two products are equal
+	private static int compare(ProductSort sort, List<CatalogProduct> products, String[] nameKeys, int a, int b) {
+		CatalogProduct first = products.get(a);
+		CatalogProduct second = products.get(b);
+		int id = Integer.compare(first.getProductId(), second.getProductId());
+		return switch (sort) {
+			case NEWEST -> -id;
+			case PRICE_ASC -> {
+				int price = priceOf(first).compareTo(priceOf(second));
+				yield price != 0 ? price : id;
+			}
+			case PRICE_DESC -> {
+				int price = priceOf(first).compareTo(priceOf(second));
+				yield price != 0 ? -price : -id;
+			}
+			case NAME -> {
+				int name = nameKeys[a].compareTo(nameKeys[b]);
+				yield name != 0 ? name : id;
+			}
+		};
+	}
+	
+	// lower case without accents: close to MySQL's _ci/_ai_ci collations, which ignore both
+	static String nameKey(String name) {
+		String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+		StringBuilder key = new StringBuilder(decomposed.length());
+		for (int i = 0; i < decomposed.length(); i++) {
+			char c = decomposed.charAt(i);
+			if (Character.getType(c) != Character.NON_SPACING_MARK) {
+				key.append(c);
+			}
+		}
+		return key.toString().toLowerCase(Locale.ROOT);
+	}
+	
+	private static int ordinalOf(List<CatalogProduct> products, int productId) {
+		int low = 0;
+		int high = products.size() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int id = products.get(mid).getProductId();
+			if (id < productId) {
+				low = mid + 1;
+			} else if (id > productId) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+	
+	static BigDecimal priceOf(CatalogProduct product) {
+		return product.getPrice() != null ? product.getPrice() : BigDecimal.ZERO;
+	}
+	
+	static String nameOf(CatalogProduct product) {
+		return product.getName() != null ? product.getName() : "";
+	}
+	
+	// products created from the admin screen carry no status yet; they are live
+	private static Status statusOf(CatalogProduct product) {
+		return product.getStatus() != null ? product.getStatus() : Status.ACTIVE;
+	}
+	
+	private static <K> BitSet union(Map<K, BitSet> index, Iterable<K> keys) {
+		BitSet union = new BitSet();
+		for (K key : keys) {
+			BitSet bits = index.get(key);
+			if (bits != null) {
+				union.or(bits);
+			}
+		}
+		return union;
+	}
+	
+	private BitSet intersect(BitSet... sets) {
+		BitSet result = (BitSet) all.clone();
+		for (BitSet set : sets) {
+			if (set != null) {
+				result.and(set);
+			}
+		}
+		return result;
+	}
+	
+	private static long countBoth(BitSet a, BitSet b) {
+		if (b == null) {
+			return 0;
+		}
+		BitSet both = (BitSet) a.clone();
+		both.and(b);
+		return both.cardinality();
+	}
+	
+	public static final class Result {
+		
+		private final List<CatalogProduct> products;
+		private final boolean hasMore;
+		private final long total;
+		private final Map<String, Map<String, Long>> facets;
+		
+		private Result(List<CatalogProduct> products, boolean hasMore, long total, Map<String, Map<String, Long>> facets) {
+			this.products = products;
+			this.hasMore = hasMore;
+			this.total = total;
+			this.facets = facets;
+		}
+		
+		public List<CatalogProduct> getProducts() {
+			return products;
+		}
+		
+		public boolean isHasMore() {
+			return hasMore;
+		}
+		
+		public long getTotal() {
+			return total;
+		}
+		
+		public Map<String, Map<String, Long>> getFacets() {
+			return facets;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.athixwear.service.catalog;
+
+import java.util.BitSet;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Rebuilds the {@link CatalogFacetIndex} whenever the catalog snapshot changes,
+ * incrementally when a single product changed.
+ * The in-stock bitset depends on stock levels rather than the snapshot and is
+ * rebuilt only when the {@link StockOverlay} has loaded new levels.
+ */
+@Service
+public class CatalogFacetService implements CatalogListener {
+	
+	private final StockOverlay stockOverlay;
+	
+	private volatile CatalogFacetIndex index;
+	private volatile InStockBits inStockBits;
+	
+	public CatalogFacetService(StockOverlay stockOverlay) {
+		this.stockOverlay = stockOverlay;
+	}
+	
+	@Override
+	public void onSnapshotLoaded(CatalogSnapshot snapshot) {
+		index = CatalogFacetIndex.build(snapshot);
+	}
+	
+	@Override
+	public void onProductChanged(int productId, CatalogProduct product, CatalogSnapshot snapshot) {
+		CatalogFacetIndex current = index;
+		index = current == null ? CatalogFacetIndex.build(snapshot) : current.withProductChanged(snapshot, productId);
+	}
+	
+	public CatalogFacetIndex.Result query(ProductFilter filter, ProductSort sort, ProductCursor cursor, int limit) {
+		CatalogFacetIndex current = index;
+		return current.query(filter, inStock(current), sort, cursor, limit);
+	}
+	
+	private BitSet inStock(CatalogFacetIndex current) {
+		Map<Integer, Integer> levels = stockOverlay.currentLevels();
+		InStockBits cached = inStockBits;
+		if (cached != null && cached.index == current && cached.levels == levels) {
+			return cached.bits;
+		}
+		
+		InStockBits rebuilt = new InStockBits(current, levels, current.inStock(levels));
+		inStockBits = rebuilt;
+		return rebuilt.bits;
+	}
+	
+	private static final class InStockBits {
+		private final CatalogFacetIndex index;
+		private final Map<Integer, Integer> levels;
+		private final BitSet bits;
+		
+		private InStockBits(CatalogFacetIndex index, Map<Integer, Integer> levels, BitSet bits) {
+			this.index = index;
+			this.levels = levels;
+			this.bits = bits;
+		}
+	}
+}
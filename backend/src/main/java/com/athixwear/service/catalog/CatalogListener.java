@@ -0,0 +1,15 @@
+package com.athixwear.service.catalog;
+
+/**
+ * Derived in-memory structures (search, facets, suggestions) implement this
+ * to follow the catalog snapshot. Callbacks run on the writer thread, after
+ * the new snapshot has been published and in snapshot version order.
+ */
+public interface CatalogListener {
+	
+	// a full reload: rebuild from scratch
+	void onSnapshotLoaded(CatalogSnapshot snapshot);
+	
+	// one product was created, updated or (product == null) deleted
+	void onProductChanged(int productId, CatalogProduct product, CatalogSnapshot snapshot);
+}
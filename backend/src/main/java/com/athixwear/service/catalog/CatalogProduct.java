@@ -0,0 +1,85 @@
+package com.athixwear.service.catalog;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.athixwear.dto.ProductResponse;
+import com.athixwear.entity.Product;
+import com.athixwear.entity.Status;
+
+/**
+ * Immutable copy of a product row, its category name and image URLs,
+ * as held by a {@link CatalogSnapshot}.
+ */
+public final class CatalogProduct {
+	
+	private final int productId;
+	private final String name;
+	private final String description;
+	private final BigDecimal price;
+	private final int stock;
+	private final Status status;
+	private final Integer categoryId;
+	private final String categoryName;
+	private final List<String> images;
+	
+	public CatalogProduct(Product product, List<String> images) {
+		this.productId = product.getProductId();
+		this.name = product.getName();
+		this.description = product.getDescription();
+		this.price = product.getPrice();
+		this.stock = product.getStock();
+		this.status = product.getStatus();
+		this.categoryId = product.getCategory() != null ? product.getCategory().getCategoryId() : null;
+		this.categoryName = product.getCategory() != null ? product.getCategory().getCategoryName() : null;
+		this.images = List.copyOf(images);
+	}
+	
+	public int getProductId() {
+		return productId;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public String getDescription() {
+		return description;
+	}
+	
+	public BigDecimal getPrice() {
+		return price;
+	}
+	
+	public int getStock() {
+		return stock;
+	}
+	
+	public Status getStatus() {
+		return status;
+	}
+	
+	public Integer getCategoryId() {
+		return categoryId;
+	}
+	
+	public String getCategoryName() {
+		return categoryName;
+	}
+	
+	public List<String> getImages() {
+		return images;
+	}
+	
+	public ProductResponse toResponse(int currentStock) {
+		ProductResponse response = new ProductResponse();
+		response.setProductId(productId);
+		response.setName(name);
+		response.setDescription(description);
+		response.setPrice(price);
+		response.setStock(currentStock);
+		response.setCategory(categoryName);
+		response.setImages(images);
+		return response;
+	}
+}
@@ -0,0 +1,91 @@
+package com.athixwear.service.catalog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only view of the whole catalog, indexed by product id and by category name.
+ * Never modified after construction: writes build a new snapshot (copy-on-write)
+ * which {@link CatalogSnapshotService} swaps in atomically.
+ */
+public final class CatalogSnapshot {
+	
+	private final long version;
+	private final List<CatalogProduct> products;
+	private final Map<Integer, CatalogProduct> byId;
+	private final Map<String, List<CatalogProduct>> byCategory;
+	private final Map<String, Integer> categoryIds;
+	
+	CatalogSnapshot(long version, Collection<CatalogProduct> products, Map<String, Integer> categoryIds) {
+		this.version = version;
+		
+		List<CatalogProduct> sorted = new ArrayList<>(products);
+		sorted.sort(Comparator.comparingInt(CatalogProduct::getProductId));
+		this.products = Collections.unmodifiableList(sorted);
+		
+		Map<Integer, CatalogProduct> ids = new HashMap<>();
+		Map<String, List<CatalogProduct>> categories = new HashMap<>();
+		for (CatalogProduct product : sorted) {
+			ids.put(product.getProductId(), product);
+			if (product.getCategoryName() != null) {
+				categories.computeIfAbsent(key(product.getCategoryName()), name -> new ArrayList<>())
+						.add(product);
+			}
+		}
+		categories.replaceAll((name, list) -> Collections.unmodifiableList(list));
+		
+		this.byId = Collections.unmodifiableMap(ids);
+		this.byCategory = Collections.unmodifiableMap(categories);
+		
+		Map<String, Integer> names = new LinkedHashMap<>();
+		categoryIds.forEach((name, id) -> names.put(key(name), id));
+		this.categoryIds = Collections.unmodifiableMap(names);
+	}
+	
+	public long getVersion() {
+		return version;
+	}
+	
+	public List<CatalogProduct> getProducts() {
+		return products;
+	}
+	
+	public CatalogProduct get(int productId) {
+		return byId.get(productId);
+	}
+	
+	public boolean hasCategory(String categoryName) {
+		return categoryIds.containsKey(key(categoryName));
+	}
+	
+	public Integer getCategoryId(String categoryName) {
+		return categoryIds.get(key(categoryName));
+	}
+	
+	public List<CatalogProduct> getProductsInCategory(String categoryName) {
+		return byCategory.getOrDefault(key(categoryName), List.of());
+	}
+	
+	CatalogSnapshot withProduct(long newVersion, CatalogProduct product) {
+		Map<Integer, CatalogProduct> copy = new HashMap<>(byId);
+		copy.put(product.getProductId(), product);
+		return new CatalogSnapshot(newVersion, copy.values(), categoryIds);
+	}
+	
+	CatalogSnapshot withoutProduct(long newVersion, int productId) {
+		Map<Integer, CatalogProduct> copy = new HashMap<>(byId);
+		copy.remove(productId);
+		return new CatalogSnapshot(newVersion, copy.values(), categoryIds);
+	}
+	
+	// category lookups ignore case, like the MySQL collation behind findByCategoryName
+	private static String key(String categoryName) {
+		return categoryName.toLowerCase();
+	}
+}
@@ -0,0 +1,152 @@
+package com.athixwear.service.catalog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.athixwear.entity.Category;
+import com.athixwear.entity.Product;
+import com.athixwear.event.CatalogChangedEvent;
+import com.athixwear.repository.CategoryRepository;
+import com.athixwear.repository.ProductImageRepository;
+import com.athixwear.repository.ProductRepository;
+
+/**
+ * Holds the current {@link CatalogSnapshot}. Reads are a single volatile load;
+ * writes (full reloads and per-product refreshes) are serialized and replace
+ * the snapshot in one reference swap once the admin transaction has committed.
+ */
+@Service
+public class CatalogSnapshotService {
+	
+	private final ProductRepository productRepository;
+	private final ProductImageRepository productImageRepository;
+	private final CategoryRepository categoryRepository;
+	private final StockOverlay stockOverlay;
+	private final List<CatalogListener> listeners;
+	
+	private final Object writeLock = new Object();
+	private volatile CatalogSnapshot snapshot;
+	private long version;
+	
+	public CatalogSnapshotService(
+			ProductRepository productRepository,
+			ProductImageRepository productImageRepository,
+			CategoryRepository categoryRepository,
+			StockOverlay stockOverlay,
+			List<CatalogListener> listeners) {
+		this.productRepository = productRepository;
+		this.productImageRepository = productImageRepository;
+		this.categoryRepository = categoryRepository;
+		this.stockOverlay = stockOverlay;
+		this.listeners = listeners;
+	}
+	
+	public CatalogSnapshot current() {
+		CatalogSnapshot current = snapshot;
+		if (current == null) {
+			synchronized (writeLock) {
+				if (snapshot == null) {
+					publishLoaded(load());
+				}
+				current = snapshot;
+			}
+		}
+		return current;
+	}
+	
+	// bumped on every product, image and category write; -1 until the first load
+	public long currentVersion() {
+		CatalogSnapshot current = snapshot;
+		return current == null ? -1 : current.getVersion();
+	}
+	
+	// build the snapshot (and everything derived from it) before the first request needs it
+	@EventListener(ApplicationReadyEvent.class)
+	public void warmUp() {
+		current();
+	}
+	
+	public void reload() {
+		synchronized (writeLock) {
+			publishLoaded(load());
+		}
+	}
+	
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(CatalogChangedEvent event) {
+		if (event.isFullReload()) {
+			reload();
+		} else {
+			refreshProduct(event.getProductId());
+		}
+		stockOverlay.invalidate();
+	}
+	
+	private void refreshProduct(int productId) {
+		synchronized (writeLock) {
+			if (snapshot == null) {
+				publishLoaded(load());
+				return;
+			}
+			
+			Optional<Product> product = productRepository.findById(productId);
+			if (product.isEmpty()) {
+				snapshot = snapshot.withoutProduct(++version, productId);
+				for (CatalogListener listener : listeners) {
+					listener.onProductChanged(productId, null, snapshot);
+				}
+				return;
+			}
+			
+			List<String> images = new ArrayList<>();
+			for (Object[] row : productImageRepository.findImageUrlsByProductIds(List.of(productId))) {
+				images.add((String) row[1]);
+			}
+			CatalogProduct entry = new CatalogProduct(product.get(), images);
+			snapshot = snapshot.withProduct(++version, entry);
+			for (CatalogListener listener : listeners) {
+				listener.onProductChanged(productId, entry, snapshot);
+			}
+		}
+	}
+	
+	private void publishLoaded(CatalogSnapshot loaded) {
+		snapshot = loaded;
+		for (CatalogListener listener : listeners) {
+			listener.onSnapshotLoaded(loaded);
+		}
+	}
+	
+	// products with categories, all image URLs and all categories: three queries whatever the catalog size
+	private CatalogSnapshot load() {
+		List<Product> products = productRepository.findAllWithCategory();
+		
+		Map<Integer, List<String>> imagesByProduct = new HashMap<>();
+		for (Object[] row : productImageRepository.findAllImageUrls()) {
+			imagesByProduct
+					.computeIfAbsent((Integer) row[0], id -> new ArrayList<>())
+					.add((String) row[1]);
+		}
+		
+		Map<String, Integer> categoryIds = new HashMap<>();
+		for (Category category : categoryRepository.findAll()) {
+			categoryIds.put(category.getCategoryName(), category.getCategoryId());
+		}
+		
+		List<CatalogProduct> entries = new ArrayList<>(products.size());
+		for (Product product : products) {
+			entries.add(new CatalogProduct(
+					product,
+					imagesByProduct.getOrDefault(product.getProductId(), List.of())));
+		}
+		return new CatalogSnapshot(++version, entries, categoryIds);
+	}
+}
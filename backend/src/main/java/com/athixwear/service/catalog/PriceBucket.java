@@ -0,0 +1,52 @@
+package com.athixwear.service.catalog;
+
+import java.math.BigDecimal;
+
+import com.athixwear.exception.BadRequestException;
+
+public enum PriceBucket {
+	
+	UNDER_500("under-500", 0, 500),
+	FROM_500("500-999", 500, 1000),
+	FROM_1000("1000-1999", 1000, 2000),
+	FROM_2000("2000-4999", 2000, 5000),
+	FROM_5000("5000-plus", 5000, Long.MAX_VALUE);
+	
+	private final String label;
+	private final long min;
+	private final long maxExclusive;
+	
+	PriceBucket(String label, long min, long maxExclusive) {
+		this.label = label;
+		this.min = min;
+		this.maxExclusive = maxExclusive;
+	}
+	
+	public String getLabel() {
+		return label;
+	}
+	
+	public boolean contains(BigDecimal price) {
+		return price != null
+				&& price.compareTo(BigDecimal.valueOf(min)) >= 0
+				&& (maxExclusive == Long.MAX_VALUE || price.compareTo(BigDecimal.valueOf(maxExclusive)) < 0);
+	}
+	
+	public static PriceBucket of(BigDecimal price) {
+		for (PriceBucket bucket : values()) {
+			if (bucket.contains(price)) {
+				return bucket;
+			}
+		}
+		return null;
+	}
+	
+	public static PriceBucket fromLabel(String label) {
+		for (PriceBucket bucket : values()) {
+			if (bucket.label.equalsIgnoreCase(label.trim())) {
+				return bucket;
+			}
+		}
+		throw new BadRequestException("Invalid price range: " + label);
+	}
+}
@@ -0,0 +1,83 @@
+package com.athixwear.service.catalog;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.athixwear.exception.BadRequestException;
+
+/**
+ * Position of the last product on a page: the sort key plus productId.
+ * Clients only ever see the encoded form and hand it back as-is.
+ */
+public class ProductCursor {
+	
+	private static final String SEPARATOR = "|";
+	
+	private final ProductSort sort;
+	private final int lastId;
+	private final BigDecimal lastPrice;
+	private final String lastName;
+	
+	private ProductCursor(ProductSort sort, int lastId, BigDecimal lastPrice, String lastName) {
+		this.sort = sort;
+		this.lastId = lastId;
+		this.lastPrice = lastPrice;
+		this.lastName = lastName;
+	}
+	
+	public static ProductCursor after(ProductSort sort, int productId, BigDecimal price, String name) {
+		return new ProductCursor(sort, productId, price, name);
+	}
+	
+	public ProductSort getSort() {
+		return sort;
+	}
+	
+	public int getLastId() {
+		return lastId;
+	}
+	
+	public BigDecimal getLastPrice() {
+		return lastPrice;
+	}
+	
+	public String getLastName() {
+		return lastName;
+	}
+	
+	public String encode() {
+		String key = switch (sort) {
+			case NEWEST -> "";
+			case PRICE_ASC, PRICE_DESC -> lastPrice.toPlainString();
+			case NAME -> lastName;
+		};
+		String raw = sort.name() + SEPARATOR + lastId + SEPARATOR + key;
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	public static ProductCursor decode(String encoded, ProductSort expectedSort) {
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+			// the key is last so names containing the separator survive the round trip
+			String[] parts = raw.split("\\|", 3);
+			
+			ProductSort sort = ProductSort.valueOf(parts[0]);
+			if (sort != expectedSort) {
+				throw new BadRequestException("Cursor does not match sort " + expectedSort.getParam());
+			}
+			
+			int lastId = Integer.parseInt(parts[1]);
+			return switch (sort) {
+				case NEWEST -> new ProductCursor(sort, lastId, null, null);
+				case PRICE_ASC, PRICE_DESC -> new ProductCursor(sort, lastId, new BigDecimal(parts[2]), null);
+				case NAME -> new ProductCursor(sort, lastId, null, parts[2]);
+			};
+		} catch (BadRequestException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			throw new BadRequestException("Invalid cursor");
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.athixwear.service.catalog;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import com.athixwear.entity.Status;
+import com.athixwear.exception.BadRequestException;
+
+/**
+ * Facet selections for a catalog query. Values within one facet are OR-ed,
+ * facets are AND-ed with each other.
+ */
+public class ProductFilter {
+	
+	private final String categoryName;
+	private final Set<PriceBucket> priceBuckets;
+	private final Set<Status> statuses;
+	private final boolean inStockOnly;
+	
+	public ProductFilter(String categoryName, Set<PriceBucket> priceBuckets, Set<Status> statuses, boolean inStockOnly) {
+		this.categoryName = categoryName == null || categoryName.isBlank() ? null : categoryName;
+		this.priceBuckets = priceBuckets.isEmpty() ? EnumSet.noneOf(PriceBucket.class) : EnumSet.copyOf(priceBuckets);
+		this.statuses = statuses.isEmpty() ? EnumSet.noneOf(Status.class) : EnumSet.copyOf(statuses);
+		this.inStockOnly = inStockOnly;
+	}
+	
+	public static ProductFilter fromParams(String category, List<String> prices, List<String> statuses, Boolean inStock) {
+		Set<PriceBucket> buckets = EnumSet.noneOf(PriceBucket.class);
+		if (prices != null) {
+			prices.forEach(price -> buckets.add(PriceBucket.fromLabel(price)));
+		}
+		
+		Set<Status> statusSet = EnumSet.noneOf(Status.class);
+		if (statuses != null) {
+			for (String status : statuses) {
+				try {
+					statusSet.add(Status.valueOf(status.trim().toUpperCase()));
+				} catch (IllegalArgumentException e) {
+					throw new BadRequestException("Invalid status: " + status);
+				}
+			}
+		}
+		return new ProductFilter(category, buckets, statusSet, Boolean.TRUE.equals(inStock));
+	}
+	
+	public String getCategoryName() {
+		return categoryName;
+	}
+	
+	public Set<PriceBucket> getPriceBuckets() {
+		return priceBuckets;
+	}
+	
+	public Set<Status> getStatuses() {
+		return statuses;
+	}
+	
+	public boolean isInStockOnly() {
+		return inStockOnly;
+	}
+}
@@ -0,0 +1,183 @@
+package com.athixwear.service.catalog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Product detail responses rendered once to JSON (and gzip when that pays off)
+ * and served as bytes afterwards. An entry is only valid for the catalog entry
+ * and stock level it was rendered from: product and image writes drop it
+ * through the snapshot callbacks, stock changes are caught when it is read.
+ * Total size is bounded in bytes; eviction is CLOCK (second chance), so a hit
+ * only sets a flag and never takes a lock.
+ */
+@Component
+public class ProductJsonCache implements CatalogListener {
+	
+	// below this gzip costs more than it saves
+	private static final int GZIP_MIN_BYTES = 1024;
+	
+	private final ObjectMapper objectMapper;
+	private final StockOverlay stockOverlay;
+	private final long maxBytes;
+	private final boolean gzip;
+	
+	private final ConcurrentHashMap<Integer, Rendered> entries = new ConcurrentHashMap<>();
+	private final AtomicLong totalBytes = new AtomicLong();
+	private final Object evictionLock = new Object();
+	private Iterator<Rendered> hand;
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	
+	public ProductJsonCache(ObjectMapper objectMapper, StockOverlay stockOverlay,
+			@Value("${catalog.json-cache.max-bytes:16777216}") long maxBytes,
+			@Value("${catalog.json-cache.gzip:true}") boolean gzip) {
+		this.objectMapper = objectMapper;
+		this.stockOverlay = stockOverlay;
+		this.maxBytes = maxBytes;
+		this.gzip = gzip;
+	}
+	
+	public Rendered get(CatalogProduct product) {
+		int stock = stockOverlay.stockOf(product);
+		Rendered cached = entries.get(product.getProductId());
+		if (cached != null && cached.product == product && cached.stock == stock) {
+			cached.referenced = true;
+			hits.increment();
+			return cached;
+		}
+		
+		misses.increment();
+		Rendered rendered = render(product, stock);
+		Rendered previous = entries.put(product.getProductId(), rendered);
+		totalBytes.addAndGet(rendered.size() - (previous != null ? previous.size() : 0));
+		if (totalBytes.get() > maxBytes) {
+			evict();
+		}
+		return rendered;
+	}
+	
+	@Override
+	public void onSnapshotLoaded(CatalogSnapshot snapshot) {
+		clear();
+	}
+	
+	@Override
+	public void onProductChanged(int productId, CatalogProduct product, CatalogSnapshot snapshot) {
+		Rendered removed = entries.remove(productId);
+		if (removed != null) {
+			totalBytes.addAndGet(-removed.size());
+		}
+	}
+	
+	public void clear() {
+		synchronized (evictionLock) {
+			entries.clear();
+			totalBytes.set(0);
+			hand = null;
+		}
+	}
+	
+	public Map<String, Object> stats() {
+		long hitCount = hits.sum();
+		long missCount = misses.sum();
+		long lookups = hitCount + missCount;
+		
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("hits", hitCount);
+		stats.put("misses", missCount);
+		stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+		stats.put("evictions", evictions.sum());
+		stats.put("entries", entries.size());
+		stats.put("bytes", totalBytes.get());
+		stats.put("maxBytes", maxBytes);
+		return stats;
+	}
+	
+	// sweep until back under the bound, giving recently read entries a second chance
+	private void evict() {
+		synchronized (evictionLock) {
+			int budget = entries.size() * 2;
+			while (totalBytes.get() > maxBytes && budget-- > 0) {
+				if (hand == null || !hand.hasNext()) {
+					hand = entries.values().iterator();
+					if (!hand.hasNext()) {
+						return;
+					}
+				}
+				Rendered candidate = hand.next();
+				if (candidate.referenced) {
+					candidate.referenced = false;
+				} else if (entries.remove(candidate.productId, candidate)) {
+					totalBytes.addAndGet(-candidate.size());
+					evictions.increment();
+				}
+			}
+		}
+	}
+	
+	private Rendered render(CatalogProduct product, int stock) {
+		try {
+			byte[] json = objectMapper.writeValueAsBytes(product.toResponse(stock));
+			byte[] gzipped = gzip && json.length >= GZIP_MIN_BYTES ? gzip(json) : null;
+			return new Rendered(product.getProductId(), product, stock, json, gzipped);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not render product " + product.getProductId(), e);
+		}
+	}
+	
+	private static byte[] gzip(byte[] json) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 3);
+		try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+			zip.write(json);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return out.toByteArray();
+	}
+	
+	public static final class Rendered {
+		private final int productId;
+		private final CatalogProduct product;
+		private final int stock;
+		private final byte[] json;
+		private final byte[] gzipped;
+		private volatile boolean referenced;
+		
+		private Rendered(int productId, CatalogProduct product, int stock, byte[] json, byte[] gzipped) {
+			this.productId = productId;
+			this.product = product;
+			this.stock = stock;
+			this.json = json;
+			this.gzipped = gzipped;
+		}
+		
+		public byte[] getJson() {
+			return json;
+		}
+		
+		// null when the body is too small to be worth compressing
+		public byte[] getGzipped() {
+			return gzipped;
+		}
+		
+		private long size() {
+			return json.length + (gzipped != null ? gzipped.length : 0);
+		}
+	}
+}
@@ -0,0 +1,286 @@
+package com.athixwear.service.catalog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over product name, category name and description.
+ * Ranking is BM25 over a field-weighted term frequency (name counts more than
+ * category, category more than description). Query terms also match indexed
+ * terms they are a prefix of and, when nothing matches exactly, terms within
+ * one or two edits, both at a discount. Typo matching only tries terms with
+ * the same first letter, one range of the sorted term map, so a miss costs a
+ * slice of the vocabulary rather than all of it. Documents are added and
+ * removed one at a time so product writes never need a rebuild.
+ */
+public class ProductSearchIndex {
+	
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+	
+	private static final int NAME_WEIGHT = 3;
+	private static final int CATEGORY_WEIGHT = 2;
+	private static final int DESCRIPTION_WEIGHT = 1;
+	
+	private static final double PREFIX_DISCOUNT = 0.6;
+	private static final double FUZZY_DISCOUNT = 0.4;
+	private static final int MAX_EXPANSIONS = 32;
+	
+	private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "the", "for", "with", "of", "in", "on");
+	
+	// term -> (productId -> weighted term frequency), sorted so prefixes are a range scan
+	private final TreeMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+	private final Map<Integer, Document> documents = new HashMap<>();
+	private long totalLength;
+	
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	public void upsert(int productId, String name, String categoryName, String description) {
+		Map<String, Integer> frequencies = new HashMap<>();
+		int length = 0;
+		length += addTerms(frequencies, name, NAME_WEIGHT);
+		length += addTerms(frequencies, categoryName, CATEGORY_WEIGHT);
+		length += addTerms(frequencies, description, DESCRIPTION_WEIGHT);
+		
+		lock.writeLock().lock();
+		try {
+			removeLocked(productId);
+			for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+				postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>())
+						.put(productId, entry.getValue());
+			}
+			documents.put(productId, new Document(length, frequencies.keySet()));
+			totalLength += length;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	public void remove(int productId) {
+		lock.writeLock().lock();
+		try {
+			removeLocked(productId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return documents.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Product ids ranked best first, at most {@code limit} of them.
+	 */
+	public List<Integer> search(String query, int limit) {
+		List<String> tokens = tokenize(query);
+		if (tokens.isEmpty() || limit <= 0) {
+			return List.of();
+		}
+		
+		Map<Integer, double[]> scores = new HashMap<>();
+		
+		lock.readLock().lock();
+		try {
+			if (documents.isEmpty()) {
+				return List.of();
+			}
+			double averageLength = (double) totalLength / documents.size();
+			
+			for (String token : new HashSet<>(tokens)) {
+				Map<Integer, Double> tokenScores = new HashMap<>();
+				for (Map.Entry<String, Double> expansion : expand(token).entrySet()) {
+					Map<Integer, Integer> docs = postings.get(expansion.getKey());
+					double idf = idf(docs.size());
+					
+					for (Map.Entry<Integer, Integer> posting : docs.entrySet()) {
+						int length = documents.get(posting.getKey()).length;
+						double tf = posting.getValue();
+						double bm25 = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+						// a token scores through its best matching term only
+						tokenScores.merge(posting.getKey(), bm25 * expansion.getValue(), Math::max);
+					}
+				}
+				
+				tokenScores.forEach((productId, score) -> {
+					double[] total = scores.computeIfAbsent(productId, id -> new double[2]);
+					total[0] += score;
+					total[1]++;
+				});
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		
+		int queryTokens = new HashSet<>(tokens).size();
+		PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(
+				(a, b) -> a.getValue().equals(b.getValue())
+						? Integer.compare(b.getKey(), a.getKey())
+						: Double.compare(a.getValue(), b.getValue()));
+		
+		for (Map.Entry<Integer, double[]> entry : scores.entrySet()) {
+			// documents matching more of the query terms rank ahead
+			double coverage = entry.getValue()[1] / queryTokens;
+			top.offer(Map.entry(entry.getKey(), entry.getValue()[0] * coverage * coverage));
+			if (top.size() > limit) {
+				top.poll();
+			}
+		}
+		
+		List<Integer> ranked = new ArrayList<>(top.size());
+		while (!top.isEmpty()) {
+			ranked.add(0, top.poll().getKey());
+		}
+		return ranked;
+	}
+	
+	// indexed terms a query token stands for, with their score multiplier
+	private Map<String, Double> expand(String token) {
+		Map<String, Double> terms = new HashMap<>();
+		if (postings.containsKey(token)) {
+			terms.put(token, 1.0);
+		}
+		
+		NavigableMap<String, Map<Integer, Integer>> prefixed =
+				postings.subMap(token, false, token + Character.MAX_VALUE, false);
+		for (String term : prefixed.keySet()) {
+			if (terms.size() >= MAX_EXPANSIONS) {
+				break;
+			}
+			terms.put(term, PREFIX_DISCOUNT * token.length() / term.length());
+		}
+		
+		if (terms.isEmpty() && token.length() >= 4) {
+			int maxEdits = token.length() >= 8 ? 2 : 1;
+			String first = token.substring(0, 1);
+			for (String term : postings.subMap(first, true, first + Character.MAX_VALUE, false).keySet()) {
+				if (Math.abs(term.length() - token.length()) <= maxEdits
+						&& editDistance(token, term, maxEdits) <= maxEdits) {
+					terms.put(term, FUZZY_DISCOUNT);
+					if (terms.size() >= MAX_EXPANSIONS) {
+						break;
+					}
+				}
+			}
+		}
+		return terms;
+	}
+	
+	private double idf(int documentFrequency) {
+		int n = documents.size();
+		return Math.log(1 + (n - documentFrequency + 0.5) / (documentFrequency + 0.5));
+	}
+	
+	private void removeLocked(int productId) {
+		Document previous = documents.remove(productId);
+		if (previous == null) {
+			return;
+		}
+		for (String term : previous.terms) {
+			Map<Integer, Integer> docs = postings.get(term);
+			docs.remove(productId);
+			if (docs.isEmpty()) {
+				postings.remove(term);
+			}
+		}
+		totalLength -= previous.length;
+	}
+	
+	private static int addTerms(Map<String, Integer> frequencies, String text, int weight) {
+		List<String> tokens = tokenize(text);
+		for (String token : tokens) {
+			frequencies.merge(token, weight, Integer::sum);
+		}
+		return tokens.size() * weight;
+	}
+	
+	static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		if (text == null) {
+			return tokens;
+		}
+		
+		StringBuilder current = new StringBuilder();
+		String lower = text.toLowerCase(Locale.ROOT);
+		for (int i = 0; i <= lower.length(); i++) {
+			char c = i < lower.length() ? lower.charAt(i) : ' ';
+			if (Character.isLetterOrDigit(c)) {
+				current.append(c);
+			} else if (current.length() > 0) {
+				String token = normalize(current.toString());
+				if (!STOP_WORDS.contains(token)) {
+					tokens.add(token);
+				}
+				current.setLength(0);
+			}
+		}
+		return tokens;
+	}
+	
+	// crude plural folding, applied the same way to products and queries
+	private static String normalize(String token) {
+		if (token.length() > 4 && token.endsWith("ies")) {
+			return token.substring(0, token.length() - 3) + "y";
+		}
+		if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+			return token.substring(0, token.length() - 1);
+		}
+		return token;
+	}
+	
+	// optimal string alignment distance, giving up once it exceeds max
+	static int editDistance(String a, String b, int max) {
+		int[] previous2 = new int[b.length() + 1];
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		
+		for (int j = 0; j <= b.length(); j++) {
+			previous[j] = j;
+		}
+		
+		for (int i = 1; i <= a.length(); i++) {
+			current[0] = i;
+			int rowMin = current[0];
+			for (int j = 1; j <= b.length(); j++) {
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+					current[j] = Math.min(current[j], previous2[j - 2] + 1);
+				}
+				rowMin = Math.min(rowMin, current[j]);
+			}
+			if (rowMin > max) {
+				return max + 1;
+			}
+			int[] recycled = previous2;
+			previous2 = previous;
+			previous = current;
+			current = recycled;
+		}
+		return previous[b.length()];
+	}
+	
+	private static final class Document {
+		private final int length;
+		private final Set<String> terms;
+		
+		private Document(int length, Set<String> terms) {
+			this.length = length;
+			this.terms = Set.copyOf(terms);
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package com.athixwear.service.catalog;
+
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the {@link ProductSearchIndex} in step with the catalog snapshot.
+ * A full reload builds a new index and swaps it in, so searches keep using
+ * the previous one meanwhile instead of seeing it empty or half filled.
+ */
+@Service
+public class ProductSearchService implements CatalogListener {
+	
+	private volatile ProductSearchIndex index = new ProductSearchIndex();
+	
+	@Override
+	public void onSnapshotLoaded(CatalogSnapshot snapshot) {
+		ProductSearchIndex loaded = new ProductSearchIndex();
+		for (CatalogProduct product : snapshot.getProducts()) {
+			add(loaded, product);
+		}
+		index = loaded;
+	}
+	
+	@Override
+	public void onProductChanged(int productId, CatalogProduct product, CatalogSnapshot snapshot) {
+		if (product == null) {
+			index.remove(productId);
+		} else {
+			add(index, product);
+		}
+	}
+	
+	public List<Integer> search(String query, int limit) {
+		return index.search(query, limit);
+	}
+	
+	private static void add(ProductSearchIndex index, CatalogProduct product) {
+		index.upsert(product.getProductId(), product.getName(), product.getCategoryName(), product.getDescription());
+	}
+}
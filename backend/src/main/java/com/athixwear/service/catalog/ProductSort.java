@@ -0,0 +1,47 @@
+package com.athixwear.service.catalog;
+
+import org.springframework.data.domain.Sort;
+
+import com.athixwear.exception.BadRequestException;
+
+public enum ProductSort {
+	
+	NEWEST("newest"),
+	PRICE_ASC("price_asc"),
+	PRICE_DESC("price_desc"),
+	NAME("name");
+	
+	private final String param;
+	
+	ProductSort(String param) {
+		this.param = param;
+	}
+	
+	public String getParam() {
+		return param;
+	}
+	
+	// productId is always the tie-breaker so every page boundary is unique
+	public Sort toSort() {
+		return switch (this) {
+			case NEWEST -> Sort.by(Sort.Direction.DESC, "productId");
+			case PRICE_ASC -> Sort.by(Sort.Order.asc("price"), Sort.Order.asc("productId"));
+			case PRICE_DESC -> Sort.by(Sort.Order.desc("price"), Sort.Order.desc("productId"));
+			case NAME -> Sort.by(Sort.Order.asc("name"), Sort.Order.asc("productId"));
+		};
+	}
+	
+	public static ProductSort fromParam(String value) {
+		if (value == null || value.isBlank()) {
+			return NEWEST;
+		}
+		
+		String normalized = value.trim().toLowerCase().replace('-', '_');
+		for (ProductSort sort : values()) {
+			if (sort.param.equals(normalized)) {
+				return sort;
+			}
+		}
+		throw new BadRequestException("Invalid sort: " + value);
+	}
+}
@@ -0,0 +1,273 @@
+package com.athixwear.service.catalog;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix trie over product and category names for type-ahead suggestions.
+ * Every word start of a name is inserted as a key, so "air max 90" completes
+ * from "air", "max" and "90". Each node caches the best {@code topK} entries
+ * below it, which makes a lookup one walk down the prefix and no scan at all.
+ * Entries are added and removed one at a time; only the caches along the
+ * affected paths are recomputed.
+ */
+public class ProductSuggestIndex {
+	
+	public enum Type {
+		PRODUCT, CATEGORY
+	}
+	
+	// best weight first, then the shorter text, then alphabetical so results are stable
+	private static final Comparator<Entry> RANKING = Comparator
+			.comparingLong(Entry::getWeight).reversed()
+			.thenComparingInt(entry -> entry.getText().length())
+			.thenComparing(Entry::getText)
+			.thenComparing(Entry::getKey);
+	
+	private final int topK;
+	private final Node root = new Node();
+	private final Map<String, Entry> entries = new HashMap<>();
+	
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	public ProductSuggestIndex(int topK) {
+		this.topK = topK;
+	}
+	
+	public void upsert(Entry entry) {
+		lock.writeLock().lock();
+		try {
+			Entry previous = entries.put(entry.getKey(), entry);
+			if (previous != null) {
+				for (String key : keys(previous.getText())) {
+					removeFromPath(key, previous);
+				}
+			}
+			for (String key : keys(entry.getText())) {
+				addToPath(key, entry);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	public void remove(String entryKey) {
+		lock.writeLock().lock();
+		try {
+			Entry previous = entries.remove(entryKey);
+			if (previous != null) {
+				for (String key : keys(previous.getText())) {
+					removeFromPath(key, previous);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	public Entry get(String entryKey) {
+		lock.readLock().lock();
+		try {
+			return entries.get(entryKey);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return entries.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Best completions of {@code prefix}, at most {@code limit} (capped at topK).
+	 */
+	public List<Entry> suggest(String prefix, int limit) {
+		String normalized = normalize(prefix);
+		if (normalized.isEmpty() || limit <= 0) {
+			return List.of();
+		}
+		
+		lock.readLock().lock();
+		try {
+			Node node = root;
+			for (int i = 0; i < normalized.length() && node != null; i++) {
+				node = node.children.get(normalized.charAt(i));
+			}
+			if (node == null) {
+				return List.of();
+			}
+			return List.copyOf(node.best.subList(0, Math.min(limit, node.best.size())));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	private void addToPath(String key, Entry entry) {
+		Node node = root;
+		offer(node, entry);
+		for (int i = 0; i < key.length(); i++) {
+			node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+			offer(node, entry);
+		}
+		node.terminals.add(entry);
+	}
+	
+	private void offer(Node node, Entry entry) {
+		List<Entry> best = node.best;
+		// one entry reaches a shared prefix through each of its words
+		if (best.contains(entry)) {
+			return;
+		}
+		if (best.size() == topK && RANKING.compare(entry, best.get(best.size() - 1)) >= 0) {
+			return;
+		}
+		int position = 0;
+		while (position < best.size() && RANKING.compare(best.get(position), entry) < 0) {
+			position++;
+		}
+		best.add(position, entry);
+		if (best.size() > topK) {
+			best.remove(best.size() - 1);
+		}
+	}
+	
+	private void removeFromPath(String key, Entry entry) {
+		List<Node> path = new ArrayList<>(key.length() + 1);
+		Node node = root;
+		path.add(node);
+		for (int i = 0; i < key.length(); i++) {
+			node = node.children.get(key.charAt(i));
+			if (node == null) {
+				return;
+			}
+			path.add(node);
+		}
+		node.terminals.remove(entry);
+		
+		// bottom-up: a node's cache is rebuilt from its own terminals and its children's caches
+		for (int depth = path.size() - 1; depth >= 0; depth--) {
+			Node current = path.get(depth);
+			if (depth < key.length()) {
+				Node child = path.get(depth + 1);
+				if (child.terminals.isEmpty() && child.children.isEmpty()) {
+					current.children.remove(key.charAt(depth));
+				}
+			}
+			if (current.best.contains(entry)) {
+				recompute(current);
+			}
+		}
+	}
+	
+	private void recompute(Node node) {
+		List<Entry> candidates = new ArrayList<>(node.terminals);
+		for (Node child : node.children.values()) {
+			candidates.addAll(child.best);
+		}
+		candidates.sort(RANKING);
+		
+		List<Entry> best = new ArrayList<>(topK);
+		for (Entry candidate : candidates) {
+			if (best.size() == topK) {
+				break;
+			}
+			// the same entry can reach a node through more than one child
+			if (!best.contains(candidate)) {
+				best.add(candidate);
+			}
+		}
+		node.best = best;
+	}
+	
+	// the whole name plus every suffix that starts at a word
+	static List<String> keys(String text) {
+		String normalized = normalize(text);
+		List<String> keys = new ArrayList<>();
+		if (normalized.isEmpty()) {
+			return keys;
+		}
+		Set<String> unique = new LinkedHashSet<>();
+		unique.add(normalized);
+		for (int i = 1; i < normalized.length(); i++) {
+			if (normalized.charAt(i - 1) == ' ') {
+				unique.add(normalized.substring(i));
+			}
+		}
+		keys.addAll(unique);
+		return keys;
+	}
+	
+	static String normalize(String text) {
+		if (text == null) {
+			return "";
+		}
+		StringBuilder normalized = new StringBuilder(text.length());
+		boolean space = false;
+		for (char c : text.toLowerCase(Locale.ROOT).toCharArray()) {
+			if (Character.isLetterOrDigit(c)) {
+				if (space && normalized.length() > 0) {
+					normalized.append(' ');
+				}
+				normalized.append(c);
+				space = false;
+			} else {
+				space = true;
+			}
+		}
+		return normalized.toString();
+	}
+	
+	private static final class Node {
+		private final Map<Character, Node> children = new HashMap<>(4);
+		private final List<Entry> terminals = new ArrayList<>(1);
+		private List<Entry> best = new ArrayList<>(1);
+	}
+	
+	public static final class Entry {
+		private final String key;
+		private final String text;
+		private final Type type;
+		private final Integer productId;
+		private final long weight;
+		
+		public Entry(String key, String text, Type type, Integer productId, long weight) {
+			this.key = key;
+			this.text = text;
+			this.type = type;
+			this.productId = productId;
+			this.weight = weight;
+		}
+		
+		public String getKey() {
+			return key;
+		}
+		
+		public String getText() {
+			return text;
+		}
+		
+		public Type getType() {
+			return type;
+		}
+		
+		public Integer getProductId() {
+			return productId;
+		}
+		
+		public long getWeight() {
+			return weight;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package com.athixwear.service.catalog;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.athixwear.entity.SalesWindow;
+import com.athixwear.repository.ProductSalesRankRepository;
+
+/**
+ * Keeps the {@link ProductSuggestIndex} in step with the catalog snapshot.
+ * Products are weighted by units sold and categories by the units sold across
+ * their products. Units come from the all-time best-seller ranks, which are
+ * already summed from the daily sales rollup, and are re-read on a scheduled
+ * thread; snapshot reloads and suggestions reuse the last weights. Only the
+ * entries whose weight actually moved are re-inserted.
+ */
+@Service
+public class ProductSuggestService implements CatalogListener {
+	
+	private static final int TOP_K = 10;
+	private static final String PRODUCT_KEY = "p:";
+	private static final String CATEGORY_KEY = "c:";
+	
+	private final ProductSalesRankRepository salesRankRepository;
+	private final ProductSuggestIndex index = new ProductSuggestIndex(TOP_K);
+	
+	// guards every index write: catalog callbacks and the sales refresh
+	private final ReentrantLock updateLock = new ReentrantLock();
+	private CatalogSnapshot snapshot;
+	private Map<Integer, Long> unitsSold = Map.of();
+	private Set<String> indexedCategories = Set.of();
+	
+	public ProductSuggestService(ProductSalesRankRepository salesRankRepository) {
+		this.salesRankRepository = salesRankRepository;
+	}
+	
+	@Override
+	public void onSnapshotLoaded(CatalogSnapshot loaded) {
+		updateLock.lock();
+		try {
+			for (CatalogProduct product : loaded.getProducts()) {
+				index.upsert(productEntry(product));
+			}
+			if (snapshot != null) {
+				for (CatalogProduct product : snapshot.getProducts()) {
+					if (loaded.get(product.getProductId()) == null) {
+						index.remove(PRODUCT_KEY + product.getProductId());
+					}
+				}
+			}
+			snapshot = loaded;
+			syncCategories();
+		} finally {
+			updateLock.unlock();
+		}
+	}
+	
+	@Override
+	public void onProductChanged(int productId, CatalogProduct product, CatalogSnapshot changed) {
+		updateLock.lock();
+		try {
+			if (product == null) {
+				index.remove(PRODUCT_KEY + productId);
+			} else {
+				index.upsert(productEntry(product));
+			}
+			snapshot = changed;
+			// a product move or delete shifts the weight of its categories
+			syncCategories();
+		} finally {
+			updateLock.unlock();
+		}
+	}
+	
+	public List<ProductSuggestIndex.Entry> suggest(String prefix, int limit) {
+		return index.suggest(prefix, Math.min(limit, TOP_K));
+	}
+	
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(fixedDelayString = "${catalog.suggest.weights-refresh-ms:600000}")
+	public void refreshWeights() {
+		// read before taking the lock, so catalog callbacks never wait on the query
+		Map<Integer, Long> loaded = loadUnitsSold();
+		updateLock.lock();
+		try {
+			unitsSold = loaded;
+			if (snapshot == null) {
+				return;
+			}
+			for (CatalogProduct product : snapshot.getProducts()) {
+				ProductSuggestIndex.Entry current = index.get(PRODUCT_KEY + product.getProductId());
+				if (current == null || current.getWeight() != weightOf(product.getProductId())) {
+					index.upsert(productEntry(product));
+				}
+			}
+			syncCategories();
+		} finally {
+			updateLock.unlock();
+		}
+	}
+	
+	private void syncCategories() {
+		Map<String, String> names = new LinkedHashMap<>();
+		Map<String, Long> weights = new HashMap<>();
+		for (CatalogProduct product : snapshot.getProducts()) {
+			if (product.getCategoryName() == null) {
+				continue;
+			}
+			String key = CATEGORY_KEY + product.getCategoryName().toLowerCase();
+			names.putIfAbsent(key, product.getCategoryName());
+			weights.merge(key, weightOf(product.getProductId()), Long::sum);
+		}
+		
+		for (Map.Entry<String, String> category : names.entrySet()) {
+			String key = category.getKey();
+			ProductSuggestIndex.Entry current = index.get(key);
+			long weight = weights.get(key);
+			if (current == null || current.getWeight() != weight || !current.getText().equals(category.getValue())) {
+				index.upsert(new ProductSuggestIndex.Entry(
+						key, category.getValue(), ProductSuggestIndex.Type.CATEGORY, null, weight));
+			}
+		}
+		for (String key : indexedCategories) {
+			if (!names.containsKey(key)) {
+				index.remove(key);
+			}
+		}
+		indexedCategories = names.keySet();
+	}
+	
+	private ProductSuggestIndex.Entry productEntry(CatalogProduct product) {
+		return new ProductSuggestIndex.Entry(
+				PRODUCT_KEY + product.getProductId(),
+				product.getName(),
+				ProductSuggestIndex.Type.PRODUCT,
+				product.getProductId(),
+				weightOf(product.getProductId()));
+	}
+	
+	private long weightOf(int productId) {
+		return unitsSold.getOrDefault(productId, 0L);
+	}
+	
+	private Map<Integer, Long> loadUnitsSold() {
+		Map<Integer, Long> units = new HashMap<>();
+		for (Object[] row : salesRankRepository.findUnitsByProduct(SalesWindow.ALL)) {
+			units.put((Integer) row[0], ((Number) row[1]).longValue());
+		}
+		return units;
+	}
+}
@@ -0,0 +1,85 @@
+package com.athixwear.service.catalog;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.athixwear.repository.ProductRepository;
+
+/**
+ * Current stock levels laid over the catalog snapshot. Checkouts change stock
+ * without touching the snapshot, so levels are re-read in one query on a
+ * scheduled thread every refresh interval. Readers only load a volatile
+ * field and never run that query themselves; until the first load they see
+ * the snapshot's own stock.
+ */
+@Component
+public class StockOverlay {
+	
+	private final ProductRepository productRepository;
+	private final ReentrantLock reloadLock = new ReentrantLock();
+	
+	private volatile Map<Integer, Integer> stockLevels = Map.of();
+	private volatile long stamp;
+	
+	public StockOverlay(ProductRepository productRepository) {
+		this.productRepository = productRepository;
+	}
+	
+	public int stockOf(CatalogProduct product) {
+		Integer stock = stockLevels.get(product.getProductId());
+		return stock != null ? stock : product.getStock();
+	}
+	
+	// product id -> stock; the map is replaced, never modified, on each reload
+	public Map<Integer, Integer> currentLevels() {
+		return stockLevels;
+	}
+	
+	// changes whenever any level changes, stays put across reloads that change nothing
+	public long stamp() {
+		return stamp;
+	}
+	
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(fixedDelayString = "${catalog.stock-ttl-ms:2000}")
+	public void refresh() {
+		reloadLock.lock();
+		try {
+			reload();
+		} finally {
+			reloadLock.unlock();
+		}
+	}
+	
+	// reloads right away, e.g. right after an admin stock edit, instead of at the next refresh
+	public void invalidate() {
+		refresh();
+	}
+	
+	private void reload() {
+		Map<Integer, Integer> levels = new HashMap<>();
+		long hash = 0;
+		for (Object[] row : productRepository.findAllStockLevels()) {
+			Integer productId = (Integer) row[0];
+			Integer stock = row[1] == null ? null : ((Number) row[1]).intValue();
+			levels.put(productId, stock);
+			// order-independent sum of well-mixed per-row hashes
+			hash += mix(((long) productId << 32) ^ (stock == null ? -1 : stock));
+		}
+		stamp = hash;
+		stockLevels = levels;
+	}
+	
+	// SplitMix64 finaliser
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,165 @@
+package com.athixwear.service.idempotency;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import com.athixwear.exception.BadRequestException;
+import com.athixwear.exception.DuplicateResourceException;
+
+/**
+ * Results of idempotent requests, kept for a fixed time. A (scope, key) pair
+ * is stored as a 64-bit digest rather than as strings, so an entry is little
+ * more than the cached result. The first request for a key runs the action;
+ * duplicates arriving while it runs wait on the same future, and later ones
+ * get the cached result. A failed action is forgotten, so a retry after an
+ * error runs again.
+ * <p>
+ * Every entry lives for the same TTL, so insertion order is expiry order and
+ * eviction only pops the head of a queue; the entry count is also capped,
+ * oldest out first. An entry whose action is still running is never evicted,
+ * not even past the cap, since a retry would then run the action again.
+ */
+public class IdempotencyStore<T> {
+
+	private final long ttlMillis;
+	private final int maxEntries;
+	private final long waitMillis;
+	private final LongSupplier clock;
+
+	private final ConcurrentHashMap<Long, Entry<T>> entries = new ConcurrentHashMap<>();
+	private final ConcurrentLinkedQueue<Entry<T>> expiryQueue = new ConcurrentLinkedQueue<>();
+	// ConcurrentLinkedQueue.size() walks the queue
+	private final AtomicInteger queued = new AtomicInteger();
+
+	public IdempotencyStore(long ttlMillis, int maxEntries, long waitMillis, LongSupplier clock) {
+		this.ttlMillis = ttlMillis;
+		this.maxEntries = maxEntries;
+		this.waitMillis = waitMillis;
+		this.clock = clock;
+	}
+
+	/**
+	 * Runs {@code action} once per (scope, key) within the TTL. {@code fingerprint}
+	 * identifies the request body: reusing a key for a different request is rejected.
+	 */
+	public Result<T> execute(String scope, String key, String fingerprint, Supplier<T> action) {
+		long id = digest(scope, key);
+		Entry<T> entry = new Entry<>(id, fingerprint, clock.getAsLong() + ttlMillis);
+		Entry<T> existing = entries.putIfAbsent(id, entry);
+
+		if (existing != null && existing.expiresAt <= clock.getAsLong() && existing.result.isDone()
+				&& entries.replace(id, existing, entry)) {
+			existing = null;
+		}
+		if (existing != null) {
+			if (!existing.fingerprint.equals(fingerprint)) {
+				throw new BadRequestException("Idempotency-Key was already used for a different request");
+			}
+			return new Result<>(await(existing), true);
+		}
+
+		expiryQueue.add(entry);
+		queued.incrementAndGet();
+		try {
+			T value = action.get();
+			entry.result.complete(value);
+			return new Result<>(value, false);
+		} catch (RuntimeException e) {
+			entries.remove(id, entry);
+			entry.result.completeExceptionally(e);
+			throw e;
+		} finally {
+			evict();
+		}
+	}
+
+	// drops expired entries and, past the cap, the oldest ones; stops at one still in flight
+	public void evict() {
+		long now = clock.getAsLong();
+		Entry<T> head;
+		while ((head = expiryQueue.peek()) != null && head.result.isDone()
+				&& (head.expiresAt <= now || queued.get() > maxEntries)) {
+			if (expiryQueue.remove(head)) {
+				queued.decrementAndGet();
+				entries.remove(head.id, head);
+			}
+		}
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	private T await(Entry<T> entry) {
+		try {
+			return entry.result.get(waitMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			throw new DuplicateResourceException("A request with this Idempotency-Key is still being processed");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the original request", e);
+		} catch (ExecutionException e) {
+			// a duplicate of a request that failed gets the same failure
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private static long digest(String scope, String key) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256")
+					.digest((scope + '\n' + key).getBytes(StandardCharsets.UTF_8));
+			long id = 0;
+			for (int i = 0; i < Long.BYTES; i++) {
+				id = (id << 8) | (hash[i] & 0xff);
+			}
+			return id;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static final class Result<T> {
+		private final T value;
+		private final boolean replayed;
+
+		private Result(T value, boolean replayed) {
+			this.value = value;
+			this.replayed = replayed;
+		}
+
+		public T getValue() {
+			return value;
+		}
+
+		// true when the value comes from an earlier request with the same key
+		public boolean isReplayed() {
+			return replayed;
+		}
+	}
+
+	private static final class Entry<T> {
+		private final long id;
+		private final String fingerprint;
+		private final long expiresAt;
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+
+		private Entry(long id, String fingerprint, long expiresAt) {
+			this.id = id;
+			this.fingerprint = fingerprint;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.athixwear.service.idempotency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.athixwear.dto.CheckoutRequest;
+import com.athixwear.dto.CheckoutResponse;
+import com.athixwear.exception.BadRequestException;
+import com.athixwear.service.OrderService;
+import com.athixwear.service.UserService;
+
+/**
+ * Checkout behind an Idempotency-Key. Keys are scoped to the user, so two
+ * customers can never collide, and a retried checkout gets the order the
+ * first attempt created instead of placing a second one. The checkout
+ * transaction itself runs in {@link OrderService}; waiting duplicates hold
+ * no connection or lock while they wait.
+ */
+@Service
+public class IdempotentCheckoutService {
+	
+	private static final int MAX_KEY_LENGTH = 255;
+	
+	private final OrderService orderService;
+	private final UserService userService;
+	private final IdempotencyStore<CheckoutResponse> store;
+	
+	public IdempotentCheckoutService(OrderService orderService, UserService userService,
+			@Value("${checkout.idempotency.ttl-ms:86400000}") long ttlMillis,
+			@Value("${checkout.idempotency.max-entries:100000}") int maxEntries,
+			@Value("${checkout.idempotency.wait-ms:30000}") long waitMillis) {
+		super();
+		this.orderService = orderService;
+		this.userService = userService;
+		this.store = new IdempotencyStore<>(ttlMillis, maxEntries, waitMillis, System::currentTimeMillis);
+	}
+	
+	public IdempotencyStore.Result<CheckoutResponse> checkout(String idempotencyKey, CheckoutRequest request) {
+		if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+			throw new BadRequestException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+		}
+		String scope = "user:" + userService.getCurrentUser().getUserId();
+		String fingerprint = request.getAddressId() + "|" + request.getPaymentMethod();
+		return store.execute(scope, idempotencyKey, fingerprint, () -> orderService.createOrder(request));
+	}
+	
+	// entries also go on every checkout; this covers quiet periods
+	@Scheduled(fixedDelayString = "${checkout.idempotency.evict-ms:60000}")
+	public void evictExpired() {
+		store.evict();
+	}
+}
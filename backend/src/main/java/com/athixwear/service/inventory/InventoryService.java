@@ -0,0 +1,282 @@
+package com.athixwear.service.inventory;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.athixwear.entity.Product;
+import com.athixwear.event.CatalogChangedEvent;
+import com.athixwear.exception.BadRequestException;
+import com.athixwear.exception.InsufficientStockException;
+import com.athixwear.exception.ResourceNotFoundException;
+
+/**
+ * Stock deduction as conditional updates in the database instead of
+ * read-check-write in Java. Each line is {@code stock = stock - q WHERE
+ * stock >= q}, so two checkouts can never both take the last unit, and the
+ * whole cart goes out as one JDBC batch (one round trip with
+ * rewriteBatchedStatements). Lines are applied in product id order so
+ * concurrent multi-line carts always lock rows in the same order and
+ * cannot deadlock each other.
+ * <p>
+ * A hot product can be sharded: its stock is split across N rows of
+ * product_stock_slots and each checkout decrements one random slot that can
+ * cover it, so N checkouts on the same product proceed without waiting on
+ * one row lock. The total stays exact because it is only ever the sum of
+ * the slots.
+ */
+@Service
+public class InventoryService {
+
+	private static final String DECREMENT_SQL =
+			"UPDATE products SET stock = stock - ? WHERE product_id = ? AND stock >= ?";
+	private static final String SLOT_DECREMENT_SQL =
+			"UPDATE product_stock_slots SET stock = stock - ? WHERE product_id = ? AND slot_no = ? AND stock >= ?";
+	private static final String INCREMENT_SQL =
+			"UPDATE products SET stock = stock + ? WHERE product_id = ?";
+	private static final int MAX_SLOTS = 64;
+
+	private final JdbcTemplate jdbcTemplate;
+	private final ApplicationEventPublisher eventPublisher;
+
+	public InventoryService(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.eventPublisher = eventPublisher;
+	}
+
+	// what a cart may still take: the row's stock, or the sum of the slots for a sharded product
+	public int availableStock(Product product) {
+		if (!product.isStockSharded()) {
+			return product.getStock();
+		}
+		Integer slots = jdbcTemplate.queryForObject(
+				"SELECT COALESCE(SUM(stock), 0) FROM product_stock_slots WHERE product_id = ?",
+				Integer.class, product.getProductId());
+		return product.getStock() + (slots != null ? slots : 0);
+	}
+
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void deduct(Map<Integer, Integer> quantities) {
+		deduct(quantities, Set.of());
+	}
+
+	/**
+	 * Takes {@code quantities} (productId -> units) out of stock, all or nothing.
+	 * Products in {@code shardedProductIds} are taken from their slots.
+	 * Must join the caller's transaction: a failed line throws
+	 * {@link InsufficientStockException}, which rolls back the lines that did apply.
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void deduct(Map<Integer, Integer> quantities, Set<Integer> shardedProductIds) {
+		List<Integer> failed = take(quantities, shardedProductIds);
+		if (!failed.isEmpty()) {
+			throw new InsufficientStockException("Insufficient stock for products " + failed, failed);
+		}
+	}
+
+	/**
+	 * Same as {@link #deduct(Map, Set)} for callers that must keep their
+	 * transaction alive when stock is short: instead of throwing, it puts back
+	 * the lines that did apply and returns the product ids that could not be
+	 * covered (empty on success).
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public List<Integer> tryDeduct(Map<Integer, Integer> quantities, Set<Integer> shardedProductIds) {
+		List<Integer> failed = take(quantities, shardedProductIds);
+		if (!failed.isEmpty()) {
+			Map<Integer, Integer> applied = new TreeMap<>(quantities);
+			applied.keySet().removeAll(failed);
+			restore(applied, shardedProductIds);
+		}
+		return failed;
+	}
+
+	/**
+	 * Puts units back into stock, e.g. when a reservation is released. Sharded
+	 * products get them on one random slot; a product that has been unsharded
+	 * since (no slots left) gets them on its row.
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void restore(Map<Integer, Integer> quantities, Set<Integer> shardedProductIds) {
+		List<Object[]> lines = new ArrayList<>(quantities.size());
+		for (Map.Entry<Integer, Integer> line : new TreeMap<>(quantities).entrySet()) {
+			if (shardedProductIds.contains(line.getKey()) && restoreToSlot(line.getKey(), line.getValue())) {
+				continue;
+			}
+			lines.add(new Object[] { line.getValue(), line.getKey() });
+		}
+		if (!lines.isEmpty()) {
+			jdbcTemplate.batchUpdate(INCREMENT_SQL, lines);
+		}
+	}
+
+	// applies every line it can and returns the product ids it could not cover
+	private List<Integer> take(Map<Integer, Integer> quantities, Set<Integer> shardedProductIds) {
+		List<Object[]> lines = new ArrayList<>(quantities.size());
+		Map<Integer, Integer> shardedLines = new TreeMap<>();
+		for (Map.Entry<Integer, Integer> line : new TreeMap<>(quantities).entrySet()) {
+			if (shardedProductIds.contains(line.getKey())) {
+				shardedLines.put(line.getKey(), line.getValue());
+			} else {
+				lines.add(new Object[] { line.getValue(), line.getKey(), line.getValue() });
+			}
+		}
+
+		List<Integer> failed = new ArrayList<>();
+
+		if (!lines.isEmpty()) {
+			int[] updated = jdbcTemplate.batchUpdate(DECREMENT_SQL, lines);
+			for (int i = 0; i < updated.length; i++) {
+				// without a per-line count there is no telling whether the guard held, so fail closed
+				if (updated[i] == Statement.SUCCESS_NO_INFO) {
+					throw new IllegalStateException("JDBC driver did not report update counts for the stock batch");
+				}
+				if (updated[i] == 0) {
+					failed.add((Integer) lines.get(i)[1]);
+				}
+			}
+		}
+
+		for (Map.Entry<Integer, Integer> line : shardedLines.entrySet()) {
+			if (!deductFromSlots(line.getKey(), line.getValue())) {
+				failed.add(line.getKey());
+			}
+		}
+		return failed;
+	}
+
+	/**
+	 * Splits the product's current stock evenly across {@code slotCount} slots,
+	 * or folds it back into the product row when {@code slotCount} is 1.
+	 */
+	@Transactional
+	public void shard(int productId, int slotCount) {
+		if (slotCount < 1 || slotCount > MAX_SLOTS) {
+			throw new BadRequestException("Slot count must be between 1 and " + MAX_SLOTS);
+		}
+
+		// the product row lock serializes re-sharding against itself
+		List<Integer> rowStock = jdbcTemplate.queryForList(
+				"SELECT stock FROM products WHERE product_id = ? FOR UPDATE", Integer.class, productId);
+		if (rowStock.isEmpty()) {
+			throw new ResourceNotFoundException("Product not found");
+		}
+		int total = rowStock.get(0) + lockSlots(productId).stream().mapToInt(slot -> slot[1]).sum();
+
+		jdbcTemplate.update("DELETE FROM product_stock_slots WHERE product_id = ?", productId);
+		if (slotCount == 1) {
+			jdbcTemplate.update("UPDATE products SET stock = ?, stock_sharded = FALSE WHERE product_id = ?",
+					total, productId);
+		} else {
+			writeSlots(productId, total, slotCount);
+			jdbcTemplate.update("UPDATE products SET stock = 0, stock_sharded = TRUE WHERE product_id = ?", productId);
+		}
+		eventPublisher.publishEvent(CatalogChangedEvent.product(productId));
+	}
+
+	// an admin stock edit on a sharded product: spread the new total over the same number of slots
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void setShardedStock(int productId, int stock) {
+		int slotCount = Math.max(2, lockSlots(productId).size());
+		jdbcTemplate.update("DELETE FROM product_stock_slots WHERE product_id = ?", productId);
+		writeSlots(productId, stock, slotCount);
+	}
+
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void dropSlots(int productId) {
+		jdbcTemplate.update("DELETE FROM product_stock_slots WHERE product_id = ?", productId);
+	}
+
+	private boolean deductFromSlots(int productId, int quantity) {
+		// a plain read to find candidates; the conditional update below is what decides
+		List<Integer> candidates = jdbcTemplate.queryForList(
+				"SELECT slot_no FROM product_stock_slots WHERE product_id = ? AND stock >= ?",
+				Integer.class, productId, quantity);
+
+		// One attempt only: a failed conditional update still holds its slot's lock, and waiting
+		// on another slot below it would take locks out of order against the cross-slot path.
+		int heldSlot = -1;
+		if (!candidates.isEmpty()) {
+			int slotNo = candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+			if (jdbcTemplate.update(SLOT_DECREMENT_SQL, quantity, productId, slotNo, quantity) == 1) {
+				return true;
+			}
+			heldSlot = slotNo;
+		}
+
+		// no single slot can cover the line (or it drained meanwhile): take it across slots.
+		// Every wait is for a slot above all the ones already held, so lock waits never form a cycle;
+		// below a held slot only the slots free right now are taken.
+		List<int[]> slots = new ArrayList<>();
+		if (heldSlot > 0) {
+			slots.addAll(jdbcTemplate.query(
+					"SELECT slot_no, stock FROM product_stock_slots WHERE product_id = ? AND slot_no < ? "
+							+ "ORDER BY slot_no FOR UPDATE SKIP LOCKED",
+					(rs, rowNum) -> new int[] { rs.getInt(1), rs.getInt(2) },
+					productId, heldSlot));
+		}
+		slots.addAll(lockSlots(productId, Math.max(0, heldSlot)));
+		int available = slots.stream().mapToInt(slot -> slot[1]).sum();
+		if (available < quantity) {
+			return false;
+		}
+		int remaining = quantity;
+		for (int[] slot : slots) {
+			if (remaining == 0) {
+				break;
+			}
+			int take = Math.min(remaining, slot[1]);
+			if (take > 0) {
+				jdbcTemplate.update("UPDATE product_stock_slots SET stock = stock - ? WHERE product_id = ? AND slot_no = ?",
+						take, productId, slot[0]);
+				remaining -= take;
+			}
+		}
+		return true;
+	}
+
+	private boolean restoreToSlot(int productId, int quantity) {
+		List<Integer> slots = jdbcTemplate.queryForList(
+				"SELECT slot_no FROM product_stock_slots WHERE product_id = ?", Integer.class, productId);
+		if (slots.isEmpty()) {
+			return false;
+		}
+		int slotNo = slots.get(ThreadLocalRandom.current().nextInt(slots.size()));
+		return jdbcTemplate.update("UPDATE product_stock_slots SET stock = stock + ? WHERE product_id = ? AND slot_no = ?",
+				quantity, productId, slotNo) == 1;
+	}
+
+	// [slotNo, stock] for every slot, locked in slot order
+	private List<int[]> lockSlots(int productId) {
+		return lockSlots(productId, 0);
+	}
+
+	// [slotNo, stock] for the slots from fromSlot on, locked in slot order
+	private List<int[]> lockSlots(int productId, int fromSlot) {
+		return jdbcTemplate.query(
+				"SELECT slot_no, stock FROM product_stock_slots WHERE product_id = ? AND slot_no >= ? "
+						+ "ORDER BY slot_no FOR UPDATE",
+				(rs, rowNum) -> new int[] { rs.getInt(1), rs.getInt(2) },
+				productId, fromSlot);
+	}
+
+	private void writeSlots(int productId, int total, int slotCount) {
+		List<Object[]> slots = new ArrayList<>(slotCount);
+		for (int slotNo = 0; slotNo < slotCount; slotNo++) {
+			int share = total / slotCount + (slotNo < total % slotCount ? 1 : 0);
+			slots.add(new Object[] { productId, slotNo, share });
+		}
+		jdbcTemplate.batchUpdate(
+				"INSERT INTO product_stock_slots (product_id, slot_no, stock) VALUES (?, ?, ?)", slots);
+	}
+}
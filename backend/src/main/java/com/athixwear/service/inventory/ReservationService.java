@@ -0,0 +1,297 @@
+package com.athixwear.service.inventory;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.athixwear.entity.Order;
+import com.athixwear.entity.OrderItem;
+import com.athixwear.entity.OrderStatus;
+import com.athixwear.entity.PaymentStatus;
+import com.athixwear.entity.ReservationStatus;
+import com.athixwear.entity.StockReservation;
+import com.athixwear.repository.OrderItemRepository;
+import com.athixwear.repository.OrderRepository;
+import com.athixwear.repository.StockReservationRepository;
+import com.athixwear.service.analytics.SalesRollupService;
+
+/**
+ * Time-limited holds on stock for orders paid online. Checkout still takes
+ * the units out of stock, so nobody else can buy them while the customer is
+ * at the payment page; the hold records that the sale is not final. A
+ * verified payment converts it, and an expired one gives the units back and
+ * cancels the order.
+ * <p>
+ * Expiry is driven by an in-memory timer wheel rather than by polling the
+ * table: every hold is put on the wheel when its checkout commits, and the
+ * HELD rows are loaded back through the (status, expires_at) index on
+ * startup. Holds that expire together are released in batches, one
+ * transaction per batch. Both conversion and release lock the order before
+ * the hold and only act on a hold that is still HELD, so a payment racing its
+ * expiry is settled by whichever commits first. A release leaves alone any
+ * order that is no longer awaiting payment.
+ */
+@Service
+public class ReservationService {
+
+	private static final ZoneId ZONE = ZoneId.systemDefault();
+	// a failed batch is tried again after this long instead of on every tick
+	private static final long RETRY_DELAY_MS = 30_000;
+
+	private final StockReservationRepository reservationRepository;
+	private final OrderRepository orderRepository;
+	private final OrderItemRepository orderItemRepository;
+	private final InventoryService inventoryService;
+	private final SalesRollupService salesRollupService;
+	private final TransactionTemplate transaction;
+	private final long holdMillis;
+	private final int batchSize;
+	private final ReservationTimerWheel wheel;
+	private final LongAdder failedBatches = new LongAdder();
+
+	public ReservationService(StockReservationRepository reservationRepository,
+			OrderRepository orderRepository,
+			OrderItemRepository orderItemRepository,
+			InventoryService inventoryService,
+			SalesRollupService salesRollupService,
+			PlatformTransactionManager transactionManager,
+			@Value("${inventory.reservation.hold-ms:900000}") long holdMillis,
+			@Value("${inventory.reservation.batch-size:100}") int batchSize,
+			@Value("${inventory.reservation.tick-ms:1000}") long tickMillis) {
+		super();
+		this.reservationRepository = reservationRepository;
+		this.orderRepository = orderRepository;
+		this.orderItemRepository = orderItemRepository;
+		this.inventoryService = inventoryService;
+		this.salesRollupService = salesRollupService;
+		this.transaction = new TransactionTemplate(transactionManager);
+		this.holdMillis = holdMillis;
+		this.batchSize = batchSize;
+		this.wheel = new ReservationTimerWheel(tickMillis, 1024, System.currentTimeMillis());
+	}
+
+	/**
+	 * Records a hold on the stock the order just took. Joins the checkout
+	 * transaction; the hold goes on the timer wheel only once that commits.
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void hold(Order order) {
+		StockReservation reservation = new StockReservation();
+		reservation.setOrder(order);
+		reservation.setExpiresAt(LocalDateTime.now().plusNanos(holdMillis * 1_000_000));
+		StockReservation saved = reservationRepository.save(reservation);
+
+		long deadline = toMillis(saved.getExpiresAt());
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				wheel.schedule(saved.getReservationId(), deadline);
+			}
+		});
+	}
+
+	/**
+	 * Turns the order's hold into a sale. Returns false only when the hold had
+	 * already been released and its stock could not be taken again, in which
+	 * case the order stays cancelled. Orders without a hold (cash on delivery)
+	 * have nothing to convert.
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public boolean convert(Order order) {
+		Optional<StockReservation> reservation = reservationRepository.findByOrderOrderId(order.getOrderId());
+		if (reservation.isEmpty()) {
+			return true;
+		}
+		Long reservationId = reservation.get().getReservationId();
+
+		if (reservationRepository.transition(order.getOrderId(), ReservationStatus.HELD, ReservationStatus.CONVERTED) == 1) {
+			cancelTimerAfterCommit(reservationId);
+			return true;
+		}
+		if (reservationRepository.transition(order.getOrderId(), ReservationStatus.RELEASED, ReservationStatus.CONVERTED) == 0) {
+			// converted by an earlier verification
+			return true;
+		}
+
+		// paid after the hold ran out: the units went back on sale, take them again if still there
+		Map<Integer, Integer> quantities = new TreeMap<>();
+		Set<Integer> shardedProductIds = new HashSet<>();
+		collect(orderItemRepository.findByOrderOrderId(order.getOrderId()), quantities, shardedProductIds);
+		if (!inventoryService.tryDeduct(quantities, shardedProductIds).isEmpty()) {
+			reservationRepository.transition(order.getOrderId(), ReservationStatus.CONVERTED, ReservationStatus.RELEASED);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Releases the holds of orders that are being cancelled in the caller's
+	 * transaction, without touching stock. Returns the orders whose stock was
+	 * already given back by an earlier release; the caller restores the rest.
+	 * Orders that never had a hold get a RELEASED one, so a payment that still
+	 * arrives for them takes the stock again in {@link #convert(Order)}.
+	 * The orders must be locked by the caller.
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public Set<Integer> releaseForCancelledOrders(Collection<Integer> orderIds) {
+		List<Long> held = new ArrayList<>();
+		Set<Integer> alreadyReleased = new HashSet<>();
+		Set<Integer> withoutHold = new HashSet<>(orderIds);
+		for (Object[] row : reservationRepository.findStatusByOrderIds(orderIds)) {
+			withoutHold.remove((Integer) row[1]);
+			if (row[2] == ReservationStatus.HELD) {
+				held.add((Long) row[0]);
+			} else if (row[2] == ReservationStatus.RELEASED) {
+				alreadyReleased.add((Integer) row[1]);
+			}
+		}
+		if (!held.isEmpty()) {
+			reservationRepository.transitionAll(held, ReservationStatus.HELD, ReservationStatus.RELEASED);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					held.forEach(wheel::cancel);
+				}
+			});
+		}
+		if (!withoutHold.isEmpty()) {
+			LocalDateTime now = LocalDateTime.now();
+			List<StockReservation> released = new ArrayList<>(withoutHold.size());
+			for (Integer orderId : withoutHold) {
+				StockReservation reservation = new StockReservation();
+				reservation.setOrder(orderRepository.getReferenceById(orderId));
+				reservation.setStatus(ReservationStatus.RELEASED);
+				reservation.setExpiresAt(now);
+				released.add(reservation);
+			}
+			reservationRepository.saveAll(released);
+		}
+		return alreadyReleased;
+	}
+
+	// puts the holds that are still HELD back on the wheel after a restart
+	@EventListener(ApplicationReadyEvent.class)
+	public void recover() {
+		for (Object[] row : reservationRepository.findSchedule(ReservationStatus.HELD)) {
+			wheel.schedule((Long) row[0], toMillis((LocalDateTime) row[1]));
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${inventory.reservation.tick-ms:1000}")
+	public void tick() {
+		List<Long> expired = wheel.advance(System.currentTimeMillis());
+		for (int from = 0; from < expired.size(); from += batchSize) {
+			List<Long> batch = expired.subList(from, Math.min(expired.size(), from + batchSize));
+			try {
+				transaction.executeWithoutResult(status -> release(batch));
+			} catch (RuntimeException e) {
+				failedBatches.increment();
+				long retryAt = System.currentTimeMillis() + RETRY_DELAY_MS;
+				for (Long reservationId : batch) {
+					wheel.schedule(reservationId, retryAt);
+				}
+			}
+		}
+	}
+
+	public int pendingHolds() {
+		return wheel.size();
+	}
+
+	// release batches rolled back and put off for a retry
+	public long failedBatches() {
+		return failedBatches.sum();
+	}
+
+	// gives back the stock of every hold in the batch that is still HELD and expired, and cancels its order
+	private void release(List<Long> reservationIds) {
+		List<Integer> dueOrderIds = new ArrayList<>();
+		for (Object[] row : reservationRepository.findExpired(reservationIds, ReservationStatus.HELD, LocalDateTime.now())) {
+			dueOrderIds.add((Integer) row[1]);
+		}
+		if (dueOrderIds.isEmpty()) {
+			return;
+		}
+
+		// Orders first, in id order, then their holds: the same order verifyPayment, webhooks and the
+		// sweeper take them in. Anything that moved on from awaiting payment meanwhile keeps its hold.
+		Map<Integer, Order> orders = new TreeMap<>();
+		for (Order order : orderRepository.lockByOrderIdIn(dueOrderIds)) {
+			if (order.getOrderStatus() == OrderStatus.PENDING && order.getPaymentStatus() == PaymentStatus.PENDING) {
+				orders.put(order.getOrderId(), order);
+			}
+		}
+		if (orders.isEmpty()) {
+			return;
+		}
+		// every change to a hold is made under its order's lock, so this read is current
+		List<Long> held = new ArrayList<>(orders.size());
+		for (Object[] row : reservationRepository.findStatusByOrderIds(orders.keySet())) {
+			if (row[2] == ReservationStatus.HELD) {
+				held.add((Long) row[0]);
+			} else {
+				orders.remove((Integer) row[1]);
+			}
+		}
+		if (held.isEmpty()) {
+			return;
+		}
+		reservationRepository.transitionAll(held, ReservationStatus.HELD, ReservationStatus.RELEASED);
+
+		SalesRollupService.Delta rollup = new SalesRollupService.Delta();
+		for (Order order : orders.values()) {
+			order.setOrderStatus(OrderStatus.CANCELLED);
+			order.setPaymentStatus(PaymentStatus.FAILED);
+			rollup.moveOrder(order, OrderStatus.PENDING, PaymentStatus.PENDING);
+		}
+
+		Map<Integer, Integer> quantities = new TreeMap<>();
+		Set<Integer> shardedProductIds = new HashSet<>();
+		collect(orderItemRepository.findByOrderOrderIdIn(new ArrayList<>(orders.keySet())), quantities, shardedProductIds);
+		inventoryService.restore(quantities, shardedProductIds);
+		salesRollupService.apply(rollup);
+	}
+
+	private void cancelTimerAfterCommit(long reservationId) {
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				wheel.cancel(reservationId);
+			}
+		});
+	}
+
+	private static void collect(List<OrderItem> items, Map<Integer, Integer> quantities, Set<Integer> shardedProductIds) {
+		for (OrderItem item : items) {
+			Integer productId = item.getProduct().getProductId();
+			quantities.merge(productId, item.getQuantity(), Integer::sum);
+			if (item.getProduct().isStockSharded()) {
+				shardedProductIds.add(productId);
+			}
+		}
+	}
+
+	private static long toMillis(LocalDateTime time) {
+		return time.atZone(ZONE).toInstant().toEpochMilli();
+	}
+}
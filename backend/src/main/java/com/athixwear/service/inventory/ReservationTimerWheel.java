@@ -0,0 +1,108 @@
+package com.athixwear.service.inventory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timer wheel for reservation expiry. A deadline hashes to the bucket
+ * of its tick, so scheduling and cancelling are O(1) and each advance only
+ * looks at the buckets the clock moved over, however many holds are pending.
+ * Deadlines further out than one turn of the wheel simply stay in their
+ * bucket until the turn they belong to comes round.
+ */
+public class ReservationTimerWheel {
+
+	private final long tickMillis;
+	private final long startMillis;
+	private final Deque<Timeout>[] buckets;
+	private final int mask;
+	private final Map<Long, Timeout> scheduled = new HashMap<>();
+	// last tick whose bucket has been processed
+	private long currentTick;
+
+	@SuppressWarnings("unchecked")
+	public ReservationTimerWheel(long tickMillis, int wheelSize, long startMillis) {
+		if (tickMillis <= 0 || wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+			throw new IllegalArgumentException("Tick must be positive and wheel size a power of two");
+		}
+		this.tickMillis = tickMillis;
+		this.startMillis = startMillis;
+		this.buckets = (Deque<Timeout>[]) new Deque<?>[wheelSize];
+		for (int i = 0; i < wheelSize; i++) {
+			buckets[i] = new ArrayDeque<>();
+		}
+		this.mask = wheelSize - 1;
+	}
+
+	// (re)schedules a reservation; a deadline already in the past fires on the next advance
+	public synchronized void schedule(long reservationId, long deadlineMillis) {
+		cancel(reservationId);
+		long tick = Math.max(currentTick + 1, ceilDiv(deadlineMillis - startMillis, tickMillis));
+		Timeout timeout = new Timeout(reservationId, tick);
+		buckets[(int) (tick & mask)].add(timeout);
+		scheduled.put(reservationId, timeout);
+	}
+
+	// removal from the bucket is left to the next pass over it
+	public synchronized boolean cancel(long reservationId) {
+		Timeout timeout = scheduled.remove(reservationId);
+		if (timeout == null) {
+			return false;
+		}
+		timeout.cancelled = true;
+		return true;
+	}
+
+	/**
+	 * Moves the clock to {@code nowMillis} and returns the reservations that
+	 * expired on the way. A clock that fell behind by more than a full turn
+	 * visits each bucket once.
+	 */
+	public synchronized List<Long> advance(long nowMillis) {
+		long targetTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+		if (targetTick <= currentTick) {
+			return List.of();
+		}
+		List<Long> expired = new ArrayList<>();
+		long steps = Math.min(targetTick - currentTick, buckets.length);
+		for (long tick = targetTick - steps + 1; tick <= targetTick; tick++) {
+			Iterator<Timeout> bucket = buckets[(int) (tick & mask)].iterator();
+			while (bucket.hasNext()) {
+				Timeout timeout = bucket.next();
+				if (timeout.cancelled) {
+					bucket.remove();
+				} else if (timeout.tick <= targetTick) {
+					bucket.remove();
+					scheduled.remove(timeout.reservationId);
+					expired.add(timeout.reservationId);
+				}
+			}
+		}
+		currentTick = targetTick;
+		return expired;
+	}
+
+	public synchronized int size() {
+		return scheduled.size();
+	}
+
+	private static long ceilDiv(long x, long y) {
+		return -Math.floorDiv(-x, y);
+	}
+
+	private static final class Timeout {
+		private final long reservationId;
+		private final long tick;
+		private boolean cancelled;
+
+		private Timeout(long reservationId, long tick) {
+			this.reservationId = reservationId;
+			this.tick = tick;
+		}
+	}
+}
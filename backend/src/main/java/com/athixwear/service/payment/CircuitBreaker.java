@@ -0,0 +1,136 @@
+package com.athixwear.service.payment;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based sliding-window circuit breaker. While CLOSED it remembers the
+ * outcome of the last {@code windowSize} calls and opens once at least
+ * {@code minimumCalls} of them are in and the failure rate reaches the
+ * threshold. OPEN rejects every call for {@code openMillis}, then lets
+ * {@code halfOpenCalls} trial calls through: all of them succeeding closes it
+ * again, any failure re-opens it.
+ */
+public class CircuitBreaker {
+	
+	public enum State { CLOSED, OPEN, HALF_OPEN }
+	
+	private final int minimumCalls;
+	private final double failureRateThreshold;
+	private final long openMillis;
+	private final int halfOpenCalls;
+	private final LongSupplier clock;
+	
+	// ring of the last outcomes, true = failure
+	private final boolean[] window;
+	private int next;
+	private int recorded;
+	private int failures;
+	
+	private State state = State.CLOSED;
+	private long openedAt;
+	private int halfOpenIssued;
+	private int halfOpenSucceeded;
+	private long timesOpened;
+	
+	public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+			long openMillis, int halfOpenCalls, LongSupplier clock) {
+		this.window = new boolean[windowSize];
+		this.minimumCalls = Math.min(minimumCalls, windowSize);
+		this.failureRateThreshold = failureRateThreshold;
+		this.openMillis = openMillis;
+		this.halfOpenCalls = halfOpenCalls;
+		this.clock = clock;
+	}
+	
+	// false means fail fast without calling; true must be followed by exactly one of onSuccess, onFailure, onIgnored
+	public synchronized boolean tryAcquire() {
+		if (state == State.OPEN) {
+			if (clock.getAsLong() - openedAt < openMillis) {
+				return false;
+			}
+			state = State.HALF_OPEN;
+			halfOpenIssued = 0;
+			halfOpenSucceeded = 0;
+		}
+		if (state == State.HALF_OPEN) {
+			if (halfOpenIssued >= halfOpenCalls) {
+				return false;
+			}
+			halfOpenIssued++;
+		}
+		return true;
+	}
+	
+	public synchronized void onSuccess() {
+		if (state == State.HALF_OPEN) {
+			if (++halfOpenSucceeded >= halfOpenCalls) {
+				close();
+			}
+			return;
+		}
+		record(false);
+	}
+	
+	public synchronized void onFailure() {
+		if (state == State.HALF_OPEN) {
+			open();
+			return;
+		}
+		record(true);
+		if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+			open();
+		}
+	}
+	
+	// the call never reached the gateway (e.g. rejected locally): gives a trial permit back
+	public synchronized void onIgnored() {
+		if (state == State.HALF_OPEN && halfOpenIssued > 0) {
+			halfOpenIssued--;
+		}
+	}
+	
+	public synchronized State state() {
+		return state;
+	}
+	
+	// how long an OPEN breaker still rejects calls, 0 otherwise
+	public synchronized long remainingOpenMillis() {
+		return state == State.OPEN ? Math.max(0, openMillis - (clock.getAsLong() - openedAt)) : 0;
+	}
+	
+	public synchronized double failureRate() {
+		return recorded == 0 ? 0.0 : (double) failures / recorded;
+	}
+	
+	public synchronized long timesOpened() {
+		return timesOpened;
+	}
+	
+	private void record(boolean failed) {
+		if (recorded == window.length) {
+			if (window[next]) {
+				failures--;
+			}
+		} else {
+			recorded++;
+		}
+		window[next] = failed;
+		if (failed) {
+			failures++;
+		}
+		next = (next + 1) % window.length;
+	}
+	
+	private void open() {
+		state = State.OPEN;
+		openedAt = clock.getAsLong();
+		timesOpened++;
+	}
+	
+	private void close() {
+		state = State.CLOSED;
+		next = 0;
+		recorded = 0;
+		failures = 0;
+	}
+}
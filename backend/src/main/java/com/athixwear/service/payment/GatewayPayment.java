@@ -0,0 +1,45 @@
+package com.athixwear.service.payment;
+
+// one payment as listed by the gateway; amount in paise, createdAt in epoch seconds
+public final class GatewayPayment {
+	
+	private final String paymentId;
+	private final String orderId;
+	private final String status;
+	private final long amount;
+	private final long createdAt;
+	
+	public GatewayPayment(String paymentId, String orderId, String status, long amount, long createdAt) {
+		this.paymentId = paymentId;
+		this.orderId = orderId;
+		this.status = status;
+		this.amount = amount;
+		this.createdAt = createdAt;
+	}
+	
+	public String getPaymentId() {
+		return paymentId;
+	}
+	
+	// null for payments made without a gateway order
+	public String getOrderId() {
+		return orderId;
+	}
+	
+	public String getStatus() {
+		return status;
+	}
+	
+	public long getAmount() {
+		return amount;
+	}
+	
+	public long getCreatedAt() {
+		return createdAt;
+	}
+	
+	// money was taken; a later refund does not mean the order was never paid
+	public boolean isPaid() {
+		return "captured".equals(status) || "refunded".equals(status);
+	}
+}
@@ -0,0 +1,11 @@
+package com.athixwear.service.payment;
+
+import com.athixwear.exception.PaymentGatewayException;
+
+// the gateway answered and refused the request (a 4xx): it is up, and retrying will not help
+public class GatewayRequestRejectedException extends PaymentGatewayException {
+	
+	public GatewayRequestRejectedException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
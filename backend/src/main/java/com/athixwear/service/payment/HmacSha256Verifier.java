@@ -0,0 +1,157 @@
+package com.athixwear.service.payment;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * HMAC-SHA256 signatures as Razorpay sends them: lowercase hex. One verifier
+ * per secret, shared by all request threads.
+ * <p>
+ * Each thread keeps a {@link Mac} that was keyed once, plus scratch buffers
+ * for the message and the digest, so checking a signature allocates nothing
+ * for ASCII input (which is all Razorpay sends). The expected signature is
+ * never turned into a string: the received hex is decoded character by
+ * character and compared with the digest bytes in constant time.
+ */
+public final class HmacSha256Verifier {
+
+	private static final String ALGORITHM = "HmacSHA256";
+	private static final int DIGEST_LENGTH = 32;
+	// larger messages are encoded per call rather than pinning a big buffer to the thread
+	private static final int MAX_SCRATCH = 64 * 1024;
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	private static final byte[] HEX_VALUES = new byte[128];
+
+	static {
+		Arrays.fill(HEX_VALUES, (byte) -1);
+		for (int i = 0; i < HEX_DIGITS.length; i++) {
+			HEX_VALUES[HEX_DIGITS[i]] = (byte) i;
+		}
+	}
+
+	private final ThreadLocal<State> state;
+
+	public HmacSha256Verifier(String secret) {
+		if (secret == null || secret.isEmpty()) {
+			throw new IllegalArgumentException("HMAC secret must not be empty");
+		}
+		SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+		this.state = ThreadLocal.withInitial(() -> new State(key));
+		// fail at startup, not on the first payment, if the JCE cannot do HmacSHA256
+		state.get();
+	}
+
+	public boolean verify(String data, String signature) {
+		State current = state.get();
+		current.begin();
+		current.update(data);
+		return current.matches(signature);
+	}
+
+	// signature over first + separator + second, without building the joined string
+	public boolean verify(String first, char separator, String second, String signature) {
+		State current = state.get();
+		current.begin();
+		current.update(first);
+		current.update(separator);
+		current.update(second);
+		return current.matches(signature);
+	}
+
+	public String sign(String data) {
+		State current = state.get();
+		current.begin();
+		current.update(data);
+		byte[] digest = current.finish();
+		char[] hex = new char[DIGEST_LENGTH * 2];
+		for (int i = 0; i < DIGEST_LENGTH; i++) {
+			hex[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0x0f];
+			hex[2 * i + 1] = HEX_DIGITS[digest[i] & 0x0f];
+		}
+		return new String(hex);
+	}
+
+	private static final class State {
+		private final Mac mac;
+		private final byte[] digest = new byte[DIGEST_LENGTH];
+		private byte[] scratch = new byte[512];
+
+		private State(SecretKeySpec key) {
+			try {
+				this.mac = Mac.getInstance(ALGORITHM);
+				this.mac.init(key);
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("HmacSHA256 is not available", e);
+			}
+		}
+
+		// a previous call may have stopped half way
+		private void begin() {
+			mac.reset();
+		}
+
+		private void update(char c) {
+			if (c < 0x80) {
+				mac.update((byte) c);
+			} else {
+				mac.update(String.valueOf(c).getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		private void update(String data) {
+			int length = data.length();
+			if (length > MAX_SCRATCH) {
+				mac.update(data.getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+			if (scratch.length < length) {
+				scratch = new byte[Math.min(MAX_SCRATCH, Math.max(length, scratch.length * 2))];
+			}
+			for (int i = 0; i < length; i++) {
+				char c = data.charAt(i);
+				if (c >= 0x80) {
+					// everything before i was ASCII, so i is not inside a surrogate pair
+					mac.update(scratch, 0, i);
+					mac.update(data.substring(i).getBytes(StandardCharsets.UTF_8));
+					return;
+				}
+				scratch[i] = (byte) c;
+			}
+			mac.update(scratch, 0, length);
+		}
+
+		private byte[] finish() {
+			try {
+				mac.doFinal(digest, 0);
+				return digest;
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("Failed to compute signature", e);
+			}
+		}
+
+		private boolean matches(String signature) {
+			byte[] expected = finish();
+			if (signature == null || signature.length() != DIGEST_LENGTH * 2) {
+				return false;
+			}
+			// no early exit: the time taken does not depend on where the first mismatch is
+			int difference = 0;
+			for (int i = 0; i < DIGEST_LENGTH; i++) {
+				int high = hexValue(signature.charAt(2 * i));
+				int low = hexValue(signature.charAt(2 * i + 1));
+				difference |= ((high << 4) | low) ^ (expected[i] & 0xff);
+			}
+			return difference == 0;
+		}
+
+		// -1 for anything that is not a lowercase hex digit, which can never match a byte
+		private static int hexValue(char c) {
+			return c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+		}
+	}
+}
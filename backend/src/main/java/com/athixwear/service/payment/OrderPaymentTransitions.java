@@ -0,0 +1,73 @@
+package com.athixwear.service.payment;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.athixwear.entity.Order;
+import com.athixwear.entity.OrderStatus;
+import com.athixwear.entity.PaymentStatus;
+import com.athixwear.repository.OrderRepository;
+import com.athixwear.service.analytics.SalesRollupService;
+import com.athixwear.service.inventory.ReservationService;
+
+/**
+ * Payment state changes on an order, shared by client-side verification
+ * and gateway webhooks so both apply exactly the same rules. Both are safe
+ * to apply twice: a paid order is never paid again nor marked failed. That
+ * check only holds when the caller has the order locked (PESSIMISTIC_WRITE),
+ * as both callers do; otherwise two transactions could both pass it.
+ */
+@Component
+public class OrderPaymentTransitions {
+
+    private final OrderRepository orderRepository;
+    private final ReservationService reservationService;
+    private final SalesRollupService salesRollupService;
+
+    public OrderPaymentTransitions(OrderRepository orderRepository, ReservationService reservationService,
+            SalesRollupService salesRollupService) {
+        this.orderRepository = orderRepository;
+        this.reservationService = reservationService;
+        this.salesRollupService = salesRollupService;
+    }
+
+    /**
+     * Records a captured payment. Returns false when the stock hold had expired
+     * and the items sold out meanwhile: the order is then left cancelled, paid,
+     * for a refund.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean markPaid(Order order, String razorpayPaymentId, String razorpaySignature) {
+        if (order.getPaymentStatus() == PaymentStatus.PAID) {
+            return order.getOrderStatus() != OrderStatus.CANCELLED;
+        }
+
+        OrderStatus previousOrderStatus = order.getOrderStatus();
+        PaymentStatus previousPaymentStatus = order.getPaymentStatus();
+        order.setRazorpayPaymentId(razorpayPaymentId);
+        if (razorpaySignature != null) {
+            order.setRazorpaySignature(razorpaySignature);
+        }
+        order.setPaymentStatus(PaymentStatus.PAID);
+
+        // The stock hold may have expired while the customer was paying; if the items
+        // have sold out since, the order stays cancelled and the payment is refunded
+        boolean stockSecured = reservationService.convert(order);
+        order.setOrderStatus(stockSecured ? OrderStatus.CONFIRMED : OrderStatus.CANCELLED);
+        orderRepository.save(order);
+        salesRollupService.statusChanged(order, previousOrderStatus, previousPaymentStatus);
+        return stockSecured;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void markFailed(Order order) {
+        if (order.getPaymentStatus() == PaymentStatus.PAID) {
+            return;
+        }
+        PaymentStatus previousPaymentStatus = order.getPaymentStatus();
+        order.setPaymentStatus(PaymentStatus.FAILED);
+        orderRepository.save(order);
+        salesRollupService.statusChanged(order, order.getOrderStatus(), previousPaymentStatus);
+    }
+}
@@ -0,0 +1,28 @@
+package com.athixwear.service.payment;
+
+import java.util.List;
+
+/**
+ * One raw request to a payment gateway, without timeouts, retries or
+ * breaking; {@link RazorpayGateway} adds those around whichever
+ * implementation is configured.
+ */
+public interface PaymentGatewayClient {
+	
+	/**
+	 * Creates a gateway order and returns its id. Throws
+	 * {@link GatewayRequestRejectedException} when the gateway refused the
+	 * request itself, which is not worth retrying.
+	 */
+	String createOrder(long amountInPaise, String currency, String receipt) throws Exception;
+	
+	/**
+	 * One page of the payments created in [from, to), both in epoch seconds.
+	 * {@code count} is at most {@link #MAX_PAGE_SIZE}; a shorter page is the
+	 * last one.
+	 */
+	List<GatewayPayment> fetchPayments(long from, long to, int skip, int count) throws Exception;
+	
+	// Razorpay's limit for one list request
+	int MAX_PAGE_SIZE = 100;
+}
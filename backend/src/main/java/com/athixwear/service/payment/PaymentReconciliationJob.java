@@ -0,0 +1,317 @@
+package com.athixwear.service.payment;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.athixwear.entity.PaymentMismatch;
+import com.athixwear.entity.PaymentMismatchType;
+import com.athixwear.entity.PaymentStatus;
+import com.athixwear.exception.PaymentGatewayException;
+import com.athixwear.repository.OrderRepository;
+import com.athixwear.repository.PaymentMismatchRepository;
+
+/**
+ * Nightly check of one day's online orders against the payments the gateway
+ * holds for them. Orders PAID here without a captured payment, captured
+ * payments whose order is not PAID, paid amounts that differ, and payments
+ * captured that day for a gateway order no order here carries are written to
+ * payment_mismatches for the business day; a rerun replaces them.
+ * <p>
+ * The gateway side is read first: the window from the start of the day up
+ * to now (so late payments for the day's orders count) is cut into slices,
+ * and the slices are paged through in parallel on a small pool, each page
+ * going through the reporting lane of {@link RazorpayGateway}, whose pool,
+ * retries and breaker are separate from checkout's. If any slice cannot be read the run stops without flagging
+ * anything, since a missing page would look like missing payments. The
+ * orders are then read in keyset pages over (order_date, order_id) and
+ * matched against the gateway payments in memory. The mismatches are kept
+ * in memory until the end and replace the day's earlier ones in a single
+ * transaction, so a run that fails part way leaves the last complete result.
+ */
+@Service
+public class PaymentReconciliationJob {
+
+	private static final ZoneId ZONE = ZoneId.systemDefault();
+
+	private final OrderRepository orderRepository;
+	private final PaymentMismatchRepository mismatchRepository;
+	private final RazorpayGateway razorpayGateway;
+	private final TransactionTemplate transaction;
+	private final TransactionTemplate readOnlyTransaction;
+	private final int concurrency;
+	private final long sliceSeconds;
+	private final int orderPageSize;
+
+	private final AtomicBoolean reconciling = new AtomicBoolean();
+	private final LongAdder runs = new LongAdder();
+	private final LongAdder failedRuns = new LongAdder();
+	private volatile Map<String, Object> lastRun = Map.of();
+
+	public PaymentReconciliationJob(OrderRepository orderRepository,
+			PaymentMismatchRepository mismatchRepository,
+			RazorpayGateway razorpayGateway,
+			PlatformTransactionManager transactionManager,
+			@Value("${payment.reconciliation.concurrency:4}") int concurrency,
+			@Value("${payment.reconciliation.slice-minutes:60}") long sliceMinutes,
+			@Value("${payment.reconciliation.order-page-size:1000}") int orderPageSize) {
+		super();
+		this.orderRepository = orderRepository;
+		this.mismatchRepository = mismatchRepository;
+		this.razorpayGateway = razorpayGateway;
+		this.transaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setReadOnly(true);
+		this.concurrency = concurrency;
+		this.sliceSeconds = sliceMinutes * 60;
+		this.orderPageSize = orderPageSize;
+	}
+
+	@Scheduled(cron = "${payment.reconciliation.cron:0 30 2 * * *}")
+	public void reconcileYesterday() {
+		reconcile(LocalDate.now(ZONE).minusDays(1));
+	}
+
+	/**
+	 * Reconciles the orders placed on one day. Returns false without doing
+	 * anything when a run is already in progress.
+	 */
+	public boolean reconcile(LocalDate businessDate) {
+		if (!reconciling.compareAndSet(false, true)) {
+			return false;
+		}
+		long started = System.currentTimeMillis();
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("businessDate", businessDate.toString());
+		try {
+			LocalDateTime from = businessDate.atStartOfDay();
+			LocalDateTime to = from.plusDays(1);
+
+			AtomicInteger pages = new AtomicInteger();
+			Map<String, GatewayPayment> payments = fetchGatewayPayments(
+					from.atZone(ZONE).toEpochSecond(), started / 1000 + 1, pages);
+			summary.put("gatewayPayments", payments.size());
+			summary.put("gatewayPages", pages.get());
+			long fetchedAt = System.currentTimeMillis();
+			summary.put("gatewayFetchMs", fetchedAt - started);
+
+			List<PaymentMismatch> mismatches = new ArrayList<>();
+			// parallel to mismatches, null where no order here matched
+			List<Integer> mismatchOrderIds = new ArrayList<>();
+			Set<String> matched = new HashSet<>();
+			long orders = compareOrders(businessDate, from, to, payments, matched, mismatches, mismatchOrderIds);
+			findUnknownGatewayOrders(businessDate, to.atZone(ZONE).toEpochSecond(), payments, matched,
+					mismatches, mismatchOrderIds);
+
+			transaction.executeWithoutResult(status -> {
+				mismatchRepository.deleteByBusinessDate(businessDate);
+				for (int i = 0; i < mismatches.size(); i++) {
+					Integer orderId = mismatchOrderIds.get(i);
+					if (orderId != null) {
+						mismatches.get(i).setOrder(orderRepository.getReferenceById(orderId));
+					}
+				}
+				mismatchRepository.saveAll(mismatches);
+			});
+
+			Map<PaymentMismatchType, Integer> counts = new EnumMap<>(PaymentMismatchType.class);
+			for (PaymentMismatch mismatch : mismatches) {
+				counts.merge(mismatch.getType(), 1, Integer::sum);
+			}
+			summary.put("ordersChecked", orders);
+			summary.put("orderScanMs", System.currentTimeMillis() - fetchedAt);
+			summary.put("mismatches", counts);
+			summary.put("status", "COMPLETED");
+		} catch (RuntimeException e) {
+			failedRuns.increment();
+			summary.put("status", "FAILED");
+			summary.put("error", String.valueOf(e.getMessage()));
+		} finally {
+			runs.increment();
+			summary.put("durationMs", System.currentTimeMillis() - started);
+			lastRun = summary;
+			reconciling.set(false);
+		}
+		return true;
+	}
+
+	public Map<String, Object> stats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("runs", runs.sum());
+		stats.put("failedRuns", failedRuns.sum());
+		stats.put("running", reconciling.get());
+		stats.put("concurrency", concurrency);
+		stats.put("lastRun", lastRun);
+		return stats;
+	}
+
+	// every payment created in [from, to), keyed by gateway order id; a paid payment wins over failed attempts
+	private Map<String, GatewayPayment> fetchGatewayPayments(long from, long to, AtomicInteger pages) {
+		Map<String, GatewayPayment> payments = new ConcurrentHashMap<>();
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(concurrency, runnable -> {
+			Thread thread = new Thread(runnable, "payment-reconciliation-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Future<?>> slices = new ArrayList<>();
+			for (long sliceFrom = from; sliceFrom < to; sliceFrom += sliceSeconds) {
+				long sliceStart = sliceFrom;
+				long sliceEnd = Math.min(to, sliceFrom + sliceSeconds);
+				slices.add(pool.submit(() -> fetchSlice(sliceStart, sliceEnd, payments, pages)));
+			}
+			for (Future<?> slice : slices) {
+				slice.get();
+			}
+			return payments;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PaymentGatewayException("Interrupted while listing gateway payments", e);
+		} catch (ExecutionException e) {
+			throw new PaymentGatewayException("Could not list gateway payments: " + e.getCause().getMessage(), e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private void fetchSlice(long from, long to, Map<String, GatewayPayment> payments, AtomicInteger pages) {
+		int pageSize = PaymentGatewayClient.MAX_PAGE_SIZE;
+		for (int skip = 0; ; skip += pageSize) {
+			List<GatewayPayment> page = razorpayGateway.fetchPayments(from, to, skip, pageSize);
+			pages.incrementAndGet();
+			for (GatewayPayment payment : page) {
+				if (payment.getOrderId() != null) {
+					payments.merge(payment.getOrderId(), payment, (a, b) -> b.isPaid() && !a.isPaid() ? b : a);
+				}
+			}
+			if (page.size() < pageSize) {
+				return;
+			}
+		}
+	}
+
+	// returns the number of orders checked; the gateway order ids seen go into matched
+	private long compareOrders(LocalDate businessDate, LocalDateTime from, LocalDateTime to,
+			Map<String, GatewayPayment> payments, Set<String> matched,
+			List<PaymentMismatch> mismatches, List<Integer> mismatchOrderIds) {
+		LocalDateTime afterDate = from;
+		// ids are positive, so (from, 0) starts at the first order of the day
+		Integer afterId = 0;
+		long checked = 0;
+		while (true) {
+			LocalDateTime pageAfterDate = afterDate;
+			Integer pageAfterId = afterId;
+			List<Object[]> rows = readOnlyTransaction.execute(status -> orderRepository.findGatewayOrdersAfter(
+					pageAfterDate, pageAfterId, to, PageRequest.of(0, orderPageSize)));
+			if (rows.isEmpty()) {
+				return checked;
+			}
+
+			for (Object[] row : rows) {
+				matched.add((String) row[1]);
+				PaymentMismatch mismatch = compare(businessDate, row, payments.get((String) row[1]));
+				if (mismatch != null) {
+					mismatches.add(mismatch);
+					mismatchOrderIds.add((Integer) row[0]);
+				}
+			}
+
+			checked += rows.size();
+			Object[] last = rows.get(rows.size() - 1);
+			afterDate = (LocalDateTime) last[4];
+			afterId = (Integer) last[0];
+			if (rows.size() < orderPageSize) {
+				return checked;
+			}
+		}
+	}
+
+	// paid payments created before the end of the day whose gateway order no order carries. Those the day's
+	// orders did not match are looked up among all orders, since late payments for earlier days are listed too.
+	private void findUnknownGatewayOrders(LocalDate businessDate, long to, Map<String, GatewayPayment> payments,
+			Set<String> matched, List<PaymentMismatch> mismatches, List<Integer> mismatchOrderIds) {
+		List<GatewayPayment> unmatched = new ArrayList<>();
+		for (GatewayPayment payment : payments.values()) {
+			if (payment.isPaid() && payment.getCreatedAt() < to && !matched.contains(payment.getOrderId())) {
+				unmatched.add(payment);
+			}
+		}
+		for (int start = 0; start < unmatched.size(); start += orderPageSize) {
+			List<GatewayPayment> chunk = unmatched.subList(start, Math.min(unmatched.size(), start + orderPageSize));
+			List<String> orderIds = chunk.stream().map(GatewayPayment::getOrderId).toList();
+			Set<String> known = new HashSet<>(readOnlyTransaction.execute(
+					status -> orderRepository.findRazorpayOrderIdsIn(orderIds)));
+			for (GatewayPayment payment : chunk) {
+				if (known.contains(payment.getOrderId())) {
+					continue;
+				}
+				PaymentMismatch mismatch = new PaymentMismatch();
+				mismatch.setBusinessDate(businessDate);
+				mismatch.setType(PaymentMismatchType.UNKNOWN_GATEWAY_ORDER);
+				mismatch.setRazorpayOrderId(payment.getOrderId());
+				mismatch.setRazorpayPaymentId(payment.getPaymentId());
+				mismatch.setGatewayStatus(payment.getStatus());
+				mismatch.setGatewayAmountPaise(payment.getAmount());
+				mismatches.add(mismatch);
+				mismatchOrderIds.add(null);
+			}
+		}
+	}
+
+	// row is [orderId, razorpayOrderId, paymentStatus, totalAmount, orderDate]; null when both sides agree.
+	// The order itself is attached by the caller.
+	private static PaymentMismatch compare(LocalDate businessDate, Object[] row, GatewayPayment payment) {
+		PaymentStatus localStatus = (PaymentStatus) row[2];
+		long localAmount = ((BigDecimal) row[3]).movePointRight(2).longValue();
+		boolean paidLocally = localStatus == PaymentStatus.PAID;
+		boolean paidAtGateway = payment != null && payment.isPaid();
+
+		PaymentMismatchType type;
+		if (paidAtGateway && !paidLocally) {
+			type = PaymentMismatchType.PAID_AT_GATEWAY_ONLY;
+		} else if (paidLocally && !paidAtGateway) {
+			type = PaymentMismatchType.PAID_LOCALLY_ONLY;
+		} else if (paidLocally && payment.getAmount() != localAmount) {
+			type = PaymentMismatchType.AMOUNT_MISMATCH;
+		} else {
+			return null;
+		}
+
+		PaymentMismatch mismatch = new PaymentMismatch();
+		mismatch.setBusinessDate(businessDate);
+		mismatch.setType(type);
+		mismatch.setRazorpayOrderId((String) row[1]);
+		mismatch.setLocalPaymentStatus(localStatus);
+		mismatch.setLocalAmountPaise(localAmount);
+		if (payment != null) {
+			mismatch.setRazorpayPaymentId(payment.getPaymentId());
+			mismatch.setGatewayStatus(payment.getStatus());
+			mismatch.setGatewayAmountPaise(payment.getAmount());
+		}
+		return mismatch;
+	}
+}
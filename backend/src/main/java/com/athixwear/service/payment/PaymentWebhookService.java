@@ -0,0 +1,340 @@
+package com.athixwear.service.payment;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.athixwear.entity.Order;
+import com.athixwear.entity.PaymentWebhookEvent;
+import com.athixwear.entity.WebhookEventStatus;
+import com.athixwear.exception.BadRequestException;
+import com.athixwear.exception.InvalidCredentialsException;
+import com.athixwear.repository.OrderRepository;
+import com.athixwear.repository.PaymentWebhookEventRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Razorpay webhooks, acknowledged as soon as they are safely stored. The
+ * request thread only checks the signature and inserts the raw event; the
+ * unique event id turns a redelivery into a no-op. The row id then goes on a
+ * bounded in-memory queue that a few workers drain in batches, applying the
+ * same order transitions as client-side verification, one transaction per
+ * batch.
+ * <p>
+ * The queue never blocks the request: when it is full the event simply stays
+ * RECEIVED, and a periodic sweep over the (status, received_at) index feeds
+ * such events, and any left behind by a restart, back to the workers.
+ */
+@Service
+public class PaymentWebhookService {
+
+	private static final int MAX_ERROR_LENGTH = 500;
+
+	private final PaymentWebhookEventRepository eventRepository;
+	private final OrderRepository orderRepository;
+	private final OrderPaymentTransitions paymentTransitions;
+	private final TransactionTemplate transaction;
+	// null when no webhook secret is configured
+	private final HmacSha256Verifier signatureVerifier;
+	private final int workers;
+	private final int batchSize;
+	private final long recoveryAgeMillis;
+	private final BlockingQueue<Long> queue;
+
+	private final List<Thread> workerThreads = new ArrayList<>();
+	private volatile boolean running;
+
+	private final LongAdder received = new LongAdder();
+	private final LongAdder duplicates = new LongAdder();
+	private final LongAdder overflowed = new LongAdder();
+	private final LongAdder processed = new LongAdder();
+	private final LongAdder ignored = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+
+	public PaymentWebhookService(PaymentWebhookEventRepository eventRepository,
+			OrderRepository orderRepository,
+			OrderPaymentTransitions paymentTransitions,
+			PlatformTransactionManager transactionManager,
+			@Value("${razorpay.webhook-secret:}") String webhookSecret,
+			@Value("${payment.webhook.workers:2}") int workers,
+			@Value("${payment.webhook.batch-size:100}") int batchSize,
+			@Value("${payment.webhook.queue-capacity:10000}") int queueCapacity,
+			@Value("${payment.webhook.recovery-age-ms:30000}") long recoveryAgeMillis) {
+		super();
+		this.eventRepository = eventRepository;
+		this.orderRepository = orderRepository;
+		this.paymentTransitions = paymentTransitions;
+		this.transaction = new TransactionTemplate(transactionManager);
+		this.signatureVerifier = webhookSecret.isBlank() ? null : new HmacSha256Verifier(webhookSecret);
+		this.workers = workers;
+		this.batchSize = batchSize;
+		this.recoveryAgeMillis = recoveryAgeMillis;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+	}
+
+	/**
+	 * Verifies and stores one webhook delivery and queues it for processing.
+	 * Returns false when the event had already been received.
+	 */
+	public boolean receive(String body, String signature, String eventIdHeader) {
+		if (signatureVerifier == null) {
+			throw new InvalidCredentialsException("Webhooks are not configured");
+		}
+		if (!signatureVerifier.verify(body, signature)) {
+			throw new InvalidCredentialsException("Invalid webhook signature");
+		}
+
+		PaymentWebhookEvent event = new PaymentWebhookEvent();
+		event.setEventId(eventIdHeader != null && !eventIdHeader.isBlank() ? eventIdHeader : sha256(body));
+		event.setEventType(eventType(body));
+		event.setPayload(body);
+
+		try {
+			event = eventRepository.saveAndFlush(event);
+		} catch (DataIntegrityViolationException e) {
+			duplicates.increment();
+			return false;
+		}
+		received.increment();
+
+		if (!queue.offer(event.getWebhookEventId())) {
+			// stored, so nothing is lost; the recovery sweep picks it up
+			overflowed.increment();
+		}
+		return true;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		for (int i = 0; i < workers; i++) {
+			Thread thread = new Thread(this::work, "payment-webhook-" + (i + 1));
+			thread.setDaemon(true);
+			thread.start();
+			workerThreads.add(thread);
+		}
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+		running = false;
+		for (Thread thread : workerThreads) {
+			thread.interrupt();
+		}
+		workerThreads.clear();
+	}
+
+	// events left RECEIVED by a full queue, a failed batch or a restart
+	@Scheduled(fixedDelayString = "${payment.webhook.recovery-ms:30000}", initialDelay = 5000)
+	public void recover() {
+		LocalDateTime before = LocalDateTime.now().minusNanos(recoveryAgeMillis * 1_000_000);
+		List<Long> stale = eventRepository.findIdsByStatusBefore(WebhookEventStatus.RECEIVED, before,
+				PageRequest.of(0, Math.max(1, queue.remainingCapacity())));
+		for (Long id : stale) {
+			if (!queue.offer(id)) {
+				break;
+			}
+		}
+	}
+
+	public Map<String, Object> stats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("received", received.sum());
+		stats.put("duplicates", duplicates.sum());
+		stats.put("overflowed", overflowed.sum());
+		stats.put("processed", processed.sum());
+		stats.put("ignored", ignored.sum());
+		stats.put("failed", failed.sum());
+		stats.put("batches", batches.sum());
+		stats.put("queued", queue.size());
+		stats.put("workers", workers);
+		return stats;
+	}
+
+	private void work() {
+		List<Long> batch = new ArrayList<>(batchSize);
+		while (running) {
+			try {
+				Long first = queue.poll(1, TimeUnit.SECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				process(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (RuntimeException e) {
+				// the events stay RECEIVED and come back through recover()
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void process(List<Long> ids) {
+		try {
+			count(transaction.execute(status -> apply(ids)));
+			batches.increment();
+		} catch (RuntimeException e) {
+			// one bad event must not hold back the rest: retry them one by one
+			for (Long id : ids) {
+				try {
+					count(transaction.execute(status -> apply(List.of(id))));
+				} catch (RuntimeException single) {
+					markFailed(id, single);
+				}
+			}
+		}
+	}
+
+	// counted only once the transaction has committed
+	private void count(int[] outcome) {
+		processed.add(outcome[0]);
+		ignored.add(outcome[1]);
+	}
+
+	// returns {processed, ignored}
+	private int[] apply(List<Long> ids) {
+		int[] outcome = new int[2];
+		List<PaymentWebhookEvent> events = eventRepository.lockByIdsAndStatus(ids, WebhookEventStatus.RECEIVED);
+		if (events.isEmpty()) {
+			return outcome;
+		}
+
+		List<WebhookPayment> payments = new ArrayList<>(events.size());
+		Set<String> razorpayOrderIds = new HashSet<>();
+		for (PaymentWebhookEvent event : events) {
+			WebhookPayment payment = WebhookPayment.parse(event);
+			payments.add(payment);
+			if (payment.razorpayOrderId != null) {
+				razorpayOrderIds.add(payment.razorpayOrderId);
+			}
+		}
+		Map<String, Order> orders = razorpayOrderIds.isEmpty() ? Map.of()
+				// locked so a concurrent verification or another worker's event for the same order waits here
+				// and then sees this one's outcome instead of passing the PAID check on a stale copy
+				: orderRepository.lockByRazorpayOrderIdIn(razorpayOrderIds).stream()
+						.collect(Collectors.toMap(Order::getRazorpayOrderId, Function.identity(), (a, b) -> a));
+
+		LocalDateTime now = LocalDateTime.now();
+		for (WebhookPayment payment : payments) {
+			Order order = payment.razorpayOrderId != null ? orders.get(payment.razorpayOrderId) : null;
+			boolean applied = false;
+			if (order != null && payment.captured) {
+				paymentTransitions.markPaid(order, payment.razorpayPaymentId, null);
+				applied = true;
+			} else if (order != null && payment.failed) {
+				paymentTransitions.markFailed(order);
+				applied = true;
+			}
+			payment.event.setStatus(applied ? WebhookEventStatus.PROCESSED : WebhookEventStatus.IGNORED);
+			payment.event.setProcessedAt(now);
+			outcome[applied ? 0 : 1]++;
+		}
+		return outcome;
+	}
+
+	private void markFailed(Long id, RuntimeException cause) {
+		try {
+			transaction.executeWithoutResult(status -> eventRepository.findById(id).ifPresent(event -> {
+				String message = String.valueOf(cause.getMessage());
+				event.setStatus(WebhookEventStatus.FAILED);
+				event.setError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+				event.setProcessedAt(LocalDateTime.now());
+			}));
+			failed.increment();
+		} catch (RuntimeException e) {
+			// left RECEIVED; recover() will try it again
+		}
+	}
+
+	private static String eventType(String body) {
+		try {
+			return new JSONObject(body).optString("event", null);
+		} catch (JSONException e) {
+			throw new BadRequestException("Webhook body is not valid JSON");
+		}
+	}
+
+	private static String sha256(String body) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(hash);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// the parts of a webhook the order transitions need
+	private static final class WebhookPayment {
+		private final PaymentWebhookEvent event;
+		private final String razorpayOrderId;
+		private final String razorpayPaymentId;
+		private final boolean captured;
+		private final boolean failed;
+
+		private WebhookPayment(PaymentWebhookEvent event, String razorpayOrderId, String razorpayPaymentId,
+				boolean captured, boolean failed) {
+			this.event = event;
+			this.razorpayOrderId = razorpayOrderId;
+			this.razorpayPaymentId = razorpayPaymentId;
+			this.captured = captured;
+			this.failed = failed;
+		}
+
+		private static WebhookPayment parse(PaymentWebhookEvent event) {
+			String type = event.getEventType();
+			JSONObject payload = new JSONObject(event.getPayload()).optJSONObject("payload");
+			JSONObject payment = entity(payload, "payment");
+			JSONObject order = entity(payload, "order");
+
+			String razorpayOrderId = payment != null ? payment.optString("order_id", null) : null;
+			if (razorpayOrderId == null && order != null) {
+				razorpayOrderId = order.optString("id", null);
+			}
+			String razorpayPaymentId = payment != null ? payment.optString("id", null) : null;
+
+			boolean captured = "payment.captured".equals(type) || "order.paid".equals(type);
+			return new WebhookPayment(event, razorpayOrderId, razorpayPaymentId,
+					captured, "payment.failed".equals(type));
+		}
+
+		private static JSONObject entity(JSONObject payload, String name) {
+			JSONObject wrapper = payload != null ? payload.optJSONObject(name) : null;
+			return wrapper != null ? wrapper.optJSONObject("entity") : null;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package com.athixwear.service.payment;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.athixwear.entity.OrderStatus;
+import com.athixwear.entity.PaymentStatus;
+import com.athixwear.repository.OrderItemRepository;
+import com.athixwear.repository.OrderRepository;
+import com.athixwear.service.analytics.SalesRollupService;
+import com.athixwear.service.inventory.InventoryService;
+import com.athixwear.service.inventory.ReservationService;
+
+/**
+ * Cancels online orders whose payment never arrived. Stock holds normally
+ * end these orders when they expire; this sweep is the backstop for orders
+ * the timer wheel never saw (placed before holds existed, or whose hold was
+ * lost) and keeps abandoned checkouts from piling up as PENDING.
+ * <p>
+ * Each batch is one short transaction made of set-based statements: lock up
+ * to batch-size expired order ids through the (payment_method,
+ * payment_status, order_status, order_date) index, release their holds,
+ * give back their stock in one aggregated update per product and flip all
+ * their statuses in one UPDATE. A run keeps taking batches until one comes
+ * back short or the per-run cap is reached, so a large backlog drains over a
+ * few runs without any transaction growing with it.
+ */
+@Service
+public class PendingPaymentSweeper {
+
+	private final OrderRepository orderRepository;
+	private final OrderItemRepository orderItemRepository;
+	private final ReservationService reservationService;
+	private final InventoryService inventoryService;
+	private final SalesRollupService salesRollupService;
+	private final TransactionTemplate transaction;
+	private final long maxAgeMillis;
+	private final int batchSize;
+	private final int maxBatchesPerRun;
+
+	private final AtomicBoolean sweeping = new AtomicBoolean();
+	private final LongAdder runs = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder cancelled = new LongAdder();
+	private final LongAdder failedBatches = new LongAdder();
+	private volatile long lastRunCancelled;
+	private volatile long lastRunMillis;
+	private volatile boolean backlogRemaining;
+
+	public PendingPaymentSweeper(OrderRepository orderRepository,
+			OrderItemRepository orderItemRepository,
+			ReservationService reservationService,
+			InventoryService inventoryService,
+			SalesRollupService salesRollupService,
+			PlatformTransactionManager transactionManager,
+			@Value("${payment.pending-sweep.max-age-ms:3600000}") long maxAgeMillis,
+			@Value("${payment.pending-sweep.batch-size:500}") int batchSize,
+			@Value("${payment.pending-sweep.max-batches-per-run:200}") int maxBatchesPerRun) {
+		super();
+		this.orderRepository = orderRepository;
+		this.orderItemRepository = orderItemRepository;
+		this.reservationService = reservationService;
+		this.inventoryService = inventoryService;
+		this.salesRollupService = salesRollupService;
+		this.transaction = new TransactionTemplate(transactionManager);
+		this.maxAgeMillis = maxAgeMillis;
+		this.batchSize = batchSize;
+		this.maxBatchesPerRun = maxBatchesPerRun;
+	}
+
+	@Scheduled(fixedDelayString = "${payment.pending-sweep.interval-ms:60000}", initialDelay = 60_000)
+	public void sweep() {
+		if (!sweeping.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			long started = System.currentTimeMillis();
+			LocalDateTime cutoff = LocalDateTime.now().minusNanos(maxAgeMillis * 1_000_000);
+			long total = 0;
+			boolean full = false;
+			for (int i = 0; i < maxBatchesPerRun; i++) {
+				int swept;
+				try {
+					swept = transaction.execute(status -> cancelBatch(cutoff));
+				} catch (RuntimeException e) {
+					// rolled back as a whole; the same orders come up again next run
+					failedBatches.increment();
+					break;
+				}
+				batches.increment();
+				total += swept;
+				full = swept == batchSize;
+				if (!full) {
+					break;
+				}
+			}
+			runs.increment();
+			cancelled.add(total);
+			lastRunCancelled = total;
+			lastRunMillis = System.currentTimeMillis() - started;
+			backlogRemaining = full;
+		} finally {
+			sweeping.set(false);
+		}
+	}
+
+	public Map<String, Object> stats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("runs", runs.sum());
+		stats.put("batches", batches.sum());
+		stats.put("cancelled", cancelled.sum());
+		stats.put("failedBatches", failedBatches.sum());
+		stats.put("lastRunCancelled", lastRunCancelled);
+		stats.put("lastRunMs", lastRunMillis);
+		stats.put("lastRunOrdersPerSecond", lastRunMillis > 0 ? lastRunCancelled * 1000 / lastRunMillis : lastRunCancelled);
+		// true when the last run stopped at its cap with more expired orders waiting
+		stats.put("backlogRemaining", backlogRemaining);
+		stats.put("batchSize", batchSize);
+		stats.put("maxAgeMs", maxAgeMillis);
+		return stats;
+	}
+
+	private int cancelBatch(LocalDateTime cutoff) {
+		List<Integer> orderIds = orderRepository.lockExpiredPendingPayments(cutoff, batchSize);
+		if (orderIds.isEmpty()) {
+			return 0;
+		}
+
+		Set<Integer> alreadyRestored = reservationService.releaseForCancelledOrders(orderIds);
+		List<Integer> toRestore = new ArrayList<>(orderIds.size());
+		for (Integer orderId : orderIds) {
+			if (!alreadyRestored.contains(orderId)) {
+				toRestore.add(orderId);
+			}
+		}
+		if (!toRestore.isEmpty()) {
+			Map<Integer, Integer> quantities = new HashMap<>();
+			Set<Integer> shardedProductIds = new HashSet<>();
+			for (Object[] row : orderItemRepository.sumQuantitiesByProduct(toRestore)) {
+				Integer productId = (Integer) row[0];
+				quantities.put(productId, ((Number) row[1]).intValue());
+				if (Boolean.TRUE.equals(row[2])) {
+					shardedProductIds.add(productId);
+				}
+			}
+			inventoryService.restore(quantities, shardedProductIds);
+		}
+
+		salesRollupService.statusesChanged(orderIds, OrderStatus.PENDING, PaymentStatus.PENDING,
+				OrderStatus.CANCELLED, PaymentStatus.FAILED);
+		orderRepository.updateStatuses(orderIds, OrderStatus.CANCELLED, PaymentStatus.FAILED);
+		return orderIds.size();
+	}
+}
@@ -0,0 +1,241 @@
+package com.athixwear.service.payment;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.athixwear.exception.PaymentGatewayException;
+import com.athixwear.exception.PaymentGatewayUnavailableException;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Calls to the payment gateway, run on a small dedicated pool instead of the
+ * request thread. The pool and its queue are the bulkhead: when the gateway
+ * is slow only these threads wait on it, and requests beyond the queue fail
+ * at once instead of tying up more Tomcat threads.
+ * <p>
+ * Each attempt is bounded by a timeout. Failed attempts are retried with
+ * full-jitter exponential backoff, as long as the retry budget and the
+ * overall deadline allow. A sliding-window circuit breaker watches the
+ * outcomes and, once the gateway is clearly failing, turns calls away
+ * immediately with a 503 until a few trial calls succeed again.
+ * <p>
+ * Checkout calls and the nightly reconciliation's payment listing run in
+ * separate lanes, each with its own pool, breaker and retry budget, so a
+ * slow reporting endpoint or a burst of listing pages can never fill the
+ * checkout bulkhead, spend its retries or open its breaker.
+ */
+@Component
+public class RazorpayGateway {
+
+	private final PaymentGatewayClient client;
+	private final long timeoutMillis;
+	private final long deadlineMillis;
+	private final int maxAttempts;
+	private final long backoffMillis;
+	private final Lane checkout;
+	private final Lane reporting;
+
+	// should stay 0: a gateway call made inside a transaction holds a pooled connection for its duration
+	private final LongAdder callsInsideTransaction = new LongAdder();
+
+	public RazorpayGateway(PaymentGatewayClient client,
+			@Value("${payment.gateway.timeout-ms:5000}") long timeoutMillis,
+			@Value("${payment.gateway.deadline-ms:12000}") long deadlineMillis,
+			@Value("${payment.gateway.max-attempts:3}") int maxAttempts,
+			@Value("${payment.gateway.backoff-ms:200}") long backoffMillis,
+			@Value("${payment.gateway.retry-ratio:0.2}") double retryRatio,
+			@Value("${payment.gateway.threads:8}") int threads,
+			@Value("${payment.gateway.queue-capacity:16}") int queueCapacity,
+			@Value("${payment.gateway.reporting.threads:4}") int reportingThreads,
+			@Value("${payment.gateway.reporting.queue-capacity:16}") int reportingQueueCapacity,
+			@Value("${payment.gateway.breaker.window:50}") int breakerWindow,
+			@Value("${payment.gateway.breaker.minimum-calls:10}") int breakerMinimumCalls,
+			@Value("${payment.gateway.breaker.failure-rate:0.5}") double breakerFailureRate,
+			@Value("${payment.gateway.breaker.open-ms:30000}") long breakerOpenMillis,
+			@Value("${payment.gateway.breaker.half-open-calls:3}") int breakerHalfOpenCalls) {
+		super();
+		this.client = client;
+		this.timeoutMillis = timeoutMillis;
+		this.deadlineMillis = deadlineMillis;
+		this.maxAttempts = maxAttempts;
+		this.backoffMillis = backoffMillis;
+		this.checkout = new Lane("payment-gateway", threads, queueCapacity, retryRatio,
+				new CircuitBreaker(breakerWindow, breakerMinimumCalls, breakerFailureRate,
+						breakerOpenMillis, breakerHalfOpenCalls, System::currentTimeMillis));
+		this.reporting = new Lane("payment-gateway-reporting", reportingThreads, reportingQueueCapacity, retryRatio,
+				new CircuitBreaker(breakerWindow, breakerMinimumCalls, breakerFailureRate,
+						breakerOpenMillis, breakerHalfOpenCalls, System::currentTimeMillis));
+	}
+
+	// creates a gateway order and returns its id
+	public String createOrder(long amountInPaise, String currency, String receipt) {
+		return call(checkout, () -> client.createOrder(amountInPaise, currency, receipt));
+	}
+
+	// one page of the payments created in [from, to), epoch seconds; runs in the reporting lane
+	public List<GatewayPayment> fetchPayments(long from, long to, int skip, int count) {
+		return call(reporting, () -> client.fetchPayments(from, to, skip, count));
+	}
+
+	public Map<String, Object> stats() {
+		Map<String, Object> stats = checkout.stats();
+		stats.put("callsInsideTransaction", callsInsideTransaction.sum());
+		stats.put("timeoutMs", timeoutMillis);
+		stats.put("reporting", reporting.stats());
+		return stats;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		checkout.executor.shutdownNow();
+		reporting.executor.shutdownNow();
+	}
+
+	private <T> T call(Lane lane, Callable<T> request) {
+		lane.calls.increment();
+		if (TransactionSynchronizationManager.isActualTransactionActive()) {
+			callsInsideTransaction.increment();
+		}
+		lane.retryBudget.onRequest();
+
+		long deadline = System.currentTimeMillis() + deadlineMillis;
+		for (int attempt = 1; ; attempt++) {
+			PaymentGatewayException failure;
+			try {
+				return attempt(lane, request);
+			} catch (PaymentGatewayUnavailableException | GatewayRequestRejectedException e) {
+				throw e;
+			} catch (PaymentGatewayException e) {
+				failure = e;
+			}
+
+			long backoff = ThreadLocalRandom.current().nextLong((backoffMillis << (attempt - 1)) + 1);
+			boolean canRetry = attempt < maxAttempts
+					&& System.currentTimeMillis() + backoff + timeoutMillis <= deadline
+					&& lane.retryBudget.tryRetry();
+			if (!canRetry) {
+				throw failure;
+			}
+			lane.retries.increment();
+			try {
+				Thread.sleep(backoff);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw failure;
+			}
+		}
+	}
+
+	private <T> T attempt(Lane lane, Callable<T> request) {
+		CircuitBreaker circuitBreaker = lane.circuitBreaker;
+		if (!circuitBreaker.tryAcquire()) {
+			lane.shortCircuited.increment();
+			throw new PaymentGatewayUnavailableException("Payment gateway is temporarily unavailable, please retry",
+					retryAfterSeconds(circuitBreaker.remainingOpenMillis()));
+		}
+
+		Future<T> future;
+		try {
+			future = lane.executor.submit(request);
+		} catch (RejectedExecutionException e) {
+			circuitBreaker.onIgnored();
+			lane.rejected.increment();
+			throw new PaymentGatewayUnavailableException("Payment gateway is busy, please retry", 1);
+		}
+		lane.attempts.increment();
+
+		try {
+			T result = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+			circuitBreaker.onSuccess();
+			return result;
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			circuitBreaker.onFailure();
+			lane.timeouts.increment();
+			throw new PaymentGatewayException("Payment gateway timed out", e);
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			circuitBreaker.onIgnored();
+			Thread.currentThread().interrupt();
+			throw new PaymentGatewayUnavailableException("Interrupted while calling the payment gateway", 1);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof GatewayRequestRejectedException rejection) {
+				// the gateway is healthy, the request was wrong
+				circuitBreaker.onSuccess();
+				throw rejection;
+			}
+			circuitBreaker.onFailure();
+			lane.failures.increment();
+			throw new PaymentGatewayException("Payment gateway request failed", e.getCause());
+		}
+	}
+
+	private static long retryAfterSeconds(long millis) {
+		return Math.max(1, (millis + 999) / 1000);
+	}
+
+	// one bulkhead: its own pool, breaker, retry budget and counters
+	private static final class Lane {
+		private final ThreadPoolExecutor executor;
+		private final CircuitBreaker circuitBreaker;
+		private final RetryBudget retryBudget;
+
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder attempts = new LongAdder();
+		private final LongAdder retries = new LongAdder();
+		private final LongAdder rejected = new LongAdder();
+		private final LongAdder shortCircuited = new LongAdder();
+		private final LongAdder timeouts = new LongAdder();
+		private final LongAdder failures = new LongAdder();
+
+		private Lane(String threadName, int threads, int queueCapacity, double retryRatio, CircuitBreaker circuitBreaker) {
+			this.circuitBreaker = circuitBreaker;
+			this.retryBudget = new RetryBudget(retryRatio, 10);
+			AtomicInteger threadCount = new AtomicInteger();
+			this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(queueCapacity),
+					runnable -> {
+						Thread thread = new Thread(runnable, threadName + "-" + threadCount.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					},
+					new ThreadPoolExecutor.AbortPolicy());
+		}
+
+		private Map<String, Object> stats() {
+			Map<String, Object> stats = new LinkedHashMap<>();
+			stats.put("calls", calls.sum());
+			stats.put("attempts", attempts.sum());
+			stats.put("retries", retries.sum());
+			stats.put("rejected", rejected.sum());
+			stats.put("shortCircuited", shortCircuited.sum());
+			stats.put("timeouts", timeouts.sum());
+			stats.put("failures", failures.sum());
+			stats.put("breakerState", circuitBreaker.state().name());
+			stats.put("breakerFailureRate", circuitBreaker.failureRate());
+			stats.put("breakerOpenings", circuitBreaker.timesOpened());
+			stats.put("retryTokens", retryBudget.available());
+			stats.put("inFlight", executor.getActiveCount());
+			stats.put("queued", executor.getQueue().size());
+			stats.put("threads", executor.getMaximumPoolSize());
+			return stats;
+		}
+	}
+}
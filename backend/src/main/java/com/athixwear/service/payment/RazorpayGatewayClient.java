@@ -0,0 +1,59 @@
+package com.athixwear.service.payment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONObject;
+
+import com.razorpay.Payment;
+import com.razorpay.RazorpayClient;
+import com.razorpay.RazorpayException;
+
+public class RazorpayGatewayClient implements PaymentGatewayClient {
+	
+	private final RazorpayClient razorpayClient;
+	
+	public RazorpayGatewayClient(RazorpayClient razorpayClient) {
+		super();
+		this.razorpayClient = razorpayClient;
+	}
+	
+	@Override
+	public String createOrder(long amountInPaise, String currency, String receipt) throws Exception {
+		JSONObject options = new JSONObject();
+		options.put("amount", amountInPaise);
+		options.put("currency", currency);
+		options.put("receipt", receipt);
+		options.put("payment_capture", 1);
+		
+		try {
+			com.razorpay.Order razorpayOrder = razorpayClient.orders.create(options);
+			return razorpayOrder.get("id");
+		} catch (RazorpayException e) {
+			// the client reports 4xx responses as "BAD_REQUEST_ERROR:<description>"
+			if (e.getMessage() != null && e.getMessage().startsWith("BAD_REQUEST_ERROR")) {
+				throw new GatewayRequestRejectedException("Payment gateway rejected the request", e);
+			}
+			throw e;
+		}
+	}
+	
+	@Override
+	public List<GatewayPayment> fetchPayments(long from, long to, int skip, int count) throws Exception {
+		JSONObject options = new JSONObject();
+		options.put("from", from);
+		// Razorpay's "to" is inclusive
+		options.put("to", to - 1);
+		options.put("skip", skip);
+		options.put("count", count);
+		
+		List<Payment> payments = razorpayClient.payments.fetchAll(options);
+		List<GatewayPayment> page = new ArrayList<>(payments.size());
+		for (Payment payment : payments) {
+			JSONObject json = payment.toJson();
+			page.add(new GatewayPayment(json.getString("id"), json.optString("order_id", null),
+					json.optString("status", null), json.optLong("amount"), json.optLong("created_at")));
+		}
+		return page;
+	}
+}
@@ -0,0 +1,36 @@
+package com.athixwear.service.payment;
+
+/**
+ * Caps retries at a share of the traffic, so retries cannot multiply the
+ * load on a gateway that is already failing. Every first attempt deposits
+ * {@code ratio} of a token, every retry spends a whole one; the balance is
+ * capped so a quiet period cannot save up a retry storm.
+ */
+public class RetryBudget {
+	
+	private final double ratio;
+	private final double maxTokens;
+	private double tokens;
+	
+	public RetryBudget(double ratio, double maxTokens) {
+		this.ratio = ratio;
+		this.maxTokens = maxTokens;
+		this.tokens = maxTokens;
+	}
+	
+	public synchronized void onRequest() {
+		tokens = Math.min(maxTokens, tokens + ratio);
+	}
+	
+	public synchronized boolean tryRetry() {
+		if (tokens < 1) {
+			return false;
+		}
+		tokens -= 1;
+		return true;
+	}
+	
+	public synchronized double available() {
+		return tokens;
+	}
+}
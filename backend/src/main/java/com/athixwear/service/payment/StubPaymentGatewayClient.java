@@ -0,0 +1,82 @@
+package com.athixwear.service.payment;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline stand-in for Razorpay (payment.gateway.mode=stub), for load tests
+ * of the resilience layer. Every call takes {@code latencyMillis}; a share
+ * of calls fail with an I/O error and a share hang for {@code hangMillis}, so
+ * timeouts, retries and the breaker can all be driven without a network.
+ * <p>
+ * Orders it creates are remembered, and listed back as payments: a
+ * {@code paidRate} share of them captured, the rest failed, decided by the
+ * order id so every listing agrees. That is enough to run the reconciliation
+ * job end to end offline.
+ */
+public class StubPaymentGatewayClient implements PaymentGatewayClient {
+	
+	private final long latencyMillis;
+	private final double failureRate;
+	private final double hangRate;
+	private final long hangMillis;
+	private final double paidRate;
+	private final AtomicLong sequence = new AtomicLong();
+	// by sequence number, which is also creation order
+	private final ConcurrentSkipListMap<Long, GatewayPayment> payments = new ConcurrentSkipListMap<>();
+	
+	public StubPaymentGatewayClient(long latencyMillis, double failureRate, double hangRate, long hangMillis,
+			double paidRate) {
+		super();
+		this.latencyMillis = latencyMillis;
+		this.failureRate = failureRate;
+		this.hangRate = hangRate;
+		this.hangMillis = hangMillis;
+		this.paidRate = paidRate;
+	}
+	
+	@Override
+	public String createOrder(long amountInPaise, String currency, String receipt) throws Exception {
+		simulateCall();
+		long id = sequence.incrementAndGet();
+		String orderId = "order_stub_" + id;
+		boolean paid = Math.floorMod(orderId.hashCode(), 10_000) < paidRate * 10_000;
+		payments.put(id, new GatewayPayment("pay_stub_" + id, orderId, paid ? "captured" : "failed",
+				amountInPaise, System.currentTimeMillis() / 1000));
+		return orderId;
+	}
+	
+	@Override
+	public List<GatewayPayment> fetchPayments(long from, long to, int skip, int count) throws Exception {
+		simulateCall();
+		List<GatewayPayment> page = new ArrayList<>(count);
+		int skipped = 0;
+		for (Map.Entry<Long, GatewayPayment> entry : payments.entrySet()) {
+			GatewayPayment payment = entry.getValue();
+			if (payment.getCreatedAt() < from || payment.getCreatedAt() >= to) {
+				continue;
+			}
+			if (skipped++ < skip) {
+				continue;
+			}
+			page.add(payment);
+			if (page.size() == count) {
+				break;
+			}
+		}
+		return page;
+	}
+	
+	private void simulateCall() throws Exception {
+		double roll = ThreadLocalRandom.current().nextDouble();
+		Thread.sleep(roll < hangRate ? hangMillis : latencyMillis);
+		if (roll >= hangRate && roll < hangRate + failureRate) {
+			throw new IOException("Stub gateway failure");
+		}
+	}
+}
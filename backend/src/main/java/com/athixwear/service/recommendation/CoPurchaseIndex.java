@@ -0,0 +1,115 @@
+package com.athixwear.service.recommendation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sparse product co-occurrence matrix: for every product, how many orders also
+ * contained each other product. Each row keeps its best {@code topK} neighbours
+ * as a ready-made array, so a lookup is one hash probe and no sorting.
+ * Writes must be serialized by the caller; reads are safe at any time.
+ */
+public class CoPurchaseIndex {
+	
+	private final int topK;
+	private final Map<Integer, Row> rows;
+	
+	public CoPurchaseIndex(int topK) {
+		this(topK, new ConcurrentHashMap<>());
+	}
+	
+	private CoPurchaseIndex(int topK, Map<Integer, Row> rows) {
+		this.topK = topK;
+		this.rows = rows;
+	}
+	
+	static CoPurchaseIndex build(int topK, PairCounts pairs) {
+		Map<Integer, Row> rows = new ConcurrentHashMap<>();
+		pairs.forEach((first, second, count) ->
+				rows.computeIfAbsent(first, id -> new Row()).counts.put(second, count));
+		for (Row row : rows.values()) {
+			row.rank(topK);
+		}
+		return new CoPurchaseIndex(topK, rows);
+	}
+	
+	// best co-purchased product ids for productId, strongest first
+	public int[] related(int productId) {
+		Row row = rows.get(productId);
+		return row == null ? new int[0] : row.top;
+	}
+	
+	// one order's distinct products: every ordered pair gains one co-purchase
+	public void addOrder(Collection<Integer> productIds) {
+		for (Integer first : productIds) {
+			for (Integer second : productIds) {
+				if (!first.equals(second)) {
+					rows.computeIfAbsent(first, id -> new Row()).increment(second, topK);
+				}
+			}
+		}
+	}
+	
+	public int size() {
+		return rows.size();
+	}
+	
+	private static final class Row {
+		private final Map<Integer, Integer> counts = new HashMap<>();
+		// replaced, never modified, so readers can use it without locking
+		private volatile int[] top = new int[0];
+		
+		private void increment(int productId, int topK) {
+			int count = counts.merge(productId, 1, Integer::sum);
+			int[] current = top;
+			
+			// counts only grow, so an outsider can only enter by overtaking the weakest entry
+			int position = indexOf(current, productId);
+			if (position < 0) {
+				if (current.length == topK && !ranksBefore(productId, count, current[current.length - 1])) {
+					return;
+				}
+				int[] grown = Arrays.copyOf(current, Math.min(current.length + 1, topK));
+				position = grown.length - 1;
+				grown[position] = productId;
+				current = grown;
+			} else {
+				current = current.clone();
+			}
+			
+			// bubble the changed entry up to its place
+			while (position > 0 && ranksBefore(productId, count, current[position - 1])) {
+				current[position] = current[position - 1];
+				current[position - 1] = productId;
+				position--;
+			}
+			top = current;
+		}
+		
+		private void rank(int topK) {
+			top = counts.entrySet().stream()
+					.sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+							.thenComparing(Map.Entry.comparingByKey()))
+					.limit(topK)
+					.mapToInt(Map.Entry::getKey)
+					.toArray();
+		}
+		
+		private boolean ranksBefore(int productId, int count, int other) {
+			int otherCount = counts.get(other);
+			return count > otherCount || (count == otherCount && productId < other);
+		}
+		
+		private static int indexOf(int[] ids, int productId) {
+			for (int i = 0; i < ids.length; i++) {
+				if (ids[i] == productId) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+}
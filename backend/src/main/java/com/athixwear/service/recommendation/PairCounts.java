@@ -0,0 +1,104 @@
+package com.athixwear.service.recommendation;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from an ordered product pair to its co-purchase count.
+ * Keys and counts live in two primitive arrays, so millions of pairs cost a
+ * few dozen megabytes instead of boxed map entries. Not thread-safe: each
+ * rebuild worker fills its own and they are merged afterwards.
+ */
+class PairCounts {
+	
+	private static final long EMPTY = Long.MIN_VALUE;
+	
+	private long[] keys;
+	private int[] counts;
+	private int size;
+	
+	PairCounts(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+		keys = new long[capacity];
+		counts = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+	}
+	
+	static long key(int first, int second) {
+		return ((long) first << 32) | (second & 0xffffffffL);
+	}
+	
+	static int first(long key) {
+		return (int) (key >>> 32);
+	}
+	
+	static int second(long key) {
+		return (int) key;
+	}
+	
+	void add(long key, int delta) {
+		int slot = slot(key);
+		if (keys[slot] == EMPTY) {
+			keys[slot] = key;
+			counts[slot] = delta;
+			if (++size * 2 > keys.length) {
+				grow();
+			}
+		} else {
+			counts[slot] += delta;
+		}
+	}
+	
+	void addAll(PairCounts other) {
+		for (int i = 0; i < other.keys.length; i++) {
+			if (other.keys[i] != EMPTY) {
+				add(other.keys[i], other.counts[i]);
+			}
+		}
+	}
+	
+	int size() {
+		return size;
+	}
+	
+	void forEach(PairConsumer consumer) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != EMPTY) {
+				consumer.accept(first(keys[i]), second(keys[i]), counts[i]);
+			}
+		}
+	}
+	
+	private int slot(long key) {
+		int mask = keys.length - 1;
+		int slot = (int) mix(key) & mask;
+		while (keys[slot] != EMPTY && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+	
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldCounts = counts;
+		keys = new long[oldKeys.length * 2];
+		counts = new int[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = slot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+	
+	private static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return z ^ (z >>> 33);
+	}
+	
+	interface PairConsumer {
+		void accept(int first, int second, int count);
+	}
+}
@@ -0,0 +1,232 @@
+package com.athixwear.service.recommendation;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.athixwear.event.OrderPlacedEvent;
+import com.athixwear.repository.OrderItemRepository;
+import com.athixwear.repository.OrderRepository;
+
+/**
+ * "Frequently bought together" from order history. A full rebuild splits the
+ * order id space into fixed ranges, counts pairs per range on a worker pool
+ * and merges the partial counts; after that every committed checkout is
+ * folded in incrementally. Orders placed while a rebuild runs are queued and
+ * those the rebuild did not read are applied on top of the rebuilt index.
+ */
+@Service
+public class RecommendationService {
+	
+	private static final int TOP_K = 20;
+	// a bulk order of unrelated items says little and costs n^2 pairs
+	private static final int MAX_BASKET = 50;
+	
+	private final OrderRepository orderRepository;
+	private final OrderItemRepository orderItemRepository;
+	private final TransactionTemplate readOnlyTransaction;
+	private final int rangeSize;
+	private final int workers;
+	
+	private final Object writeLock = new Object();
+	private final AtomicBoolean rebuilding = new AtomicBoolean();
+	private volatile CoPurchaseIndex index = new CoPurchaseIndex(TOP_K);
+	// guarded by writeLock; non-null while a rebuild is running
+	private List<OrderPlacedEvent> pending;
+	
+	public RecommendationService(OrderRepository orderRepository,
+			OrderItemRepository orderItemRepository,
+			PlatformTransactionManager transactionManager,
+			@Value("${recommendations.rebuild.range-size:20000}") int rangeSize,
+			@Value("${recommendations.rebuild.workers:4}") int workers) {
+		this.orderRepository = orderRepository;
+		this.orderItemRepository = orderItemRepository;
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setReadOnly(true);
+		this.rangeSize = rangeSize;
+		this.workers = workers;
+	}
+	
+	public int[] related(int productId) {
+		return index.related(productId);
+	}
+	
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void onOrderPlaced(OrderPlacedEvent event) {
+		synchronized (writeLock) {
+			if (pending != null) {
+				pending.add(event);
+				return;
+			}
+			apply(index, event);
+		}
+	}
+	
+	// off the startup thread: the first rebuild can take a while on a large history
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuildOnStartup() {
+		Thread thread = new Thread(this::rebuild, "co-purchase-rebuild");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Recounts everything from order_items. Returns false when a rebuild is
+	 * already running.
+	 */
+	public boolean rebuild() {
+		if (!rebuilding.compareAndSet(false, true)) {
+			return false;
+		}
+		try {
+			synchronized (writeLock) {
+				pending = new ArrayList<>();
+			}
+			
+			CoPurchaseIndex rebuilt;
+			CountedOrders counted = new CountedOrders();
+			try {
+				rebuilt = CoPurchaseIndex.build(TOP_K, countPairs(counted));
+			} catch (RuntimeException e) {
+				// keep serving the old index and give it the orders held back meanwhile
+				synchronized (writeLock) {
+					for (OrderPlacedEvent event : pending) {
+						apply(index, event);
+					}
+					pending = null;
+				}
+				throw e;
+			}
+			
+			synchronized (writeLock) {
+				// checkouts that committed during the rebuild may or may not be in it. Ids are handed out
+				// in blocks, so id order is not commit order; replay exactly those the ranges did not read.
+				for (OrderPlacedEvent event : pending) {
+					if (!counted.contains(event.getOrderId())) {
+						apply(rebuilt, event);
+					}
+				}
+				pending = null;
+				index = rebuilt;
+			}
+			return true;
+		} finally {
+			rebuilding.set(false);
+		}
+	}
+	
+	private PairCounts countPairs(CountedOrders counted) {
+		List<Object[]> range = orderRepository.findOrderIdRange();
+		Object[] bounds = range.isEmpty() ? null : range.get(0);
+		if (bounds == null || bounds[0] == null) {
+			return new PairCounts(16);
+		}
+		int minId = (Integer) bounds[0];
+		int maxId = (Integer) bounds[1];
+		counted.firstId = minId;
+		
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			List<Future<PairCounts>> parts = new ArrayList<>();
+			List<BitSet> readIds = new ArrayList<>();
+			for (long from = minId; from <= maxId; from += rangeSize) {
+				int fromId = (int) from;
+				int toId = (int) Math.min(maxId, from + rangeSize - 1);
+				BitSet read = new BitSet(toId - fromId + 1);
+				readIds.add(read);
+				parts.add(pool.submit(() -> readOnlyTransaction.execute(status -> countRange(fromId, toId, read))));
+			}
+			
+			PairCounts total = null;
+			for (int i = 0; i < parts.size(); i++) {
+				PairCounts counts = parts.get(i).get();
+				if (total == null) {
+					total = counts;
+				} else {
+					total.addAll(counts);
+				}
+				counted.add(minId + (long) i * rangeSize, readIds.get(i));
+			}
+			return total;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Co-purchase rebuild interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Co-purchase rebuild failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	// counts the pairs of the orders in [fromId, toId] and marks in read (offset fromId) every order it saw
+	private PairCounts countRange(int fromId, int toId, BitSet read) {
+		List<Object[]> rows = orderItemRepository.findOrderProductPairs(fromId, toId);
+		
+		// group lines by order; the range is bounded, so holding it is fine
+		Map<Integer, Set<Integer>> baskets = new HashMap<>();
+		for (Object[] row : rows) {
+			Integer orderId = (Integer) row[0];
+			baskets.computeIfAbsent(orderId, id -> new HashSet<>()).add((Integer) row[1]);
+			read.set(orderId - fromId);
+		}
+		
+		PairCounts counts = new PairCounts(rows.size() * 2);
+		for (Set<Integer> basket : baskets.values()) {
+			if (basket.size() < 2 || basket.size() > MAX_BASKET) {
+				continue;
+			}
+			for (Integer first : basket) {
+				for (Integer second : basket) {
+					if (!first.equals(second)) {
+						counts.add(PairCounts.key(first, second), 1);
+					}
+				}
+			}
+		}
+		return counts;
+	}
+	
+	// the order ids a rebuild read, as one bit per id from the first id in the table
+	private static final class CountedOrders {
+		private final BitSet ids = new BitSet();
+		private int firstId;
+		
+		private void add(long rangeStart, BitSet read) {
+			int offset = (int) (rangeStart - firstId);
+			for (int i = read.nextSetBit(0); i >= 0; i = read.nextSetBit(i + 1)) {
+				ids.set(offset + i);
+			}
+		}
+		
+		private boolean contains(int orderId) {
+			long offset = (long) orderId - firstId;
+			return offset >= 0 && offset < Integer.MAX_VALUE && ids.get((int) offset);
+		}
+	}
+	
+	private static void apply(CoPurchaseIndex target, OrderPlacedEvent event) {
+		Set<Integer> basket = new LinkedHashSet<>(event.getQuantities().keySet());
+		if (basket.size() >= 2 && basket.size() <= MAX_BASKET) {
+			target.addOrder(basket);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.athixwear.service.trending;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Activity of one product over the last hour (60 one-minute buckets) and the
+ * last day (24 one-hour buckets). Each bucket is a {@link LongAdder}, so
+ * concurrent increments never contend on one cell, and carries the index of
+ * the minute or hour it currently counts; a stale bucket is reset by the first
+ * writer that lands on it. Readers only add up buckets whose index is inside
+ * the window, so nothing ever has to sweep old data out.
+ */
+class TrendingCounter {
+	
+	private static final long MINUTE = 60_000L;
+	private static final long HOUR = 60 * MINUTE;
+	
+	private final Ring minutes = new Ring(60, MINUTE);
+	private final Ring hours = new Ring(24, HOUR);
+	private volatile long lastActivity;
+	
+	void add(long now, long weight) {
+		minutes.add(now, weight);
+		hours.add(now, weight);
+		lastActivity = now;
+	}
+	
+	long sum(TrendingWindow window, long now) {
+		return window == TrendingWindow.LAST_HOUR ? minutes.sum(now) : hours.sum(now);
+	}
+	
+	long getLastActivity() {
+		return lastActivity;
+	}
+	
+	private static final class Ring {
+		private final int size;
+		private final long bucketMillis;
+		private final LongAdder[] buckets;
+		private final AtomicLongArray bucketIndex;
+		
+		private Ring(int size, long bucketMillis) {
+			this.size = size;
+			this.bucketMillis = bucketMillis;
+			this.buckets = new LongAdder[size];
+			this.bucketIndex = new AtomicLongArray(size);
+			for (int i = 0; i < size; i++) {
+				buckets[i] = new LongAdder();
+				bucketIndex.set(i, -1);
+			}
+		}
+		
+		private void add(long now, long weight) {
+			long index = now / bucketMillis;
+			int slot = (int) (index % size);
+			long current = bucketIndex.get(slot);
+			if (current != index && current < index && bucketIndex.compareAndSet(slot, current, index)) {
+				// a few increments racing with the reset may be lost, which a trend can afford
+				buckets[slot].reset();
+			}
+			buckets[slot].add(weight);
+		}
+		
+		private long sum(long now) {
+			long newest = now / bucketMillis;
+			long total = 0;
+			for (int slot = 0; slot < size; slot++) {
+				long index = bucketIndex.get(slot);
+				if (index > newest - size && index <= newest) {
+					total += buckets[slot].sum();
+				}
+			}
+			return total;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.athixwear.service.trending;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.athixwear.event.OrderPlacedEvent;
+
+/**
+ * "Trending now": products ranked by add-to-cart and order activity over the
+ * last hour or day. Recording is a map lookup plus two {@code LongAdder}
+ * increments and never touches the database. The ranking itself is
+ * recomputed on a timer with a bounded min-heap and published as an
+ * immutable list, so reads cost nothing either.
+ */
+@Service
+public class TrendingService {
+	
+	// an ordered unit says more about demand than a unit put in a cart
+	private static final long ADD_TO_CART_WEIGHT = 1;
+	private static final long ORDER_WEIGHT = 3;
+	private static final int TOP_K = 100;
+	// counters idle for longer than the widest window hold nothing but zeros
+	private static final long IDLE_MILLIS = 25 * 60 * 60 * 1000L;
+	
+	private final Map<Integer, TrendingCounter> counters = new ConcurrentHashMap<>();
+	private volatile Map<TrendingWindow, List<Integer>> rankings = emptyRankings();
+	
+	public void recordAddToCart(int productId, int quantity) {
+		record(productId, ADD_TO_CART_WEIGHT * Math.max(1, quantity));
+	}
+	
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void onOrderPlaced(OrderPlacedEvent event) {
+		event.getQuantities().forEach((productId, quantity) -> record(productId, ORDER_WEIGHT * quantity));
+	}
+	
+	// product ids, hottest first, as of the last refresh
+	public List<Integer> trending(TrendingWindow window) {
+		return rankings.get(window);
+	}
+	
+	@Scheduled(fixedDelayString = "${trending.refresh-ms:30000}")
+	public void refresh() {
+		long now = System.currentTimeMillis();
+		Map<TrendingWindow, List<Integer>> refreshed = new EnumMap<>(TrendingWindow.class);
+		
+		for (TrendingWindow window : TrendingWindow.values()) {
+			// min-heap of the best TOP_K so far: the root is the one to beat
+			PriorityQueue<long[]> heap = new PriorityQueue<>(TOP_K + 1,
+					(a, b) -> a[1] != b[1] ? Long.compare(a[1], b[1]) : Long.compare(b[0], a[0]));
+			
+			for (Map.Entry<Integer, TrendingCounter> entry : counters.entrySet()) {
+				long score = entry.getValue().sum(window, now);
+				if (score <= 0) {
+					continue;
+				}
+				heap.offer(new long[] { entry.getKey(), score });
+				if (heap.size() > TOP_K) {
+					heap.poll();
+				}
+			}
+			
+			List<Integer> ranked = new ArrayList<>(heap.size());
+			while (!heap.isEmpty()) {
+				ranked.add((int) heap.poll()[0]);
+			}
+			Collections.reverse(ranked);
+			refreshed.put(window, Collections.unmodifiableList(ranked));
+		}
+		rankings = refreshed;
+		
+		counters.entrySet().removeIf(entry -> now - entry.getValue().getLastActivity() > IDLE_MILLIS);
+	}
+	
+	private void record(int productId, long weight) {
+		counters.computeIfAbsent(productId, id -> new TrendingCounter())
+				.add(System.currentTimeMillis(), weight);
+	}
+	
+	private static Map<TrendingWindow, List<Integer>> emptyRankings() {
+		Map<TrendingWindow, List<Integer>> empty = new EnumMap<>(TrendingWindow.class);
+		for (TrendingWindow window : TrendingWindow.values()) {
+			empty.put(window, List.of());
+		}
+		return empty;
+	}
+}
@@ -0,0 +1,31 @@
+package com.athixwear.service.trending;
+
+import com.athixwear.exception.BadRequestException;
+
+public enum TrendingWindow {
+	
+	LAST_HOUR("1h"),
+	LAST_DAY("24h");
+	
+	private final String param;
+	
+	TrendingWindow(String param) {
+		this.param = param;
+	}
+	
+	public String getParam() {
+		return param;
+	}
+	
+	public static TrendingWindow fromParam(String param) {
+		if (param == null || param.isBlank()) {
+			return LAST_DAY;
+		}
+		for (TrendingWindow window : values()) {
+			if (window.param.equalsIgnoreCase(param)) {
+				return window;
+			}
+		}
+		throw new BadRequestException("Unsupported trending window: " + param);
+	}
+}
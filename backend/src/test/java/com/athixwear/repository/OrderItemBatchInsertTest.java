@@ -0,0 +1,114 @@
+package com.athixwear.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import com.athixwear.configuration.PersistenceConfig;
+import com.athixwear.entity.Address;
+import com.athixwear.entity.Order;
+import com.athixwear.entity.OrderItem;
+import com.athixwear.entity.Product;
+import com.athixwear.entity.Role;
+import com.athixwear.entity.User;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(PersistenceConfig.class)
+class OrderItemBatchInsertTest {
+
+	// generator round trips plus one batch each for orders and order_items
+	private static final long MAX_STATEMENTS_PER_CHECKOUT = 8;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	private User user;
+	private Address address;
+	private final List<Product> products = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		user = new User();
+		user.setUsername("batch");
+		user.setEmail("batch@example.com");
+		user.setPassword("secret");
+		user.setRole(Role.CUSTOMER);
+		entityManager.persist(user);
+
+		address = new Address();
+		address.setUser(user);
+		address.setFullName("Batch Buyer");
+		address.setPhone("9999999999");
+		address.setAddressLine("1 Test Street");
+		address.setCity("Pune");
+		address.setState("MH");
+		address.setPinCode("411001");
+		entityManager.persist(address);
+
+		for (int i = 0; i < 40; i++) {
+			Product product = new Product();
+			product.setName("Product " + i);
+			product.setPrice(BigDecimal.valueOf(100 + i));
+			product.setStock(100);
+			entityManager.persist(product);
+			products.add(product);
+		}
+		entityManager.flush();
+	}
+
+	@Test
+	void checkoutStatementCountDoesNotGrowWithCartSize() {
+		long twentyLines = statementsForCheckout(20);
+		long fortyLines = statementsForCheckout(40);
+
+		assertTrue(twentyLines <= MAX_STATEMENTS_PER_CHECKOUT, "20-line checkout took " + twentyLines + " statements");
+		assertTrue(fortyLines <= MAX_STATEMENTS_PER_CHECKOUT, "40-line checkout took " + fortyLines + " statements");
+		assertEquals(60, orderItemRepository.count());
+	}
+
+	private long statementsForCheckout(int lines) {
+		Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+				.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		Order order = new Order();
+		order.setUser(user);
+		order.setAddress(address);
+		order.setTotalAmount(BigDecimal.ZERO);
+		order.setPaymentMethod("COD");
+		Order savedOrder = orderRepository.save(order);
+
+		List<OrderItem> items = new ArrayList<>(lines);
+		for (int i = 0; i < lines; i++) {
+			OrderItem item = new OrderItem();
+			item.setOrder(savedOrder);
+			item.setProduct(products.get(i));
+			item.setQuantity(1);
+			item.setPrice(products.get(i).getPrice());
+			item.setTotalPrice(products.get(i).getPrice());
+			items.add(item);
+		}
+		orderItemRepository.saveAll(items);
+		entityManager.flush();
+
+		return statistics.getPrepareStatementCount();
+	}
+}
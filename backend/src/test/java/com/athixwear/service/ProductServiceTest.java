@@ -0,0 +1,114 @@
+package com.athixwear.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.athixwear.dto.ProductResponse;
+import com.athixwear.entity.Category;
+import com.athixwear.entity.Product;
+import com.athixwear.repository.CategoryRepository;
+import com.athixwear.repository.ProductImageRepository;
+import com.athixwear.repository.ProductRepository;
+import com.athixwear.repository.ProductSalesRankRepository;
+import com.athixwear.service.catalog.CatalogFacetService;
+import com.athixwear.service.catalog.CatalogProduct;
+import com.athixwear.service.catalog.CatalogSnapshotService;
+import com.athixwear.service.catalog.ProductJsonCache;
+import com.athixwear.service.catalog.ProductSearchService;
+import com.athixwear.service.catalog.ProductSuggestService;
+import com.athixwear.service.catalog.StockOverlay;
+import com.athixwear.service.recommendation.RecommendationService;
+import com.athixwear.service.trending.TrendingService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ProductServiceTest {
+
+	private ProductRepository productRepository;
+	private ProductImageRepository productImageRepository;
+	private CategoryRepository categoryRepository;
+	private ProductService productService;
+
+	@BeforeEach
+	void setUp() {
+		productRepository = mock(ProductRepository.class);
+		productImageRepository = mock(ProductImageRepository.class);
+		categoryRepository = mock(CategoryRepository.class);
+
+		StockOverlay stockOverlay = mock(StockOverlay.class);
+		when(stockOverlay.stockOf(any())).thenAnswer(call -> call.<CatalogProduct>getArgument(0).getStock());
+
+		ProductSearchService searchService = new ProductSearchService();
+		CatalogFacetService facetService = new CatalogFacetService(stockOverlay);
+		ProductSuggestService suggestService = new ProductSuggestService(mock(ProductSalesRankRepository.class));
+		ProductJsonCache jsonCache = new ProductJsonCache(new ObjectMapper(), stockOverlay, 1 << 20, true);
+		CatalogSnapshotService snapshotService = new CatalogSnapshotService(
+				productRepository, productImageRepository, categoryRepository, stockOverlay,
+				List.of(searchService, facetService, suggestService, jsonCache));
+		productService = new ProductService(
+				productRepository, productImageRepository, categoryRepository, snapshotService, stockOverlay,
+				searchService, facetService, suggestService, jsonCache, mock(RecommendationService.class),
+				new TrendingService());
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 50, 500 })
+	void catalogListingRunsSameNumberOfQueriesRegardlessOfSize(int catalogSize) {
+		Category category = new Category();
+		category.setCategoryId(1);
+		category.setCategoryName("Shirts");
+
+		List<Product> products = new ArrayList<>();
+		List<Object[]> imageRows = new ArrayList<>();
+		for (int id = 1; id <= catalogSize; id++) {
+			Product product = new Product();
+			product.setProductId(id);
+			product.setName("Product " + id);
+			product.setPrice(BigDecimal.TEN);
+			product.setStock(5);
+			product.setCategory(category);
+			products.add(product);
+
+			imageRows.add(new Object[] { id, "https://img/" + id + "/1.png" });
+			imageRows.add(new Object[] { id, "https://img/" + id + "/2.png" });
+		}
+
+		when(productRepository.findAllWithCategory()).thenReturn(products);
+		when(productImageRepository.findAllImageUrls()).thenReturn(imageRows);
+		when(categoryRepository.findAll()).thenReturn(List.of(category));
+
+		List<ProductResponse> responses = productService.getProducts(null);
+
+		assertEquals(catalogSize, responses.size());
+		assertEquals(List.of("https://img/1/1.png", "https://img/1/2.png"), responses.get(0).getImages());
+		assertEquals("Shirts", responses.get(0).getCategory());
+		assertEquals(5, responses.get(0).getStock());
+
+		// repeat reads are answered from the snapshot
+		assertEquals(catalogSize, productService.getProducts("shirts").size());
+		assertEquals("Product 1", productService.getProductById(1).getName());
+		assertEquals(1, productService.searchProducts("product 1", 1).get(0).getProductId());
+
+		verify(productRepository, times(1)).findAllWithCategory();
+		verify(productImageRepository, times(1)).findAllImageUrls();
+		verify(categoryRepository, times(1)).findAll();
+		verify(productImageRepository, never()).findByProduct_ProductId(anyInt());
+		verify(productImageRepository, never()).findImageUrlsByProductIds(anyCollection());
+		verifyNoMoreInteractions(productRepository, productImageRepository, categoryRepository);
+	}
+}
@@ -0,0 +1,149 @@
+package com.athixwear.service.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.athixwear.entity.Category;
+import com.athixwear.entity.Product;
+import com.athixwear.entity.Status;
+
+class CatalogFacetIndexTest {
+
+	private static final ProductFilter EVERYTHING = new ProductFilter(null, Set.of(), Set.of(), false);
+
+	private final Category shirts = category(1, "Shirts");
+	private final Category caps = category(2, "Caps");
+
+	private final CatalogSnapshot snapshot = new CatalogSnapshot(1, List.of(
+			product(1, "Oxford shirt", shirts, 1200, Status.ACTIVE, 5),
+			product(2, "apple cap", caps, 400, Status.ACTIVE, 0),
+			product(3, "Éclair tee", shirts, 700, Status.ACTIVE, 2),
+			product(4, "Denim shirt", shirts, 2500, Status.DISABLED, 1),
+			product(5, "Bucket cap", caps, 450, Status.ACTIVE, 3)),
+			Map.of("Shirts", 1, "Caps", 2));
+
+	@Test
+	void facetsAreCountedAgainstTheOtherFacetsSelections() {
+		CatalogFacetIndex index = CatalogFacetIndex.build(snapshot);
+		BitSet inStock = index.inStock(Map.of());
+		ProductFilter filter = new ProductFilter("shirts", Set.of(), Set.of(), true);
+
+		CatalogFacetIndex.Result result = index.query(filter, inStock, ProductSort.NEWEST, null, 10);
+
+		assertEquals(List.of(4, 3, 1), ids(result));
+		assertEquals(3, result.getTotal());
+		Map<String, Map<String, Long>> facets = result.getFacets();
+		// sibling categories still show what they hold in stock
+		assertEquals(Map.of("Shirts", 3L, "Caps", 1L), facets.get(CatalogFacetIndex.CATEGORY));
+		assertEquals(0L, facets.get(CatalogFacetIndex.PRICE).get("under-500"));
+		assertEquals(1L, facets.get(CatalogFacetIndex.PRICE).get("500-999"));
+		assertEquals(1L, facets.get(CatalogFacetIndex.PRICE).get("2000-4999"));
+		assertEquals(2L, facets.get(CatalogFacetIndex.STATUS).get("ACTIVE"));
+		assertEquals(1L, facets.get(CatalogFacetIndex.STATUS).get("DISABLED"));
+		assertEquals(Map.of("true", 3L, "false", 0L), facets.get(CatalogFacetIndex.IN_STOCK));
+	}
+
+	@Test
+	void valuesOfOneFacetAreUnitedAndFacetsIntersected() {
+		CatalogFacetIndex index = CatalogFacetIndex.build(snapshot);
+		ProductFilter filter = new ProductFilter(null, Set.of(PriceBucket.UNDER_500, PriceBucket.FROM_500),
+				Set.of(Status.ACTIVE), false);
+
+		CatalogFacetIndex.Result result = index.query(filter, index.inStock(Map.of()), ProductSort.PRICE_ASC, null, 10);
+
+		assertEquals(List.of(2, 5, 3), ids(result));
+		// live stock levels win over the snapshot's
+		BitSet inStock = index.inStock(Map.of(2, 4, 5, 0));
+		ProductFilter inStockOnly = new ProductFilter(null, Set.of(PriceBucket.UNDER_500), Set.of(), true);
+		assertEquals(List.of(2), ids(index.query(inStockOnly, inStock, ProductSort.NEWEST, null, 10)));
+	}
+
+	@Test
+	void namesSortIgnoringCaseAndAccents() {
+		CatalogFacetIndex index = CatalogFacetIndex.build(snapshot);
+
+		CatalogFacetIndex.Result result = index.query(EVERYTHING, index.inStock(Map.of()), ProductSort.NAME, null, 10);
+
+		assertEquals(List.of(2, 5, 4, 3, 1), ids(result));
+	}
+
+	@Test
+	void cursorsResumeAfterTheLastProductShown() {
+		CatalogFacetIndex index = CatalogFacetIndex.build(snapshot);
+		BitSet inStock = index.inStock(Map.of());
+
+		CatalogFacetIndex.Result first = index.query(EVERYTHING, inStock, ProductSort.NAME, null, 2);
+		assertEquals(List.of(2, 5), ids(first));
+		assertTrue(first.isHasMore());
+
+		ProductCursor cursor = CatalogFacetIndex.cursorAfter(ProductSort.NAME, first.getProducts().get(1));
+		CatalogFacetIndex.Result second = index.query(EVERYTHING, inStock, ProductSort.NAME, cursor, 2);
+		assertEquals(List.of(4, 3), ids(second));
+
+		// a cursor from the database listing compares its name the same way
+		ProductCursor fromDatabase = ProductCursor.after(ProductSort.NAME, 5, BigDecimal.ZERO, "BUCKET CAP");
+		assertEquals(List.of(4, 3), ids(index.query(EVERYTHING, inStock, ProductSort.NAME, fromDatabase, 2)));
+
+		ProductCursor byPrice = CatalogFacetIndex.cursorAfter(ProductSort.PRICE_DESC, snapshot.get(3));
+		CatalogFacetIndex.Result cheaper = index.query(EVERYTHING, inStock, ProductSort.PRICE_DESC, byPrice, 10);
+		assertEquals(List.of(5, 2), ids(cheaper));
+		assertFalse(cheaper.isHasMore());
+	}
+
+	@Test
+	void singleProductChangesKeepTheSameOrdersAsAFullBuild() {
+		CatalogFacetIndex index = CatalogFacetIndex.build(snapshot);
+
+		CatalogSnapshot renamed = snapshot.withProduct(2, product(1, "aardvark shirt", shirts, 300, Status.ACTIVE, 5));
+		index = assertSameAsFullBuild(index.withProductChanged(renamed, 1), renamed);
+
+		CatalogSnapshot added = renamed.withProduct(3, product(6, "Cargo cap", caps, 999, Status.ACTIVE, 1));
+		index = assertSameAsFullBuild(index.withProductChanged(added, 6), added);
+
+		CatalogSnapshot removed = added.withoutProduct(4, 5);
+		index = assertSameAsFullBuild(index.withProductChanged(removed, 5), removed);
+
+		CatalogSnapshot inserted = removed.withProduct(5, product(0, "zip hoodie", null, 5000, Status.ACTIVE, 1));
+		assertSameAsFullBuild(index.withProductChanged(inserted, 0), inserted);
+	}
+
+	private static CatalogFacetIndex assertSameAsFullBuild(CatalogFacetIndex updated, CatalogSnapshot snapshot) {
+		CatalogFacetIndex built = CatalogFacetIndex.build(snapshot);
+		for (ProductSort sort : ProductSort.values()) {
+			assertEquals(ids(built.query(EVERYTHING, built.inStock(Map.of()), sort, null, 100)),
+					ids(updated.query(EVERYTHING, updated.inStock(Map.of()), sort, null, 100)), sort.name());
+		}
+		return updated;
+	}
+
+	private static List<Integer> ids(CatalogFacetIndex.Result result) {
+		return result.getProducts().stream().map(CatalogProduct::getProductId).toList();
+	}
+
+	private static Category category(int id, String name) {
+		Category category = new Category();
+		category.setCategoryId(id);
+		category.setCategoryName(name);
+		return category;
+	}
+
+	private static CatalogProduct product(int id, String name, Category category, int price, Status status, int stock) {
+		Product product = new Product();
+		product.setProductId(id);
+		product.setName(name);
+		product.setCategory(category);
+		product.setPrice(BigDecimal.valueOf(price));
+		product.setStatus(status);
+		product.setStock(stock);
+		return new CatalogProduct(product, List.of());
+	}
+}
@@ -0,0 +1,90 @@
+package com.athixwear.service.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ProductSearchIndexTest {
+
+	private final ProductSearchIndex index = new ProductSearchIndex();
+
+	@Test
+	void tokenizingLowercasesDropsStopWordsAndFoldsPlurals() {
+		assertEquals(List.of("running", "shoe", "men", "2", "pack"),
+				ProductSearchIndex.tokenize("The Running Shoes for Men, 2-pack"));
+		assertEquals(List.of("hoody", "glass"), ProductSearchIndex.tokenize("Hoodies & glass"));
+		assertEquals(List.of(), ProductSearchIndex.tokenize(null));
+	}
+
+	@Test
+	void pluralQueriesFindSingularProducts() {
+		index.upsert(1, "Running Shoe", "Footwear", null);
+
+		assertEquals(List.of(1), index.search("running shoes", 10));
+	}
+
+	@Test
+	void prefixesMatchButRankBelowExactTerms() {
+		index.upsert(1, "Sweatshirt", "Tops", null);
+		index.upsert(2, "Sweat band", "Accessories", null);
+
+		assertEquals(List.of(2, 1), index.search("sweat", 10));
+		assertEquals(List.of(1), index.search("sweatsh", 10));
+	}
+
+	@Test
+	void nameMatchesOutrankDescriptionMatches() {
+		index.upsert(1, "Linen shirt", "Shirts", "Soft cotton blend");
+		index.upsert(2, "Cotton shirt", "Shirts", "Breathable weave");
+		index.upsert(3, "Wool scarf", "Accessories", null);
+
+		assertEquals(List.of(2, 1), index.search("cotton", 10));
+	}
+
+	@Test
+	void productsMatchingMoreQueryTermsRankFirst() {
+		index.upsert(1, "Blue cap", "Caps", null);
+		index.upsert(2, "Blue cotton shirt", "Shirts", null);
+		index.upsert(3, "Cotton shirt", "Shirts", null);
+
+		assertEquals(2, index.search("blue cotton shirt", 10).get(0));
+		assertEquals(List.of(2, 3), index.search("blue cotton shirt", 2));
+	}
+
+	@Test
+	void typosMatchWhenNothingMatchesExactly() {
+		index.upsert(1, "Cargo trousers", "Bottoms", null);
+		index.upsert(2, "Denim jacket", "Outerwear", null);
+
+		// one edit for short terms, a transposition counting as one
+		assertEquals(List.of(1), index.search("trosers", 10));
+		assertEquals(List.of(2), index.search("jakcet", 10));
+		// two edits only for long terms
+		assertEquals(List.of(), index.search("jakkeet", 10));
+		// a wrong first letter is not corrected
+		assertEquals(List.of(), index.search("drousers", 10));
+	}
+
+	@Test
+	void upsertReplacesAndRemoveDropsADocument() {
+		index.upsert(1, "Red scarf", "Accessories", null);
+		index.upsert(1, "Green scarf", "Accessories", null);
+
+		assertEquals(List.of(), index.search("red", 10));
+		assertEquals(List.of(1), index.search("green", 10));
+
+		index.remove(1);
+		assertEquals(List.of(), index.search("scarf", 10));
+		assertEquals(0, index.size());
+	}
+
+	@Test
+	void editDistanceCountsTranspositionsAsOneEdit() {
+		assertEquals(1, ProductSearchIndex.editDistance("shirt", "shrit", 2));
+		assertEquals(1, ProductSearchIndex.editDistance("shirt", "short", 2));
+		assertTrue(ProductSearchIndex.editDistance("shirt", "jacket", 2) > 2);
+	}
+}
@@ -0,0 +1,95 @@
+package com.athixwear.service.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ProductSuggestIndexTest {
+
+	// small, so the per-node caches fill up and have to be recomputed
+	private final ProductSuggestIndex index = new ProductSuggestIndex(2);
+
+	@Test
+	void everyWordStartIsAKey() {
+		assertEquals(List.of("air max 90", "max 90", "90"), ProductSuggestIndex.keys("  Air MAX-90 "));
+		assertEquals(List.of(), ProductSuggestIndex.keys("--"));
+	}
+
+	@Test
+	void multiWordNamesCompleteFromAnyWord() {
+		index.upsert(product(1, "Air Max 90", 3));
+
+		assertEquals(List.of("p:1"), keys(index.suggest("air m", 10)));
+		assertEquals(List.of("p:1"), keys(index.suggest("MAX", 10)));
+		assertEquals(List.of("p:1"), keys(index.suggest("90", 10)));
+		// only word starts are keys
+		assertEquals(List.of(), keys(index.suggest("ir", 10)));
+	}
+
+	@Test
+	void completionsRankByWeightThenShorterTextUpToTopK() {
+		index.upsert(product(1, "Shirt", 5));
+		index.upsert(product(2, "Short", 9));
+		index.upsert(product(3, "Shoe", 5));
+		index.upsert(product(4, "Shawl", 1));
+
+		assertEquals(List.of("p:2", "p:3"), keys(index.suggest("sh", 10)));
+		assertEquals(List.of("p:2"), keys(index.suggest("sh", 1)));
+		assertEquals(List.of("p:4"), keys(index.suggest("shaw", 10)));
+	}
+
+	@Test
+	void removingACachedEntryPromotesTheNextBestOnEveryNodeOfItsPath() {
+		index.upsert(product(1, "Shirt blue", 9));
+		index.upsert(product(2, "Shirt red", 5));
+		index.upsert(product(3, "Shirt green", 1));
+		assertEquals(List.of("p:1", "p:2"), keys(index.suggest("shirt", 10)));
+
+		index.remove("p:1");
+
+		// entry 3 was below the cut everywhere and comes back from the children's caches
+		assertEquals(List.of("p:2", "p:3"), keys(index.suggest("s", 10)));
+		assertEquals(List.of("p:2", "p:3"), keys(index.suggest("shirt", 10)));
+		assertEquals(List.of(), keys(index.suggest("blue", 10)));
+		assertEquals(2, index.size());
+	}
+
+	@Test
+	void upsertMovesAnEntryToItsNewTextAndWeight() {
+		index.upsert(product(1, "Red scarf", 1));
+		index.upsert(product(2, "Silk scarf", 4));
+		assertEquals(List.of("p:2", "p:1"), keys(index.suggest("scarf", 10)));
+
+		index.upsert(product(1, "Green scarf", 7));
+
+		assertEquals(List.of("p:1", "p:2"), keys(index.suggest("scarf", 10)));
+		assertEquals(List.of(), keys(index.suggest("red", 10)));
+		assertEquals(List.of("p:1"), keys(index.suggest("gr", 10)));
+		assertEquals(7, index.get("p:1").getWeight());
+	}
+
+	@Test
+	void anEntryReachedThroughTwoWordsIsListedOnceAndRemovedCleanly() {
+		index.upsert(product(1, "Sports shoe", 2));
+		index.upsert(new ProductSuggestIndex.Entry("c:shoes", "Shoes", ProductSuggestIndex.Type.CATEGORY, null, 1));
+
+		// "s" is reached through both "sports shoe" and "shoe"
+		assertEquals(List.of("p:1", "c:shoes"), keys(index.suggest("s", 10)));
+
+		index.remove("p:1");
+		index.remove("c:shoes");
+
+		assertEquals(List.of(), keys(index.suggest("s", 10)));
+		assertEquals(0, index.size());
+	}
+
+	private static ProductSuggestIndex.Entry product(int id, String name, long weight) {
+		return new ProductSuggestIndex.Entry("p:" + id, name, ProductSuggestIndex.Type.PRODUCT, id, weight);
+	}
+
+	private static List<String> keys(List<ProductSuggestIndex.Entry> entries) {
+		return entries.stream().map(ProductSuggestIndex.Entry::getKey).toList();
+	}
+}
@@ -0,0 +1,141 @@
+package com.athixwear.service.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.athixwear.exception.BadRequestException;
+import com.athixwear.exception.DuplicateResourceException;
+
+class IdempotencyStoreTest {
+
+	private final AtomicLong now = new AtomicLong();
+	private final IdempotencyStore<Integer> store = new IdempotencyStore<>(1_000, 100, 5_000, now::get);
+
+	@Test
+	void concurrentDuplicatesRunTheActionOnce() throws Exception {
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<IdempotencyStore.Result<Integer>>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(pool.submit(() -> store.execute("user:1", "key", "a", () -> {
+					runs.incrementAndGet();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return 42;
+				})));
+			}
+			Thread.sleep(100);
+			release.countDown();
+
+			int replayed = 0;
+			for (Future<IdempotencyStore.Result<Integer>> result : results) {
+				assertEquals(42, result.get(5, TimeUnit.SECONDS).getValue());
+				replayed += result.get().isReplayed() ? 1 : 0;
+			}
+			assertEquals(1, runs.get());
+			assertEquals(7, replayed);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void entriesExpireAfterTheTtl() {
+		assertFalse(store.execute("user:1", "key", "a", () -> 1).isReplayed());
+		assertTrue(store.execute("user:1", "key", "a", () -> 2).isReplayed());
+
+		now.addAndGet(1_000);
+		IdempotencyStore.Result<Integer> afterTtl = store.execute("user:1", "key", "a", () -> 3);
+		assertFalse(afterTtl.isReplayed());
+		assertEquals(3, afterTtl.getValue());
+	}
+
+	@Test
+	void keysAreScopedAndBoundToTheRequest() {
+		store.execute("user:1", "key", "a", () -> 1);
+
+		assertEquals(2, store.execute("user:2", "key", "a", () -> 2).getValue());
+		assertThrows(BadRequestException.class, () -> store.execute("user:1", "key", "b", () -> 3));
+	}
+
+	@Test
+	void failedRequestsAreNotCached() {
+		assertThrows(IllegalStateException.class, () -> store.execute("user:1", "key", "a", () -> {
+			throw new IllegalStateException("checkout failed");
+		}));
+		assertFalse(store.execute("user:1", "key", "a", () -> 1).isReplayed());
+	}
+
+	@Test
+	void entryCountIsCapped() {
+		for (int i = 0; i < 150; i++) {
+			int value = i;
+			store.execute("user:1", "key-" + i, "a", () -> value);
+		}
+		assertEquals(100, store.size());
+		// the oldest keys were evicted first
+		assertFalse(store.execute("user:1", "key-0", "a", () -> -1).isReplayed());
+	}
+
+	@Test
+	void inFlightEntriesAreNotEvictedPastTheCap() throws Exception {
+		// short wait, so a duplicate of the running request gives up instead of blocking the test
+		IdempotencyStore<Integer> store = new IdempotencyStore<>(1_000, 100, 50, now::get);
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			Future<IdempotencyStore.Result<Integer>> original = pool.submit(() -> store.execute("user:1", "slow", "a", () -> {
+				runs.incrementAndGet();
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return 42;
+			}));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+
+			// a burst of other keys pushes the store well past its cap while the checkout runs
+			for (int i = 0; i < 150; i++) {
+				int value = i;
+				store.execute("user:1", "key-" + i, "a", () -> value);
+			}
+
+			// the retry still finds the running request rather than starting a second one
+			assertThrows(DuplicateResourceException.class, () -> store.execute("user:1", "slow", "a", () -> {
+				runs.incrementAndGet();
+				return -1;
+			}));
+			assertEquals(1, runs.get());
+
+			release.countDown();
+			assertEquals(42, original.get(5, TimeUnit.SECONDS).getValue());
+			// once done it is the oldest entry and goes with the rest over the cap
+			assertEquals(100, store.size());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package com.athixwear.service.inventory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.athixwear.exception.InsufficientStockException;
+
+class InventoryServiceConcurrencyTest {
+
+	private static final int THREADS = 32;
+	private static final int ATTEMPTS_PER_THREAD = 25;
+
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate transaction;
+	private InventoryService inventoryService;
+
+	@BeforeEach
+	void setUp() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:inventory;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		inventoryService = new InventoryService(jdbcTemplate, event -> { });
+
+		jdbcTemplate.execute("CREATE TABLE products (product_id INT PRIMARY KEY, stock INT NOT NULL, "
+				+ "stock_sharded BOOLEAN DEFAULT FALSE NOT NULL)");
+		jdbcTemplate.execute("CREATE TABLE product_stock_slots (slot_id INT AUTO_INCREMENT PRIMARY KEY, "
+				+ "product_id INT NOT NULL, slot_no INT NOT NULL, stock INT NOT NULL, UNIQUE (product_id, slot_no))");
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.execute("DROP TABLE product_stock_slots");
+		jdbcTemplate.execute("DROP TABLE products");
+	}
+
+	@Test
+	void manyThreadsOnOneSkuNeverOversell() throws Exception {
+		int initialStock = 200;
+		jdbcTemplate.update("INSERT INTO products (product_id, stock) VALUES (1, ?)", initialStock);
+
+		AtomicInteger sold = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		runConcurrently(() -> {
+			try {
+				transaction.executeWithoutResult(status -> inventoryService.deduct(Map.of(1, 1)));
+				sold.incrementAndGet();
+			} catch (InsufficientStockException e) {
+				rejected.incrementAndGet();
+			}
+		});
+
+		int remaining = stockOf(1);
+		assertTrue(remaining >= 0, "stock went negative: " + remaining);
+		assertEquals(initialStock, sold.get() + remaining, "every unit sold must have come out of stock exactly once");
+		assertEquals(THREADS * ATTEMPTS_PER_THREAD, sold.get() + rejected.get());
+		// demand is well above supply, so everything should have sold
+		assertEquals(0, remaining);
+	}
+
+	@Test
+	void shardedSkuStaysExactUnderContention() throws Exception {
+		int initialStock = 203;
+		jdbcTemplate.update("INSERT INTO products (product_id, stock) VALUES (1, ?)", initialStock);
+		inventoryService.shard(1, 8);
+		assertEquals(0, stockOf(1));
+		assertEquals(initialStock, slotTotal(1));
+
+		AtomicInteger sold = new AtomicInteger();
+		AtomicInteger flip = new AtomicInteger();
+		runConcurrently(() -> {
+			// mix in lines too big for any one slot so the cross-slot path is exercised as well
+			int quantity = flip.incrementAndGet() % 10 == 0 ? 30 : 1;
+			try {
+				transaction.executeWithoutResult(status -> inventoryService.deduct(Map.of(1, quantity), Set.of(1)));
+				sold.addAndGet(quantity);
+			} catch (InsufficientStockException e) {
+				// sold out for this quantity
+			}
+		});
+
+		int remaining = slotTotal(1);
+		assertTrue(remaining >= 0);
+		assertEquals(initialStock, sold.get() + remaining);
+		assertEquals(0, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM product_stock_slots WHERE stock < 0", Integer.class));
+
+		inventoryService.shard(1, 1);
+		assertEquals(remaining, stockOf(1));
+	}
+
+	@Test
+	void multiLineCartsInOppositeOrderDoNotDeadlock() throws Exception {
+		jdbcTemplate.update("INSERT INTO products (product_id, stock) VALUES (1, ?)", 300);
+		jdbcTemplate.update("INSERT INTO products (product_id, stock) VALUES (2, ?)", 300);
+
+		AtomicInteger flip = new AtomicInteger();
+		AtomicInteger sold = new AtomicInteger();
+		runConcurrently(() -> {
+			// callers hand lines over in cart order; half of them list product 2 first
+			Map<Integer, Integer> cart = new LinkedHashMap<>();
+			if (flip.incrementAndGet() % 2 == 0) {
+				cart.put(1, 1);
+				cart.put(2, 1);
+			} else {
+				cart.put(2, 1);
+				cart.put(1, 1);
+			}
+			try {
+				transaction.executeWithoutResult(status -> inventoryService.deduct(cart));
+				sold.incrementAndGet();
+			} catch (InsufficientStockException e) {
+				// sold out
+			}
+		});
+
+		assertEquals(300, sold.get() + stockOf(1));
+		assertEquals(300, sold.get() + stockOf(2));
+	}
+
+	@Test
+	void failedLineRollsBackTheWholeCart() {
+		jdbcTemplate.update("INSERT INTO products (product_id, stock) VALUES (1, ?)", 5);
+		jdbcTemplate.update("INSERT INTO products (product_id, stock) VALUES (2, ?)", 1);
+
+		InsufficientStockException failure = assertThrows(InsufficientStockException.class,
+				() -> transaction.executeWithoutResult(status -> inventoryService.deduct(Map.of(1, 2, 2, 3))));
+
+		assertEquals(List.of(2), failure.getProductIds());
+		assertEquals(5, stockOf(1));
+		assertEquals(1, stockOf(2));
+	}
+
+	@Test
+	void tryDeductPutsBackAppliedLinesAndKeepsTheTransaction() {
+		jdbcTemplate.update("INSERT INTO products (product_id, stock) VALUES (1, ?)", 5);
+		jdbcTemplate.update("INSERT INTO products (product_id, stock) VALUES (2, ?)", 1);
+		jdbcTemplate.update("INSERT INTO products (product_id, stock) VALUES (3, ?)", 9);
+		inventoryService.shard(3, 3);
+
+		List<Integer> failed = transaction.execute(
+				status -> inventoryService.tryDeduct(Map.of(1, 2, 2, 3, 3, 4), Set.of(3)));
+
+		assertEquals(List.of(2), failed);
+		assertEquals(5, stockOf(1));
+		assertEquals(1, stockOf(2));
+		assertEquals(9, slotTotal(3));
+
+		// a released hold gives its units back, sharded lines onto a slot
+		transaction.executeWithoutResult(status -> inventoryService.restore(Map.of(1, 3, 3, 2), Set.of(3)));
+		assertEquals(8, stockOf(1));
+		assertEquals(11, slotTotal(3));
+	}
+
+	private void runConcurrently(Runnable attempt) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				futures.add(pool.submit(() -> {
+					start.await();
+					for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+						attempt.run();
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				// a lock convoy or deadlock shows up as a timeout here
+				future.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private int slotTotal(int productId) {
+		return jdbcTemplate.queryForObject(
+				"SELECT COALESCE(SUM(stock), 0) FROM product_stock_slots WHERE product_id = ?", Integer.class, productId);
+	}
+
+	private int stockOf(int productId) {
+		return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE product_id = ?", Integer.class, productId);
+	}
+}
@@ -0,0 +1,302 @@
+package com.athixwear.service.inventory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.athixwear.configuration.PersistenceConfig;
+import com.athixwear.entity.Address;
+import com.athixwear.entity.Order;
+import com.athixwear.entity.OrderItem;
+import com.athixwear.entity.OrderStatus;
+import com.athixwear.entity.PaymentStatus;
+import com.athixwear.entity.Product;
+import com.athixwear.entity.ReservationStatus;
+import com.athixwear.entity.Role;
+import com.athixwear.entity.User;
+import com.athixwear.repository.AddressRepository;
+import com.athixwear.repository.OrderItemRepository;
+import com.athixwear.repository.OrderRepository;
+import com.athixwear.repository.ProductRepository;
+import com.athixwear.repository.StockReservationRepository;
+import com.athixwear.repository.UserRepository;
+import com.athixwear.service.analytics.SalesRollupService;
+import com.athixwear.service.payment.OrderPaymentTransitions;
+
+// holds expire as soon as they are placed, and every tick() call moves the wheel on
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:reservations;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+		"inventory.reservation.hold-ms=0",
+		"inventory.reservation.tick-ms=1"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ PersistenceConfig.class, ReservationService.class, InventoryService.class, SalesRollupService.class,
+		OrderPaymentTransitions.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReservationServiceTest {
+
+	private static final int INITIAL_STOCK = 100;
+
+	@Autowired
+	private ReservationService reservationService;
+
+	@Autowired
+	private InventoryService inventoryService;
+
+	@Autowired
+	private OrderPaymentTransitions paymentTransitions;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Autowired
+	private StockReservationRepository reservationRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private AddressRepository addressRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transaction;
+	private User user;
+	private Address address;
+	private Product product;
+
+	@BeforeEach
+	void setUp() {
+		transaction = new TransactionTemplate(transactionManager);
+
+		user = new User();
+		user.setUsername("holder");
+		user.setEmail("holder@example.com");
+		user.setPassword("secret");
+		user.setRole(Role.CUSTOMER);
+		user = userRepository.save(user);
+
+		address = new Address();
+		address.setUser(user);
+		address.setFullName("Hold Buyer");
+		address.setPhone("9999999999");
+		address.setAddressLine("1 Test Street");
+		address.setCity("Pune");
+		address.setState("MH");
+		address.setPinCode("411001");
+		address = addressRepository.save(address);
+
+		product = new Product();
+		product.setName("Held product");
+		product.setPrice(BigDecimal.valueOf(100));
+		product.setStock(INITIAL_STOCK);
+		product = productRepository.save(product);
+	}
+
+	@AfterEach
+	void tearDown() {
+		for (String table : List.of("stock_reservations", "order_items", "orders", "daily_order_rollups",
+				"daily_product_sales", "products", "addresses", "users")) {
+			jdbcTemplate.execute("DELETE FROM " + table);
+		}
+	}
+
+	@Test
+	void expiredHoldCancelsTheOrderAndGivesTheStockBackOnce() {
+		Integer orderId = checkout(3);
+		assertEquals(INITIAL_STOCK - 3, stock());
+
+		expireAll();
+		expireAll();
+
+		Order order = orderRepository.findById(orderId).orElseThrow();
+		assertEquals(OrderStatus.CANCELLED, order.getOrderStatus());
+		assertEquals(PaymentStatus.FAILED, order.getPaymentStatus());
+		assertEquals(ReservationStatus.RELEASED, reservationStatus(orderId));
+		assertEquals(INITIAL_STOCK, stock());
+	}
+
+	@Test
+	void ordersThatMovedOnKeepTheirHold() {
+		Integer orderId = checkout(3);
+		transaction.executeWithoutResult(status -> {
+			Order order = orderRepository.findById(orderId).orElseThrow();
+			order.setOrderStatus(OrderStatus.SHIPPED);
+		});
+
+		expireAll();
+
+		Order order = orderRepository.findById(orderId).orElseThrow();
+		assertEquals(OrderStatus.SHIPPED, order.getOrderStatus());
+		assertEquals(PaymentStatus.PENDING, order.getPaymentStatus());
+		assertEquals(ReservationStatus.HELD, reservationStatus(orderId));
+		assertEquals(INITIAL_STOCK - 3, stock());
+	}
+
+	@Test
+	void paymentAfterExpiryTakesTheStockAgain() {
+		Integer orderId = checkout(3);
+		expireAll();
+		assertEquals(INITIAL_STOCK, stock());
+
+		assertEquals(true, pay(orderId));
+
+		Order order = orderRepository.findById(orderId).orElseThrow();
+		assertEquals(OrderStatus.CONFIRMED, order.getOrderStatus());
+		assertEquals(PaymentStatus.PAID, order.getPaymentStatus());
+		assertEquals(ReservationStatus.CONVERTED, reservationStatus(orderId));
+		assertEquals(INITIAL_STOCK - 3, stock());
+	}
+
+	@Test
+	void paymentsRacingTheirExpirySettleEveryOrderOnce() throws Exception {
+		List<Integer> orderIds = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			orderIds.add(checkout(2));
+		}
+
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicBoolean paying = new AtomicBoolean(true);
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			// locks the order, then converts the hold, as verifyPayment does
+			Future<?> payer = pool.submit(() -> {
+				start.await();
+				try {
+					for (Integer orderId : orderIds) {
+						pay(orderId);
+					}
+				} finally {
+					paying.set(false);
+				}
+				return null;
+			});
+			Future<?> reaper = pool.submit(() -> {
+				start.await();
+				while (paying.get()) {
+					reservationService.tick();
+				}
+				return null;
+			});
+			start.countDown();
+			// a deadlock between the two shows up as a failed payment or a failed release batch
+			payer.get(30, TimeUnit.SECONDS);
+			reaper.get(30, TimeUnit.SECONDS);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		// whichever came first, every order ends paid with its units taken exactly once
+		for (Integer orderId : orderIds) {
+			Order order = orderRepository.findById(orderId).orElseThrow();
+			assertEquals(OrderStatus.CONFIRMED, order.getOrderStatus());
+			assertEquals(PaymentStatus.PAID, order.getPaymentStatus());
+			assertEquals(ReservationStatus.CONVERTED, reservationStatus(orderId));
+		}
+		assertEquals(INITIAL_STOCK - 2 * orderIds.size(), stock());
+		assertEquals(0, reservationService.pendingHolds());
+		assertEquals(0, reservationService.failedBatches());
+	}
+
+	@Test
+	void recoveryPutsHeldReservationsBackOnTheWheel() {
+		Integer orderId = checkout(1);
+		Long reservationId = reservationRepository.findByOrderOrderId(orderId).orElseThrow().getReservationId();
+		expireAll();
+		// put the hold back as it was, as if the process had restarted before it expired
+		jdbcTemplate.update("UPDATE stock_reservations SET status = 'HELD' WHERE reservation_id = ?", reservationId);
+		jdbcTemplate.update("UPDATE orders SET order_status = 'PENDING', payment_status = 'PENDING' WHERE order_id = ?",
+				orderId);
+		jdbcTemplate.update("UPDATE products SET stock = stock - 1 WHERE product_id = ?", product.getProductId());
+
+		reservationService.recover();
+		assertEquals(1, reservationService.pendingHolds());
+		expireAll();
+
+		assertEquals(ReservationStatus.RELEASED, reservationStatus(orderId));
+		assertEquals(INITIAL_STOCK, stock());
+	}
+
+	// places an online order for quantity units and holds them, as checkout does
+	private Integer checkout(int quantity) {
+		return transaction.execute(status -> {
+			inventoryService.deduct(Map.of(product.getProductId(), quantity), Set.of());
+
+			Order order = new Order(user, address, product.getPrice().multiply(BigDecimal.valueOf(quantity)));
+			order.setPaymentMethod("RAZORPAY");
+			Order saved = orderRepository.save(order);
+
+			OrderItem item = new OrderItem();
+			item.setOrder(saved);
+			item.setProduct(product);
+			item.setQuantity(quantity);
+			item.setPrice(product.getPrice());
+			item.setTotalPrice(saved.getTotalAmount());
+			orderItemRepository.save(item);
+
+			reservationService.hold(saved);
+			return saved.getOrderId();
+		});
+	}
+
+	private boolean pay(Integer orderId) {
+		return transaction.execute(status -> {
+			Order order = orderRepository.lockByOrderIdAndUserId(orderId, user.getUserId()).orElseThrow();
+			return paymentTransitions.markPaid(order, "pay_" + orderId, null);
+		});
+	}
+
+	private void expireAll() {
+		for (int i = 0; i < 100 && reservationService.pendingHolds() > 0; i++) {
+			try {
+				Thread.sleep(2);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			reservationService.tick();
+		}
+	}
+
+	private ReservationStatus reservationStatus(Integer orderId) {
+		return reservationRepository.findByOrderOrderId(orderId).orElseThrow().getStatus();
+	}
+
+	private int stock() {
+		return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE product_id = ?", Integer.class,
+				product.getProductId());
+	}
+}
@@ -0,0 +1,75 @@
+package com.athixwear.service.payment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+	private final AtomicLong now = new AtomicLong();
+	// window of 10, at least 4 calls, opens at 50% failures, stays open 1s, 2 trial calls
+	private final CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 1_000, 2, now::get);
+
+	@Test
+	void opensOnceTheFailureRateIsReached() {
+		fail(2);
+		succeed(1);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.state(), "below the minimum number of calls");
+
+		fail(1);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+		assertFalse(breaker.tryAcquire());
+		assertEquals(1_000, breaker.remainingOpenMillis());
+	}
+
+	@Test
+	void oldOutcomesSlideOutOfTheWindow() {
+		fail(4);
+		now.addAndGet(1_000);
+		// both trial calls succeed, which closes the breaker with an empty window
+		succeed(2);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+		// a fresh window: 6 successes then 4 failures is 40%
+		succeed(6);
+		fail(4);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+		// the next failure pushes a success out: 5 of 10
+		fail(1);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+	}
+
+	@Test
+	void halfOpenAdmitsLimitedTrialsAndReopensOnFailure() {
+		fail(4);
+		now.addAndGet(1_000);
+
+		assertTrue(breaker.tryAcquire());
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire(), "only two trial calls");
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+
+		breaker.onSuccess();
+		breaker.onFailure();
+		assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+		assertEquals(2, breaker.timesOpened());
+	}
+
+	private void fail(int times) {
+		for (int i = 0; i < times; i++) {
+			assertTrue(breaker.tryAcquire());
+			breaker.onFailure();
+		}
+	}
+
+	private void succeed(int times) {
+		for (int i = 0; i < times; i++) {
+			assertTrue(breaker.tryAcquire());
+			breaker.onSuccess();
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package com.athixwear.service.payment;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Signature checks on the /verify and webhook paths, the per-call
+ * {@code Mac.getInstance} + {@code String.format} code this replaced against
+ * {@link HmacSha256Verifier}. Not a test; run {@link #main} from the IDE or
+ * with the test classpath. The GC profiler reports gc.alloc.rate.norm, the
+ * bytes allocated per check.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class HmacSha256VerifierBenchmark {
+
+	private static final String SECRET = "rzp_test_secret_0123456789abcdef";
+
+	private String razorpayOrderId;
+	private String razorpayPaymentId;
+	private String verifySignature;
+	private String webhookBody;
+	private String webhookSignature;
+	private HmacSha256Verifier verifier;
+
+	@Setup
+	public void setUp() {
+		razorpayOrderId = "order_NXr9bqZ3m1Kp4T";
+		razorpayPaymentId = "pay_NXrA7wQe2Lf8Yd";
+		verifier = new HmacSha256Verifier(SECRET);
+		verifySignature = verifier.sign(razorpayOrderId + "|" + razorpayPaymentId);
+
+		StringBuilder body = new StringBuilder("{\"entity\":\"event\",\"event\":\"payment.captured\",\"payload\":{\"payment\":{\"entity\":{");
+		while (body.length() < 2_000) {
+			body.append("\"field").append(body.length()).append("\":\"value\",");
+		}
+		body.append("\"id\":\"").append(razorpayPaymentId).append("\",\"order_id\":\"").append(razorpayOrderId).append("\"}}}}");
+		webhookBody = body.toString();
+		webhookSignature = verifier.sign(webhookBody);
+	}
+
+	@Benchmark
+	public boolean verifyLegacy() throws Exception {
+		String expected = legacyHmacSha256(razorpayOrderId + "|" + razorpayPaymentId, SECRET);
+		return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+				verifySignature.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Benchmark
+	public boolean verifyVerifier() {
+		return verifier.verify(razorpayOrderId, '|', razorpayPaymentId, verifySignature);
+	}
+
+	@Benchmark
+	public boolean webhookLegacy() throws Exception {
+		String expected = legacyHmacSha256(webhookBody, SECRET);
+		return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+				webhookSignature.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Benchmark
+	public boolean webhookVerifier() {
+		return verifier.verify(webhookBody, webhookSignature);
+	}
+
+	// PaymentService.generateHmacSha256 and toHex as they were
+	private static String legacyHmacSha256(String data, String secret) throws Exception {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		SecretKeySpec secretKeySpec = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+		mac.init(secretKeySpec);
+		byte[] hash = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+		StringBuilder builder = new StringBuilder(hash.length * 2);
+		for (byte b : hash) {
+			builder.append(String.format("%02x", b));
+		}
+		return builder.toString();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(HmacSha256VerifierBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
@@ -0,0 +1,64 @@
+package com.athixwear.service.payment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+class HmacSha256VerifierTest {
+
+	// RFC 4231, test case 2
+	private static final String RFC_SIGNATURE = "5bdcc146bf60754e6a042426089575c75a003f089d2739839dec58b964ec3843";
+
+	private final HmacSha256Verifier verifier = new HmacSha256Verifier("Jefe");
+
+	@Test
+	void matchesTheReferenceVector() {
+		assertEquals(RFC_SIGNATURE, verifier.sign("what do ya want for nothing?"));
+		assertTrue(verifier.verify("what do ya want for nothing?", RFC_SIGNATURE));
+	}
+
+	@Test
+	void rejectsAnyOtherSignature() {
+		String data = "what do ya want for nothing?";
+		assertFalse(verifier.verify(data, RFC_SIGNATURE.substring(0, 63) + "4"));
+		assertFalse(verifier.verify(data, RFC_SIGNATURE.toUpperCase()));
+		assertFalse(verifier.verify(data, RFC_SIGNATURE.substring(2)));
+		assertFalse(verifier.verify(data, RFC_SIGNATURE + "00"));
+		assertFalse(verifier.verify(data, "zz" + RFC_SIGNATURE.substring(2)));
+		assertFalse(verifier.verify(data, null));
+		assertFalse(verifier.verify(data + " ", RFC_SIGNATURE));
+	}
+
+	@Test
+	void joinedFormSignsTheSameBytes() {
+		String signature = verifier.sign("order_Abc123|pay_Xyz789");
+		assertTrue(verifier.verify("order_Abc123", '|', "pay_Xyz789", signature));
+		assertFalse(verifier.verify("order_Abc12", '|', "3pay_Xyz789", signature));
+	}
+
+	@Test
+	void nonAsciiAndLargeBodiesAreEncodedAsUtf8() throws Exception {
+		String accented = "{\"notes\":\"caf\u00e9 \uD83D\uDE00\"}";
+		assertEquals(reference("Jefe", accented), verifier.sign(accented));
+
+		String large = "x".repeat(100_000) + "\u00e9";
+		assertEquals(reference("Jefe", large), verifier.sign(large));
+
+		// the scratch buffer a large message leaves behind must not leak into the next one
+		assertEquals(RFC_SIGNATURE, verifier.sign("what do ya want for nothing?"));
+	}
+
+	private static String reference(String secret, String data) throws Exception {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+		return HexFormat.of().formatHex(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,158 @@
+package com.athixwear.service.payment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.athixwear.configuration.PersistenceConfig;
+import com.athixwear.entity.Address;
+import com.athixwear.entity.Order;
+import com.athixwear.entity.PaymentMismatch;
+import com.athixwear.entity.PaymentMismatchType;
+import com.athixwear.entity.PaymentStatus;
+import com.athixwear.entity.Role;
+import com.athixwear.entity.User;
+import com.athixwear.repository.AddressRepository;
+import com.athixwear.repository.OrderRepository;
+import com.athixwear.repository.PaymentMismatchRepository;
+import com.athixwear.repository.UserRepository;
+
+// the stub gateway captures every order it creates, and small pages make the order scan and lookups page
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:reconciliation;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+		"payment.reconciliation.order-page-size=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ PersistenceConfig.class, PaymentReconciliationJob.class, RazorpayGateway.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentReconciliationJobTest {
+
+	@TestConfiguration
+	static class StubGatewayConfig {
+
+		@Bean
+		PaymentGatewayClient paymentGatewayClient() {
+			return new StubPaymentGatewayClient(0, 0, 0, 0, 1.0);
+		}
+	}
+
+	@Autowired
+	private PaymentReconciliationJob reconciliationJob;
+
+	@Autowired
+	private RazorpayGateway razorpayGateway;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private PaymentMismatchRepository mismatchRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private AddressRepository addressRepository;
+
+	private User user;
+	private Address address;
+
+	@BeforeEach
+	void setUp() {
+		user = new User();
+		user.setUsername("reconciler");
+		user.setEmail("reconciler@example.com");
+		user.setPassword("secret");
+		user.setRole(Role.CUSTOMER);
+		user = userRepository.save(user);
+
+		address = new Address();
+		address.setUser(user);
+		address.setFullName("Reconcile Buyer");
+		address.setPhone("9999999999");
+		address.setAddressLine("1 Test Street");
+		address.setCity("Pune");
+		address.setState("MH");
+		address.setPinCode("411001");
+		address = addressRepository.save(address);
+	}
+
+	@Test
+	void flagsEveryDisagreementWithTheGatewayAndReplacesThemOnRerun() {
+		LocalDate today = LocalDate.now();
+		order(500, razorpayGateway.createOrder(50_000, "INR", "agreed"), PaymentStatus.PAID, 0);
+		Integer unpaid = order(300, razorpayGateway.createOrder(30_000, "INR", "unpaid"), PaymentStatus.PENDING, 0);
+		Integer underpaid = order(800, razorpayGateway.createOrder(70_000, "INR", "underpaid"), PaymentStatus.PAID, 0);
+		Integer notAtGateway = order(200, "order_missing", PaymentStatus.PAID, 0);
+		// placed yesterday and paid today: its payment is listed, but belongs to an order of another day
+		order(400, razorpayGateway.createOrder(40_000, "INR", "late"), PaymentStatus.PAID, 1);
+		// the first gateway order of a checkout that was retried: captured, but no order carries its id
+		String overwritten = razorpayGateway.createOrder(60_000, "INR", "retried");
+		order(600, razorpayGateway.createOrder(60_000, "INR", "retried"), PaymentStatus.PAID, 0);
+
+		assertTrue(reconciliationJob.reconcile(today));
+
+		Map<PaymentMismatchType, List<PaymentMismatch>> byType = mismatches();
+		// the agreed order and yesterday's order are not flagged
+		assertEquals(4, byType.values().stream().mapToInt(List::size).sum());
+		assertEquals(unpaid, single(byType, PaymentMismatchType.PAID_AT_GATEWAY_ONLY).getOrder().getOrderId());
+		PaymentMismatch amount = single(byType, PaymentMismatchType.AMOUNT_MISMATCH);
+		assertEquals(underpaid, amount.getOrder().getOrderId());
+		assertEquals(80_000L, amount.getLocalAmountPaise());
+		assertEquals(70_000L, amount.getGatewayAmountPaise());
+		assertEquals(notAtGateway, single(byType, PaymentMismatchType.PAID_LOCALLY_ONLY).getOrder().getOrderId());
+		PaymentMismatch unknown = single(byType, PaymentMismatchType.UNKNOWN_GATEWAY_ORDER);
+		assertEquals(overwritten, unknown.getRazorpayOrderId());
+		assertNull(unknown.getOrder());
+		assertEquals(60_000L, unknown.getGatewayAmountPaise());
+		assertEquals("COMPLETED", lastRun().get("status"));
+		assertEquals(5L, lastRun().get("ordersChecked"));
+
+		// a rerun replaces the day's mismatches rather than adding to them
+		assertTrue(reconciliationJob.reconcile(today));
+		assertEquals(4, mismatchRepository.count());
+	}
+
+	private Integer order(int total, String razorpayOrderId, PaymentStatus paymentStatus, int daysAgo) {
+		Order order = new Order(user, address, BigDecimal.valueOf(total));
+		order.setPaymentMethod("RAZORPAY");
+		order.setRazorpayOrderId(razorpayOrderId);
+		order.setPaymentStatus(paymentStatus);
+		order.setOrderDate(LocalDateTime.now().minusDays(daysAgo));
+		return orderRepository.save(order).getOrderId();
+	}
+
+	private Map<PaymentMismatchType, List<PaymentMismatch>> mismatches() {
+		return mismatchRepository.findAll().stream().collect(Collectors.groupingBy(PaymentMismatch::getType));
+	}
+
+	private static PaymentMismatch single(Map<PaymentMismatchType, List<PaymentMismatch>> byType,
+			PaymentMismatchType type) {
+		List<PaymentMismatch> mismatches = byType.getOrDefault(type, List.of());
+		assertEquals(1, mismatches.size(), type.name());
+		return mismatches.get(0);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> lastRun() {
+		return (Map<String, Object>) reconciliationJob.stats().get("lastRun");
+	}
+}
@@ -0,0 +1,206 @@
+package com.athixwear.service.payment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.athixwear.configuration.PersistenceConfig;
+import com.athixwear.entity.Address;
+import com.athixwear.entity.Order;
+import com.athixwear.entity.OrderItem;
+import com.athixwear.entity.OrderStatus;
+import com.athixwear.entity.PaymentStatus;
+import com.athixwear.entity.Product;
+import com.athixwear.entity.ReservationStatus;
+import com.athixwear.entity.Role;
+import com.athixwear.entity.User;
+import com.athixwear.repository.AddressRepository;
+import com.athixwear.repository.OrderItemRepository;
+import com.athixwear.repository.OrderRepository;
+import com.athixwear.repository.ProductRepository;
+import com.athixwear.repository.StockReservationRepository;
+import com.athixwear.repository.UserRepository;
+import com.athixwear.service.analytics.SalesRollupService;
+import com.athixwear.service.inventory.InventoryService;
+import com.athixwear.service.inventory.ReservationService;
+
+// every unpaid order counts as expired, and holds never expire on their own during the test
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:sweeper;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+		"payment.pending-sweep.max-age-ms=0",
+		"inventory.reservation.hold-ms=3600000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ PersistenceConfig.class, PendingPaymentSweeper.class, ReservationService.class, InventoryService.class,
+		SalesRollupService.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PendingPaymentSweeperTest {
+
+	private static final int INITIAL_STOCK = 100;
+
+	@Autowired
+	private PendingPaymentSweeper sweeper;
+
+	@Autowired
+	private ReservationService reservationService;
+
+	@Autowired
+	private InventoryService inventoryService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Autowired
+	private StockReservationRepository reservationRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private AddressRepository addressRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transaction;
+	private User user;
+	private Address address;
+	private Product product;
+
+	@BeforeEach
+	void setUp() {
+		transaction = new TransactionTemplate(transactionManager);
+
+		user = new User();
+		user.setUsername("sweeper");
+		user.setEmail("sweeper@example.com");
+		user.setPassword("secret");
+		user.setRole(Role.CUSTOMER);
+		user = userRepository.save(user);
+
+		address = new Address();
+		address.setUser(user);
+		address.setFullName("Sweep Buyer");
+		address.setPhone("9999999999");
+		address.setAddressLine("1 Test Street");
+		address.setCity("Pune");
+		address.setState("MH");
+		address.setPinCode("411001");
+		address = addressRepository.save(address);
+
+		product = new Product();
+		product.setName("Swept product");
+		product.setPrice(BigDecimal.valueOf(100));
+		product.setStock(INITIAL_STOCK);
+		product = productRepository.save(product);
+	}
+
+	@Test
+	void cancelsUnpaidOnlineOrdersAndRestoresTheirStockOnce() throws Exception {
+		Integer abandoned = checkout("RAZORPAY", 3);
+		Integer cashOnDelivery = checkout("COD", 2);
+		Integer paid = checkout("RAZORPAY", 1);
+		markPaid(paid);
+		// hold expired earlier: order already cancelled and its units back on sale
+		Integer expired = checkout("RAZORPAY", 4);
+		releaseHold(expired, true);
+		// hold released but the order still pending: units are back, only the order needs cancelling
+		Integer released = checkout("RAZORPAY", 5);
+		releaseHold(released, false);
+		assertEquals(INITIAL_STOCK - 3 - 2 - 1, stock());
+
+		Thread.sleep(5);
+		sweeper.sweep();
+		sweeper.sweep();
+
+		assertStatuses(abandoned, OrderStatus.CANCELLED, PaymentStatus.FAILED);
+		assertEquals(ReservationStatus.RELEASED, reservationStatus(abandoned));
+		assertStatuses(released, OrderStatus.CANCELLED, PaymentStatus.FAILED);
+		assertStatuses(cashOnDelivery, OrderStatus.PENDING, PaymentStatus.PENDING);
+		assertStatuses(paid, OrderStatus.CONFIRMED, PaymentStatus.PAID);
+		assertEquals(ReservationStatus.CONVERTED, reservationStatus(paid));
+		assertStatuses(expired, OrderStatus.CANCELLED, PaymentStatus.FAILED);
+
+		// only the abandoned order's units came back; the others were already back or are still sold
+		assertEquals(INITIAL_STOCK - 2 - 1, stock());
+		assertEquals(2L, sweeper.stats().get("cancelled"));
+	}
+
+	private Integer checkout(String paymentMethod, int quantity) {
+		return transaction.execute(status -> {
+			inventoryService.deduct(Map.of(product.getProductId(), quantity), Set.of());
+
+			Order order = new Order(user, address, product.getPrice().multiply(BigDecimal.valueOf(quantity)));
+			order.setPaymentMethod(paymentMethod);
+			Order saved = orderRepository.save(order);
+
+			OrderItem item = new OrderItem();
+			item.setOrder(saved);
+			item.setProduct(product);
+			item.setQuantity(quantity);
+			item.setPrice(product.getPrice());
+			item.setTotalPrice(saved.getTotalAmount());
+			orderItemRepository.save(item);
+
+			if ("RAZORPAY".equals(paymentMethod)) {
+				reservationService.hold(saved);
+			}
+			return saved.getOrderId();
+		});
+	}
+
+	private void markPaid(Integer orderId) {
+		jdbcTemplate.update("UPDATE orders SET order_status = 'CONFIRMED', payment_status = 'PAID' WHERE order_id = ?",
+				orderId);
+		jdbcTemplate.update("UPDATE stock_reservations SET status = 'CONVERTED' WHERE order_id = ?", orderId);
+	}
+
+	private void releaseHold(Integer orderId, boolean cancelOrder) {
+		int quantity = orderItemRepository.findByOrderOrderId(orderId).get(0).getQuantity();
+		jdbcTemplate.update("UPDATE stock_reservations SET status = 'RELEASED' WHERE order_id = ?", orderId);
+		jdbcTemplate.update("UPDATE products SET stock = stock + ? WHERE product_id = ?", quantity,
+				product.getProductId());
+		if (cancelOrder) {
+			jdbcTemplate.update("UPDATE orders SET order_status = 'CANCELLED', payment_status = 'FAILED' "
+					+ "WHERE order_id = ?", orderId);
+		}
+	}
+
+	private void assertStatuses(Integer orderId, OrderStatus orderStatus, PaymentStatus paymentStatus) {
+		Order order = orderRepository.findById(orderId).orElseThrow();
+		assertEquals(orderStatus, order.getOrderStatus());
+		assertEquals(paymentStatus, order.getPaymentStatus());
+	}
+
+	private ReservationStatus reservationStatus(Integer orderId) {
+		return reservationRepository.findByOrderOrderId(orderId).orElseThrow().getStatus();
+	}
+
+	private int stock() {
+		return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE product_id = ?", Integer.class,
+				product.getProductId());
+	}
+}